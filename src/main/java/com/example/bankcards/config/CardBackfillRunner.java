@@ -0,0 +1,62 @@
+package com.example.bankcards.config;
+
+import com.example.bankcards.service.CardBackfillService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Фоновое заполнение вычисляемых колонок карт при старте приложения.
+ * Нужно для строк, созданных до появления соответствующих колонок.
+ * 
+ * @author system
+ */
+@Component
+public class CardBackfillRunner implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(CardBackfillRunner.class);
+
+    private final CardBackfillService cardBackfillService;
+    private final int batchSize;
+
+    /**
+     * Конструктор с внедрением зависимостей.
+     *
+     * @param cardBackfillService сервис заполнения колонок карт
+     * @param batchSize размер порции карт, обрабатываемых в одной транзакции
+     */
+    public CardBackfillRunner(CardBackfillService cardBackfillService,
+                              @Value("${card.backfill.batch-size:500}") int batchSize) {
+        this.cardBackfillService = cardBackfillService;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Выполняется при старте приложения.
+     * Проходит по всем картам без слепого индекса или маскированного номера и заполняет их.
+     *
+     * @param args аргументы командной строки
+     */
+    @Override
+    public void run(String... args) {
+        long processed = 0;
+        Long lastId = 0L;
+        while ((lastId = cardBackfillService.backfillCardNumberHashes(lastId, batchSize)) != null) {
+            processed++;
+        }
+        if (processed > 0) {
+            log.info("Card number blind index backfilled in {} batch(es)", processed);
+        }
+
+        processed = 0;
+        lastId = 0L;
+        while ((lastId = cardBackfillService.backfillMaskedCardNumbers(lastId, batchSize)) != null) {
+            processed++;
+        }
+        if (processed > 0) {
+            log.info("Masked card numbers backfilled in {} batch(es)", processed);
+        }
+    }
+}
@@ -1,7 +1,12 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.CardContentionResponse;
+import com.example.bankcards.dto.CardLimitRequest;
+import com.example.bankcards.dto.CardLimitResponse;
 import com.example.bankcards.dto.UserResponse;
 import com.example.bankcards.entity.Role;
+import com.example.bankcards.service.TransferContentionMonitor;
+import com.example.bankcards.service.TransferLimitService;
 import com.example.bankcards.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
@@ -24,14 +29,22 @@ import java.util.Set;
 public class AdminController {
 
     private final UserService userService;
+    private final TransferContentionMonitor transferContentionMonitor;
+    private final TransferLimitService transferLimitService;
 
     /**
      * Конструктор с внедрением зависимостей.
      *
      * @param userService сервис для работы с пользователями
+     * @param transferContentionMonitor метрики конкуренции за карты при переводах
+     * @param transferLimitService лимиты переводов по картам
      */
-    public AdminController(UserService userService) {
+    public AdminController(UserService userService,
+                           TransferContentionMonitor transferContentionMonitor,
+                           TransferLimitService transferLimitService) {
         this.userService = userService;
+        this.transferContentionMonitor = transferContentionMonitor;
+        this.transferLimitService = transferLimitService;
     }
 
     /**
@@ -56,5 +69,52 @@ public class AdminController {
         userService.deleteUser(id);
         return ResponseEntity.noContent().build();
     }
-}
 
+    /**
+     * Получает карты с наибольшей конкуренцией за блокировки при переводах.
+     *
+     * @param limit количество карт (по умолчанию 20)
+     * @return статистика ожидания блокировок и повторов по картам
+     */
+    @GetMapping("/transfers/contention")
+    public ResponseEntity<List<CardContentionResponse>> getTransferContention(
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(transferContentionMonitor.getMostContendedCards(Math.max(1, Math.min(limit, 100))));
+    }
+
+    /**
+     * Получает лимиты переводов карты и текущий расход по ним.
+     *
+     * @param id идентификатор карты
+     * @return лимиты и расход
+     */
+    @GetMapping("/cards/{id}/limits")
+    public ResponseEntity<CardLimitResponse> getCardLimits(@PathVariable Long id) {
+        return ResponseEntity.ok(transferLimitService.getLimits(id));
+    }
+
+    /**
+     * Устанавливает лимиты переводов карты. Незаданный лимит не ограничивает переводы.
+     *
+     * @param id идентификатор карты
+     * @param request суточная и месячная суммы, количество переводов в час
+     * @return лимиты и расход
+     */
+    @PutMapping("/cards/{id}/limits")
+    public ResponseEntity<CardLimitResponse> setCardLimits(@PathVariable Long id,
+                                                           @Valid @RequestBody CardLimitRequest request) {
+        return ResponseEntity.ok(transferLimitService.setLimits(id, request));
+    }
+
+    /**
+     * Удаляет лимиты переводов карты.
+     *
+     * @param id идентификатор карты
+     * @return пустой ответ со статусом 204
+     */
+    @DeleteMapping("/cards/{id}/limits")
+    public ResponseEntity<Void> removeCardLimits(@PathVariable Long id) {
+        transferLimitService.removeLimits(id);
+        return ResponseEntity.noContent().build();
+    }
+}
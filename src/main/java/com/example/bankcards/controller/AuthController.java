@@ -5,9 +5,9 @@ import com.example.bankcards.dto.AuthResponse;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.repository.UserRepository;
 import com.example.bankcards.security.JwtTokenProvider;
+import com.example.bankcards.security.LoginAuthenticator;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -23,34 +23,35 @@ import org.springframework.web.bind.annotation.*;
 @RequestMapping("/api/auth")
 public class AuthController {
 
-    private final AuthenticationManager authenticationManager;
+    private final LoginAuthenticator loginAuthenticator;
     private final JwtTokenProvider tokenProvider;
     private final UserRepository userRepository;
 
     /**
      * Конструктор с внедрением зависимостей.
      *
-     * @param authenticationManager менеджер аутентификации Spring Security
+     * @param loginAuthenticator проверка пароля в ограниченном пуле потоков
      * @param tokenProvider провайдер JWT токенов
      * @param userRepository репозиторий пользователей
      */
-    public AuthController(AuthenticationManager authenticationManager,
+    public AuthController(LoginAuthenticator loginAuthenticator,
                           JwtTokenProvider tokenProvider,
                           UserRepository userRepository) {
-        this.authenticationManager = authenticationManager;
+        this.loginAuthenticator = loginAuthenticator;
         this.tokenProvider = tokenProvider;
         this.userRepository = userRepository;
     }
 
     /**
      * Аутентифицирует пользователя и возвращает JWT токен.
+     * Пароль проверяется в отдельном пуле; при его перегрузке возвращается 503 с Retry-After.
      *
      * @param loginRequest запрос с username и password
      * @return ответ с JWT токеном и информацией о пользователе
      */
     @PostMapping("/login")
     public ResponseEntity<AuthResponse> authenticateUser(@Valid @RequestBody AuthRequest loginRequest) {
-        Authentication authentication = authenticationManager.authenticate(
+        Authentication authentication = loginAuthenticator.authenticate(
                 new UsernamePasswordAuthenticationToken(
                         loginRequest.getUsername(),
                         loginRequest.getPassword()
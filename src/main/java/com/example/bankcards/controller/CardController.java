@@ -1,25 +1,40 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.BatchTransferRequest;
+import com.example.bankcards.dto.BatchTransferResponse;
+import com.example.bankcards.dto.CardBalanceResponse;
 import com.example.bankcards.dto.CardCreateRequest;
 import com.example.bankcards.dto.CardResponse;
+import com.example.bankcards.dto.CardTransactionResponse;
 import com.example.bankcards.dto.CardStatusUpdateRequest;
+import com.example.bankcards.dto.CursorPageResponse;
 import com.example.bankcards.entity.Card;
-import com.example.bankcards.entity.User;
-import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.CurrentUser;
+import com.example.bankcards.security.CurrentUserProvider;
+import com.example.bankcards.service.BatchTransferService;
 import com.example.bankcards.service.CardService;
+import com.example.bankcards.service.CardTransactionService;
+import com.example.bankcards.service.TransferIdempotencyService;
 import com.example.bankcards.service.TransferService;
 import com.example.bankcards.dto.TransferRequest;
 import com.example.bankcards.dto.TransferResponse;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -32,23 +47,41 @@ import java.util.List;
 @RequestMapping("/api/cards")
 public class CardController {
 
+    private static final String NDJSON = "application/x-ndjson";
+
     private final CardService cardService;
+    private final CardTransactionService cardTransactionService;
     private final TransferService transferService;
-    private final UserRepository userRepository;
+    private final TransferIdempotencyService transferIdempotencyService;
+    private final BatchTransferService batchTransferService;
+    private final CurrentUserProvider currentUserProvider;
+    private final ObjectMapper objectMapper;
 
     /**
      * Конструктор с внедрением зависимостей.
      *
      * @param cardService сервис для работы с картами
+     * @param cardTransactionService сервис истории переводов карт
      * @param transferService сервис для переводов между картами
-     * @param userRepository репозиторий пользователей
+     * @param transferIdempotencyService идемпотентное выполнение переводов
+     * @param batchTransferService сервис пакетных переводов
+     * @param currentUserProvider источник текущего пользователя запроса
+     * @param objectMapper JSON-сериализатор для потоковой выгрузки
      */
     public CardController(CardService cardService,
+                          CardTransactionService cardTransactionService,
                           TransferService transferService,
-                          UserRepository userRepository) {
+                          TransferIdempotencyService transferIdempotencyService,
+                          BatchTransferService batchTransferService,
+                          CurrentUserProvider currentUserProvider,
+                          ObjectMapper objectMapper) {
         this.cardService = cardService;
+        this.cardTransactionService = cardTransactionService;
         this.transferService = transferService;
-        this.userRepository = userRepository;
+        this.transferIdempotencyService = transferIdempotencyService;
+        this.batchTransferService = batchTransferService;
+        this.currentUserProvider = currentUserProvider;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -58,28 +91,37 @@ public class CardController {
      * @param cardholderName фильтр по имени держателя карты (опционально)
      * @param status фильтр по статусу карты (опционально)
      * @param page номер страницы (по умолчанию 0)
-     * @param size размер страницы (по умолчанию 10)
+     * @param size размер страницы (по умолчанию 10, в keyset-режиме не более 100)
      * @param sortBy поле для сортировки (по умолчанию "id")
      * @param sortDir направление сортировки (ASC или DESC, по умолчанию DESC)
-     * @return страница с картами пользователя
+     * @param pagination режим пагинации: offset (по умолчанию) или keyset
+     * @param after курсор следующей страницы в keyset-режиме (задание курсора включает keyset-режим)
+     * @return страница с картами пользователя ({@link Page} в offset-режиме, {@link CursorPageResponse} в keyset-режиме)
      */
     @GetMapping
-    public ResponseEntity<Page<CardResponse>> getMyCards(
+    public ResponseEntity<?> getMyCards(
             @RequestParam(required = false) Long userId,
             @RequestParam(required = false) String cardholderName,
             @RequestParam(required = false) Card.CardStatus status,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id") String sortBy,
-            @RequestParam(defaultValue = "DESC") String sortDir) {
+            @RequestParam(defaultValue = "DESC") String sortDir,
+            @RequestParam(defaultValue = "offset") String pagination,
+            @RequestParam(required = false) String after) {
         
-        String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
-        User currentUser = userRepository.findByUsername(currentUsername)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+        CurrentUser currentUser = currentUserProvider.get();
 
         // Если userId не указан, используем ID текущего пользователя
         Long targetUserId = userId != null ? userId : currentUser.getId();
 
+        if (pagination.equalsIgnoreCase("keyset") || after != null) {
+            Sort.Direction direction = sortDir.equalsIgnoreCase("ASC") ? Sort.Direction.ASC : Sort.Direction.DESC;
+            CursorPageResponse<CardResponse> cards = cardService.getCardsForUserAfter(
+                    targetUserId, cardholderName, status, sortBy, direction, after, Math.max(1, Math.min(size, 100)));
+            return ResponseEntity.ok(cards);
+        }
+
         Sort sort = sortDir.equalsIgnoreCase("ASC") ? Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
         Pageable pageable = PageRequest.of(page, size, sort);
 
@@ -99,6 +141,43 @@ public class CardController {
         return ResponseEntity.ok(card);
     }
 
+    /**
+     * Получает историю переводов карты (от новых к старым) с keyset пагинацией.
+     *
+     * @param id идентификатор карты
+     * @param from начало периода включительно (опционально, ISO date-time)
+     * @param to конец периода не включительно (опционально, ISO date-time)
+     * @param after курсор следующей страницы из предыдущего ответа (опционально)
+     * @param size размер страницы (по умолчанию 20, не более 100)
+     * @return страница переводов и курсор следующей страницы
+     */
+    @GetMapping("/{id}/transactions")
+    public ResponseEntity<CursorPageResponse<CardTransactionResponse>> getCardTransactions(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int size) {
+        CursorPageResponse<CardTransactionResponse> transactions = cardTransactionService.getTransactionsForCard(
+                id, from, to, after, Math.max(1, Math.min(size, 100)));
+        return ResponseEntity.ok(transactions);
+    }
+
+    /**
+     * Получает баланс карты на момент времени.
+     *
+     * @param id идентификатор карты
+     * @param at момент времени (ISO date-time)
+     * @return баланс на указанный момент
+     */
+    @GetMapping("/{id}/balance")
+    public ResponseEntity<CardBalanceResponse> getCardBalanceAt(
+            @PathVariable Long id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        CardBalanceResponse balance = cardTransactionService.getBalanceAt(id, at);
+        return ResponseEntity.ok(balance);
+    }
+
     /**
      * Создает новую банковскую карту.
      *
@@ -141,12 +220,36 @@ public class CardController {
     /**
      * Выполняет перевод между картами текущего пользователя.
      *
+     * При наличии заголовка Idempotency-Key перевод выполняется не более одного раза:
+     * повтор с тем же ключом возвращает ответ первого запроса.
+     * Выбор способа выполнения (групповая фиксация, журнал балансов) и проверка скорости
+     * переводов выполняются в {@link TransferService}.
+     *
      * @param request данные перевода (fromCardId, toCardId, amount)
+     * @param idempotencyKey ключ идемпотентности (опционально)
      * @return результат перевода
      */
     @PostMapping("/transfer")
-    public ResponseEntity<TransferResponse> transferBetweenCards(@Valid @RequestBody TransferRequest request) {
-        TransferResponse response = transferService.transferBetweenOwnCards(request);
+    public ResponseEntity<TransferResponse> transferBetweenCards(
+            @Valid @RequestBody TransferRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        TransferResponse response = idempotencyKey != null
+                ? transferIdempotencyService.transfer(idempotencyKey, request)
+                : transferService.transferBetweenOwnCards(request);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Выполняет пакет переводов между картами текущего пользователя в одной транзакции.
+     * В режиме ALL_OR_NOTHING отказ любого перевода отменяет весь пакет,
+     * в режиме BEST_EFFORT выполняются все допустимые переводы.
+     *
+     * @param request переводы и режим выполнения пакета
+     * @return результаты по каждому переводу
+     */
+    @PostMapping("/transfers/batch")
+    public ResponseEntity<BatchTransferResponse> transferBatch(@Valid @RequestBody BatchTransferRequest request) {
+        BatchTransferResponse response = batchTransferService.transferBatch(request);
         return ResponseEntity.ok(response);
     }
 
@@ -160,5 +263,36 @@ public class CardController {
         List<CardResponse> cards = cardService.getAllCards();
         return ResponseEntity.ok(cards);
     }
-}
 
+    /**
+     * Потоково выгружает все карты в системе в формате NDJSON (только для администраторов).
+     * Каждая карта пишется в ответ отдельной строкой сразу после чтения из БД,
+     * поэтому расход памяти не зависит от количества карт.
+     *
+     * @param response HTTP ответ, в который пишутся карты
+     * @throws IOException при ошибке записи в ответ
+     */
+    @GetMapping("/all/stream")
+    public void streamAllCards(HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding("UTF-8");
+        // Генератор ничего не пишет в ответ до первой карты, поэтому ошибка проверки доступа
+        // еще может быть обработана GlobalExceptionHandler
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream());
+        generator.setRootValueSeparator(new SerializedString("\n"));
+        int[] written = {0};
+        cardService.streamAllCards(card -> {
+            try {
+                generator.writeObject(card);
+                written[0]++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        // Пустая выгрузка - пустое тело, без одиночного перевода строки
+        if (written[0] > 0) {
+            generator.writeRaw('\n');
+        }
+        generator.close();
+    }
+}
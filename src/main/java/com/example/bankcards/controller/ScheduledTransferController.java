@@ -0,0 +1,92 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.dto.ScheduledTransferRequest;
+import com.example.bankcards.dto.ScheduledTransferResponse;
+import com.example.bankcards.service.ScheduledTransferService;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Контроллер отложенных и регулярных переводов между своими картами.
+ * 
+ * @author system
+ */
+@RestController
+@RequestMapping("/api/scheduled-transfers")
+public class ScheduledTransferController {
+
+    private final ScheduledTransferService scheduledTransferService;
+
+    /**
+     * Конструктор с внедрением зависимостей.
+     *
+     * @param scheduledTransferService сервис отложенных переводов
+     */
+    public ScheduledTransferController(ScheduledTransferService scheduledTransferService) {
+        this.scheduledTransferService = scheduledTransferService;
+    }
+
+    /**
+     * Получает отложенные переводы текущего пользователя.
+     *
+     * @return список отложенных переводов
+     */
+    @GetMapping
+    public ResponseEntity<List<ScheduledTransferResponse>> getScheduledTransfers() {
+        return ResponseEntity.ok(scheduledTransferService.getScheduledTransfers());
+    }
+
+    /**
+     * Получает отложенный перевод по ID.
+     *
+     * @param id идентификатор отложенного перевода
+     * @return отложенный перевод
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<ScheduledTransferResponse> getScheduledTransfer(@PathVariable Long id) {
+        return ResponseEntity.ok(scheduledTransferService.getScheduledTransfer(id));
+    }
+
+    /**
+     * Создает отложенный или регулярный перевод.
+     *
+     * @param request карты, сумма, периодичность и момент первого выполнения
+     * @return созданный отложенный перевод
+     */
+    @PostMapping
+    public ResponseEntity<ScheduledTransferResponse> createScheduledTransfer(
+            @Valid @RequestBody ScheduledTransferRequest request) {
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(scheduledTransferService.createScheduledTransfer(request));
+    }
+
+    /**
+     * Изменяет отложенный перевод.
+     *
+     * @param id идентификатор отложенного перевода
+     * @param request новые параметры перевода
+     * @return измененный отложенный перевод
+     */
+    @PutMapping("/{id}")
+    public ResponseEntity<ScheduledTransferResponse> updateScheduledTransfer(
+            @PathVariable Long id,
+            @Valid @RequestBody ScheduledTransferRequest request) {
+        return ResponseEntity.ok(scheduledTransferService.updateScheduledTransfer(id, request));
+    }
+
+    /**
+     * Удаляет отложенный перевод.
+     *
+     * @param id идентификатор отложенного перевода
+     * @return пустой ответ со статусом 204
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteScheduledTransfer(@PathVariable Long id) {
+        scheduledTransferService.deleteScheduledTransfer(id);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchTransferItemResponse {
+    private int index;
+    private boolean success;
+    private TransferResponse transfer;
+    private String error;
+}
@@ -0,0 +1,28 @@
+package com.example.bankcards.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchTransferRequest {
+    @NotEmpty(message = "Transfers are required")
+    private List<@Valid @NotNull TransferRequest> transfers;
+
+    private Mode mode = Mode.ALL_OR_NOTHING;
+
+    /**
+     * Режим выполнения пакета: все переводы или ни одного / каждый перевод независимо.
+     */
+    public enum Mode {
+        ALL_OR_NOTHING,
+        BEST_EFFORT
+    }
+}
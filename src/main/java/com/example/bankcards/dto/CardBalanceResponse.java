@@ -0,0 +1,18 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardBalanceResponse {
+    private Long cardId;
+    private LocalDateTime at;
+    private BigDecimal balance;
+    private LocalDateTime snapshotAt;
+}
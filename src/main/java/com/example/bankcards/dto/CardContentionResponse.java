@@ -0,0 +1,16 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardContentionResponse {
+    private Long cardId;
+    private long locks;
+    private long retries;
+    private long totalLockWaitMillis;
+    private long maxLockWaitMillis;
+}
@@ -0,0 +1,23 @@
+package com.example.bankcards.dto;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardLimitRequest {
+    @DecimalMin(value = "0.01", message = "Daily amount must be greater than 0")
+    private BigDecimal dailyAmount;
+
+    @DecimalMin(value = "0.01", message = "Monthly amount must be greater than 0")
+    private BigDecimal monthlyAmount;
+
+    @Min(value = 1, message = "Hourly count must be at least 1")
+    private Integer hourlyCount;
+}
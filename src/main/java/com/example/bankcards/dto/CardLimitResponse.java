@@ -0,0 +1,20 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardLimitResponse {
+    private Long cardId;
+    private BigDecimal dailyAmount;
+    private BigDecimal monthlyAmount;
+    private Integer hourlyCount;
+    private BigDecimal dailyUsed;
+    private BigDecimal monthlyUsed;
+    private long hourlyUsedCount;
+}
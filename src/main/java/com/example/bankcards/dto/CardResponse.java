@@ -1,6 +1,7 @@
 package com.example.bankcards.dto;
 
 import com.example.bankcards.entity.Card;
+import com.example.bankcards.repository.CardStreamRow;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -28,10 +29,23 @@ public class CardResponse {
         response.setCardholderName(card.getCardholderName());
         response.setExpiryDate(card.getExpiryDate());
         response.setStatus(card.getStatus());
-        response.setBalance(card.getBalance());
+        response.setBalance(card.getBalance().toBigDecimal());
         response.setOwnerId(card.getOwner().getId());
         response.setOwnerUsername(card.getOwner().getUsername());
         return response;
     }
+
+    public static CardResponse fromRow(CardStreamRow row, String maskedNumber) {
+        CardResponse response = new CardResponse();
+        response.setId(row.getId());
+        response.setMaskedCardNumber(maskedNumber);
+        response.setCardholderName(row.getCardholderName());
+        response.setExpiryDate(row.getExpiryDate());
+        response.setStatus(row.getStatus());
+        response.setBalance(row.getBalance().toBigDecimal());
+        response.setOwnerId(row.getOwnerId());
+        response.setOwnerUsername(row.getOwnerUsername());
+        return response;
+    }
 }
 
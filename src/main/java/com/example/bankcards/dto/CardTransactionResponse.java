@@ -0,0 +1,28 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardTransactionResponse {
+    private Long id;
+    private Long fromCardId;
+    private Long toCardId;
+    private BigDecimal amount;
+    private LocalDateTime transactionDate;
+    private Direction direction;
+
+    /**
+     * Направление перевода относительно карты, по которой запрошена история.
+     */
+    public enum Direction {
+        OUTGOING,
+        INCOMING
+    }
+}
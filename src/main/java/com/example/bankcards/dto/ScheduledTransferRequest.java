@@ -0,0 +1,34 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.ScheduledTransfer;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduledTransferRequest {
+    @NotNull(message = "From card ID is required")
+    private Long fromCardId;
+
+    @NotNull(message = "To card ID is required")
+    private Long toCardId;
+
+    @NotNull(message = "Amount is required")
+    @DecimalMin(value = "0.01", message = "Amount must be greater than 0")
+    private BigDecimal amount;
+
+    @NotNull(message = "Recurrence is required")
+    private ScheduledTransfer.Recurrence recurrence;
+
+    @NotNull(message = "First run time is required")
+    private LocalDateTime nextRunAt;
+
+    private Boolean active;
+}
@@ -0,0 +1,31 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.ScheduledTransfer;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduledTransferResponse {
+    private Long id;
+    private Long fromCardId;
+    private Long toCardId;
+    private BigDecimal amount;
+    private ScheduledTransfer.Recurrence recurrence;
+    private LocalDateTime nextRunAt;
+    private boolean active;
+    private LocalDateTime lastRunAt;
+    private ScheduledTransfer.RunStatus lastStatus;
+    private String lastError;
+
+    public static ScheduledTransferResponse fromScheduledTransfer(ScheduledTransfer transfer) {
+        return new ScheduledTransferResponse(transfer.getId(), transfer.getFromCardId(), transfer.getToCardId(),
+                transfer.getAmount(), transfer.getRecurrence(), transfer.getNextRunAt(), transfer.isActive(),
+                transfer.getLastRunAt(), transfer.getLastStatus(), transfer.getLastError());
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.bankcards.entity;
 
+import com.example.bankcards.util.Money;
+import com.example.bankcards.util.MoneyConverter;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
@@ -8,7 +10,6 @@ import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
@@ -22,7 +23,7 @@ import java.time.LocalDateTime;
 @Table(name = "cards")
 @Getter
 @Setter
-@ToString(exclude = {"encryptedCardNumber", "owner"})
+@ToString(exclude = {"encryptedCardNumber", "cardNumberHash", "owner"})
 @EqualsAndHashCode(exclude = {"owner", "createdAt", "updatedAt"})
 @NoArgsConstructor
 @AllArgsConstructor
@@ -41,6 +42,20 @@ public class Card {
     @Column(nullable = false, unique = true, length = 500)
     private String encryptedCardNumber;
 
+    /**
+     * Слепой индекс номера карты (HMAC-SHA256, hex).
+     * Используется для проверки уникальности и поиска по номеру без расшифровки.
+     */
+    @Column(unique = true, length = 64)
+    private String cardNumberHash;
+
+    /**
+     * Маскированный номер карты (**** **** **** 1234).
+     * Вычисляется при создании карты, чтобы чтение не требовало расшифровки номера.
+     */
+    @Column(length = 32)
+    private String maskedCardNumber;
+
     /**
      * Имя держателя карты.
      */
@@ -61,10 +76,11 @@ public class Card {
     private CardStatus status;
 
     /**
-     * Текущий баланс карты.
+     * Текущий баланс карты (в колонке NUMERIC(19,2), в памяти - в копейках).
      */
     @Column(nullable = false, precision = 19, scale = 2)
-    private BigDecimal balance = BigDecimal.ZERO;
+    @Convert(converter = MoneyConverter.class)
+    private Money balance = Money.ZERO;
 
     /**
      * Владелец карты (связь Many-to-One с User).
@@ -0,0 +1,53 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Снимок баланса карты на момент времени.
+ * Учитывает все переводы с датой не позже snapshotAt.
+ * 
+ * @author system
+ */
+@Entity
+@Table(name = "card_balance_snapshots")
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardBalanceSnapshot {
+    /**
+     * Уникальный идентификатор снимка.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * ID карты.
+     */
+    @Column(name = "card_id", nullable = false)
+    private Long cardId;
+
+    /**
+     * Момент, на который зафиксирован баланс.
+     */
+    @Column(nullable = false)
+    private LocalDateTime snapshotAt;
+
+    /**
+     * Баланс карты на момент snapshotAt.
+     */
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal balance;
+}
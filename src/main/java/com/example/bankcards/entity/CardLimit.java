@@ -0,0 +1,57 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Лимиты переводов с карты. Незаданный (null) лимит не ограничивает переводы.
+ * 
+ * @author system
+ */
+@Entity
+@Table(name = "card_limits")
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode(exclude = "updatedAt")
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardLimit {
+    /**
+     * ID карты-источника.
+     */
+    @Id
+    @Column(name = "card_id")
+    private Long cardId;
+
+    /**
+     * Максимальная сумма переводов за последние 24 часа.
+     */
+    @Column(precision = 19, scale = 2)
+    private BigDecimal dailyAmount;
+
+    /**
+     * Максимальная сумма переводов за последние 30 дней.
+     */
+    @Column(precision = 19, scale = 2)
+    private BigDecimal monthlyAmount;
+
+    /**
+     * Максимальное количество переводов за последний час.
+     */
+    private Integer hourlyCount;
+
+    /**
+     * Дата и время последнего изменения лимитов.
+     */
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
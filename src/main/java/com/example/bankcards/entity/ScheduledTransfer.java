@@ -0,0 +1,182 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Отложенный или регулярный перевод между картами пользователя.
+ * 
+ * @author system
+ */
+@Entity
+@Table(name = "scheduled_transfers")
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode(exclude = {"createdAt", "updatedAt"})
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduledTransfer {
+    /**
+     * Уникальный идентификатор перевода.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * ID пользователя, от имени которого выполняется перевод.
+     */
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    /**
+     * ID карты-источника.
+     */
+    @Column(name = "from_card_id", nullable = false)
+    private Long fromCardId;
+
+    /**
+     * ID карты-получателя.
+     */
+    @Column(name = "to_card_id", nullable = false)
+    private Long toCardId;
+
+    /**
+     * Сумма перевода.
+     */
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+
+    /**
+     * Периодичность выполнения.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Recurrence recurrence;
+
+    /**
+     * Момент первого выполнения. Все следующие моменты отсчитываются от него.
+     */
+    @Column(nullable = false)
+    private LocalDateTime startAt;
+
+    /**
+     * Момент следующего выполнения.
+     */
+    @Column(nullable = false)
+    private LocalDateTime nextRunAt;
+
+    /**
+     * Выполняется ли перевод (разовый перевод после выполнения становится неактивным).
+     */
+    @Column(nullable = false)
+    private boolean active = true;
+
+    /**
+     * Момент последнего выполнения.
+     */
+    private LocalDateTime lastRunAt;
+
+    /**
+     * Результат последнего выполнения.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private RunStatus lastStatus;
+
+    /**
+     * Причина отказа при последнем выполнении.
+     */
+    @Column(length = 255)
+    private String lastError;
+
+    /**
+     * Дата и время создания.
+     */
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * Дата и время последнего изменения.
+     */
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    /**
+     * Устанавливает дату создания и обновления перед сохранением.
+     */
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+
+    /**
+     * Обновляет дату изменения перед обновлением.
+     */
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    /**
+     * Периодичность перевода.
+     */
+    public enum Recurrence {
+        /** Однократно. */
+        ONCE(null),
+        /** Ежедневно. */
+        DAILY(ChronoUnit.DAYS),
+        /** Еженедельно. */
+        WEEKLY(ChronoUnit.WEEKS),
+        /** Ежемесячно. */
+        MONTHLY(ChronoUnit.MONTHS);
+
+        private final ChronoUnit period;
+
+        Recurrence(ChronoUnit period) {
+            this.period = period;
+        }
+
+        /**
+         * Первый момент выполнения строго после заданного по расписанию, начатому в start.
+         * Каждый момент отсчитывается от start, а не от предыдущего выполнения: ежемесячный
+         * перевод 31-го числа выполняется в последний день коротких месяцев и снова 31-го в длинных.
+         *
+         * @param start момент первого выполнения
+         * @param after момент, после которого ищется выполнение
+         * @return следующий момент или null для разового перевода
+         */
+        public LocalDateTime nextAfter(LocalDateTime start, LocalDateTime after) {
+            if (period == null) {
+                return null;
+            }
+            long periods = Math.max(0, period.between(start, after));
+            LocalDateTime next = start.plus(periods, period);
+            while (!next.isAfter(after)) {
+                next = start.plus(++periods, period);
+            }
+            return next;
+        }
+    }
+
+    /**
+     * Результат выполнения перевода.
+     */
+    public enum RunStatus {
+        /** Перевод выполнен. */
+        COMPLETED,
+        /** Перевод отклонен. */
+        FAILED
+    }
+}
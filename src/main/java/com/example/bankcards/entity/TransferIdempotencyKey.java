@@ -0,0 +1,70 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Сохраненный результат перевода для заголовка Idempotency-Key.
+ * Повторный запрос с тем же ключом возвращает этот ответ без повторного выполнения перевода.
+ * 
+ * @author system
+ */
+@Entity
+@Table(name = "transfer_idempotency_keys")
+@Getter
+@Setter
+@ToString(exclude = "response")
+@EqualsAndHashCode(exclude = {"response", "createdAt", "expiresAt"})
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferIdempotencyKey {
+    /**
+     * Уникальный идентификатор записи.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * ID пользователя, выполнившего перевод (ключи уникальны в пределах пользователя).
+     */
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    /**
+     * Значение заголовка Idempotency-Key.
+     */
+    @Column(name = "idempotency_key", nullable = false)
+    private String idempotencyKey;
+
+    /**
+     * SHA-256 параметров запроса для обнаружения повторного использования ключа с другими данными.
+     */
+    @Column(nullable = false, length = 64)
+    private String requestHash;
+
+    /**
+     * Ответ перевода в формате JSON.
+     */
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String response;
+
+    /**
+     * Дата и время создания записи.
+     */
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * Момент, после которого запись удаляется.
+     */
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+}
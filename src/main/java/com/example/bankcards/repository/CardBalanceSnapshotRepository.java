@@ -0,0 +1,21 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardBalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface CardBalanceSnapshotRepository extends JpaRepository<CardBalanceSnapshot, Long> {
+    Optional<CardBalanceSnapshot> findFirstByCardIdAndSnapshotAtLessThanEqualOrderBySnapshotAtDesc(
+            Long cardId, LocalDateTime at);
+    
+    Optional<CardBalanceSnapshot> findFirstByCardIdAndSnapshotAtGreaterThanOrderBySnapshotAtAsc(
+            Long cardId, LocalDateTime at);
+    
+    @Query("SELECT MAX(s.snapshotAt) FROM CardBalanceSnapshot s")
+    Optional<LocalDateTime> findLatestSnapshotAt();
+}
@@ -0,0 +1,14 @@
+package com.example.bankcards.repository;
+
+/**
+ * Проекция строки карты, возвращаемой условным обновлением баланса (UPDATE ... RETURNING).
+ * 
+ * @author system
+ */
+public interface CardBalanceUpdate {
+    Long getId();
+
+    String getMaskedCardNumber();
+
+    String getEncryptedCardNumber();
+}
@@ -1,18 +1,24 @@
 package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.Card;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface CardRepository extends JpaRepository<Card, Long> {
+public interface CardRepository extends JpaRepository<Card, Long>, CardRepositoryCustom {
     Page<Card> findByOwnerId(Long ownerId, Pageable pageable);
     
     @Query("SELECT c FROM Card c WHERE c.owner.id = :ownerId " +
@@ -29,7 +35,36 @@ public interface CardRepository extends JpaRepository<Card, Long> {
     
     Optional<Card> findByIdAndOwnerId(Long id, Long ownerId);
     
+    @Query("SELECT c.owner.id FROM Card c WHERE c.id = :id")
+    Optional<Long> findOwnerIdById(@Param("id") Long id);
+    
+    // SELECT ... FOR UPDATE: строка карты блокируется до конца транзакции
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Card c WHERE c.id = :id")
+    Optional<Card> findByIdForUpdate(@Param("id") Long id);
+    
     @Query("SELECT c FROM Card c WHERE c.owner.id = :ownerId AND c.status = 'ACTIVE'")
     List<Card> findActiveCardsByOwnerId(@Param("ownerId") Long ownerId);
+    
+    boolean existsByCardNumberHash(String cardNumberHash);
+    
+    Optional<Card> findByCardNumberHash(String cardNumberHash);
+    
+    List<Card> findByCardNumberHashIsNullAndIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+    
+    List<Card> findByMaskedCardNumberIsNullAndIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+    
+    // Серверный курсор: строки читаются порциями по fetch size, а не загружаются целиком.
+    // Выбираются только колонки, поэтому ни карты, ни владельцы не остаются в контексте персистентности.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT c.id AS id, c.maskedCardNumber AS maskedCardNumber, " +
+           "c.encryptedCardNumber AS encryptedCardNumber, c.cardholderName AS cardholderName, " +
+           "c.expiryDate AS expiryDate, c.status AS status, c.balance AS balance, " +
+           "o.id AS ownerId, o.username AS ownerUsername " +
+           "FROM Card c JOIN c.owner o ORDER BY c.id")
+    Stream<CardStreamRow> streamAllWithOwner();
 }
 
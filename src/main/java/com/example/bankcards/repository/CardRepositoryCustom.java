@@ -0,0 +1,112 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Card;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Дополнительные запросы к картам, которые нельзя выразить через derived queries.
+ */
+public interface CardRepositoryCustom {
+
+    /**
+     * Возвращает карты владельца, следующие за позицией (afterValue, afterId) в заданном порядке.
+     * Сортировка всегда дополняется ID, поэтому порядок однозначный и страницы не пересекаются.
+     *
+     * @param ownerId ID владельца
+     * @param cardholderName фильтр по имени держателя (опционально)
+     * @param status фильтр по статусу (опционально)
+     * @param sortKey ключ сортировки
+     * @param direction направление сортировки
+     * @param afterValue значение ключа у последней выданной карты (null для первой страницы)
+     * @param afterId ID последней выданной карты (null для первой страницы)
+     * @param limit максимальное количество карт
+     * @return карты, упорядоченные по ключу сортировки и ID
+     */
+    List<Card> findByOwnerIdAfter(Long ownerId, String cardholderName, Card.CardStatus status,
+                                  SortKey sortKey, Sort.Direction direction,
+                                  Comparable<?> afterValue, Long afterId, int limit);
+
+    /**
+     * Условное списание: проверки владельца, статуса, срока и баланса выполняются в одном
+     * UPDATE ... RETURNING. Пустой результат означает отказ; причина выясняется отдельно.
+     * Уже загруженные в контекст персистентности карты не обновляются.
+     *
+     * @param id ID карты
+     * @param ownerId ID владельца
+     * @param amount сумма списания с точностью до копеек
+     * @param today текущая дата по часам приложения: карта с более ранним сроком действия считается просроченной
+     * @return обновленная карта или пустой результат при отказе
+     */
+    Optional<CardBalanceUpdate> debitIfAllowed(Long id, Long ownerId, BigDecimal amount, LocalDate today);
+
+    /**
+     * Условное зачисление: проверки владельца, статуса и срока выполняются в одном UPDATE ... RETURNING.
+     *
+     * @param id ID карты
+     * @param ownerId ID владельца
+     * @param amount сумма зачисления с точностью до копеек
+     * @param today текущая дата по часам приложения
+     * @return обновленная карта или пустой результат при отказе
+     */
+    Optional<CardBalanceUpdate> creditIfAllowed(Long id, Long ownerId, BigDecimal amount, LocalDate today);
+
+    /**
+     * Ключи сортировки, поддерживаемые keyset пагинацией.
+     */
+    enum SortKey {
+        ID("id", Long::valueOf, Card::getId),
+        CARDHOLDER_NAME("cardholderName", value -> value, Card::getCardholderName),
+        EXPIRY_DATE("expiryDate", LocalDate::parse, Card::getExpiryDate),
+        CREATED_AT("createdAt", LocalDateTime::parse, Card::getCreatedAt);
+
+        private final String attribute;
+        private final Function<String, Comparable<?>> parser;
+        private final Function<Card, Object> extractor;
+
+        SortKey(String attribute, Function<String, Comparable<?>> parser, Function<Card, Object> extractor) {
+            this.attribute = attribute;
+            this.parser = parser;
+            this.extractor = extractor;
+        }
+
+        public String getAttribute() {
+            return attribute;
+        }
+
+        /**
+         * Восстанавливает значение ключа из строки, сохраненной в курсоре.
+         */
+        public Comparable<?> parse(String value) {
+            return parser.apply(value);
+        }
+
+        /**
+         * Извлекает значение ключа из карты для построения курсора.
+         */
+        public String format(Card card) {
+            return String.valueOf(extractor.apply(card));
+        }
+
+        /**
+         * Находит ключ по имени атрибута сущности.
+         *
+         * @param attribute имя атрибута (например, "expiryDate")
+         * @return ключ сортировки или null, если атрибут не поддерживается
+         */
+        public static SortKey fromAttribute(String attribute) {
+            for (SortKey key : values()) {
+                if (key.attribute.equals(attribute)) {
+                    return key;
+                }
+            }
+            return null;
+        }
+    }
+}
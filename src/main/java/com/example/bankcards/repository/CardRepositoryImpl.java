@@ -0,0 +1,135 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Card;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.query.NativeQuery;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Реализация {@link CardRepositoryCustom} на Criteria API и нативных UPDATE ... RETURNING.
+ *
+ * <p>Условные обновления баланса не объявлены через {@code @Query}: Spring Data разрешает
+ * {@code @Modifying} только для запросов, возвращающих число строк, а без него UPDATE выполняется
+ * как обычная выборка без синхронизации с контекстом персистентности. Здесь запрос явно помечен
+ * как изменяющий таблицу карт, поэтому несохраненные изменения карт сбрасываются до него.
+ */
+public class CardRepositoryImpl implements CardRepositoryCustom {
+
+    private static final String DEBIT_SQL =
+            "UPDATE cards SET balance = balance - :amount, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE id = :id AND owner_id = :ownerId AND status = 'ACTIVE' " +
+            "AND expiry_date >= :today AND balance >= :amount " +
+            "RETURNING id, masked_card_number, encrypted_card_number";
+
+    private static final String CREDIT_SQL =
+            "UPDATE cards SET balance = balance + :amount, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE id = :id AND owner_id = :ownerId AND status = 'ACTIVE' " +
+            "AND expiry_date >= :today " +
+            "RETURNING id, masked_card_number, encrypted_card_number";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public List<Card> findByOwnerIdAfter(Long ownerId, String cardholderName, Card.CardStatus status,
+                                         SortKey sortKey, Sort.Direction direction,
+                                         Comparable<?> afterValue, Long afterId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Card> query = cb.createQuery(Card.class);
+        Root<Card> card = query.from(Card.class);
+        card.fetch("owner");
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.equal(card.get("owner").get("id"), ownerId));
+        if (cardholderName != null && !cardholderName.isEmpty()) {
+            predicates.add(cb.like(cb.lower(card.get("cardholderName")),
+                    "%" + cardholderName.toLowerCase() + "%"));
+        }
+        if (status != null) {
+            predicates.add(cb.equal(card.get("status"), status));
+        }
+
+        Expression<Comparable> key = card.get(sortKey.getAttribute());
+        Expression<Long> id = card.get("id");
+        boolean ascending = direction.isAscending();
+        if (afterId != null) {
+            // (key, id) > (afterValue, afterId) для ASC и < для DESC
+            Predicate idAfter = ascending ? cb.greaterThan(id, afterId) : cb.lessThan(id, afterId);
+            if (sortKey == SortKey.ID) {
+                predicates.add(idAfter);
+            } else {
+                Comparable value = (Comparable) afterValue;
+                Predicate keyAfter = ascending ? cb.greaterThan(key, value) : cb.lessThan(key, value);
+                predicates.add(cb.or(keyAfter, cb.and(cb.equal(key, value), idAfter)));
+            }
+        }
+
+        query.select(card).where(predicates.toArray(new Predicate[0]));
+        if (sortKey == SortKey.ID) {
+            query.orderBy(ascending ? cb.asc(id) : cb.desc(id));
+        } else {
+            query.orderBy(ascending ? cb.asc(key) : cb.desc(key), ascending ? cb.asc(id) : cb.desc(id));
+        }
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public Optional<CardBalanceUpdate> debitIfAllowed(Long id, Long ownerId, BigDecimal amount, LocalDate today) {
+        return updateReturning(DEBIT_SQL, id, ownerId, amount, today);
+    }
+
+    @Override
+    public Optional<CardBalanceUpdate> creditIfAllowed(Long id, Long ownerId, BigDecimal amount, LocalDate today) {
+        return updateReturning(CREDIT_SQL, id, ownerId, amount, today);
+    }
+
+    private Optional<CardBalanceUpdate> updateReturning(String sql, Long id, Long ownerId,
+                                                        BigDecimal amount, LocalDate today) {
+        List<Tuple> rows = entityManager.createNativeQuery(sql, Tuple.class)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(Card.class)
+                .setParameter("id", id)
+                .setParameter("ownerId", ownerId)
+                .setParameter("amount", amount)
+                .setParameter("today", today)
+                .getResultList();
+        return rows.stream().findFirst().map(row -> new BalanceUpdateRow(
+                ((Number) row.get(0)).longValue(), (String) row.get(1), (String) row.get(2)));
+    }
+
+    private record BalanceUpdateRow(Long id, String maskedCardNumber, String encryptedCardNumber)
+            implements CardBalanceUpdate {
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public String getMaskedCardNumber() {
+            return maskedCardNumber;
+        }
+
+        @Override
+        public String getEncryptedCardNumber() {
+            return encryptedCardNumber;
+        }
+    }
+}
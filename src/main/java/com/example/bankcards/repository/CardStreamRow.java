@@ -0,0 +1,33 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.util.Money;
+
+import java.time.LocalDate;
+
+/**
+ * Проекция карты с именем владельца для потоковой выгрузки.
+ * Содержит только скалярные значения, поэтому строки не попадают в контекст персистентности
+ * и не подгружают связи владельца.
+ * 
+ * @author system
+ */
+public interface CardStreamRow {
+    Long getId();
+
+    String getMaskedCardNumber();
+
+    String getEncryptedCardNumber();
+
+    String getCardholderName();
+
+    LocalDate getExpiryDate();
+
+    Card.CardStatus getStatus();
+
+    Money getBalance();
+
+    Long getOwnerId();
+
+    String getOwnerUsername();
+}
@@ -2,9 +2,29 @@ package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.CardTransaction;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
 @Repository
-public interface CardTransactionRepository extends JpaRepository<CardTransaction, Long> {
+public interface CardTransactionRepository extends JpaRepository<CardTransaction, Long>, CardTransactionRepositoryCustom {
+    
+    // Суммы за период (from, to] читаются из покрывающих индексов (карта, дата, id) INCLUDE (amount)
+    // Нативные запросы: сумма возвращается как NUMERIC, без конвертера Money у поля amount
+    @Query(value = "SELECT COALESCE(SUM(amount), 0) FROM card_transactions " +
+                   "WHERE to_card_id = :cardId AND transaction_date > :from AND transaction_date <= :to",
+           nativeQuery = true)
+    BigDecimal sumIncoming(@Param("cardId") Long cardId,
+                           @Param("from") LocalDateTime from,
+                           @Param("to") LocalDateTime to);
+    
+    @Query(value = "SELECT COALESCE(SUM(amount), 0) FROM card_transactions " +
+                   "WHERE from_card_id = :cardId AND transaction_date > :from AND transaction_date <= :to",
+           nativeQuery = true)
+    BigDecimal sumOutgoing(@Param("cardId") Long cardId,
+                           @Param("from") LocalDateTime from,
+                           @Param("to") LocalDateTime to);
 }
-
@@ -0,0 +1,30 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.dto.CardTransactionResponse;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Чтение истории переводов карты с keyset пагинацией.
+ */
+public interface CardTransactionRepositoryCustom {
+
+    /**
+     * Возвращает переводы одной стороны карты (списания или зачисления), от новых к старым,
+     * строго после позиции (afterDate, afterId). Читаются только колонки card_transactions,
+     * сущности карт не загружаются.
+     *
+     * @param cardId ID карты
+     * @param direction OUTGOING - по from_card_id, INCOMING - по to_card_id
+     * @param from начало периода включительно (опционально)
+     * @param to конец периода не включительно (опционально)
+     * @param afterDate дата последней строки предыдущей страницы (опционально)
+     * @param afterId ID последней строки предыдущей страницы (опционально)
+     * @param limit максимальное число строк
+     * @return переводы в порядке (transactionDate, id) по убыванию
+     */
+    List<CardTransactionResponse> findByCardAfter(Long cardId, CardTransactionResponse.Direction direction,
+                                                  LocalDateTime from, LocalDateTime to,
+                                                  LocalDateTime afterDate, Long afterId, int limit);
+}
@@ -0,0 +1,77 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.dto.CardTransactionResponse;
+import com.example.bankcards.entity.CardTransaction;
+import com.example.bankcards.util.Money;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Реализация {@link CardTransactionRepositoryCustom} на Criteria API.
+ */
+public class CardTransactionRepositoryImpl implements CardTransactionRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<CardTransactionResponse> findByCardAfter(Long cardId, CardTransactionResponse.Direction direction,
+                                                         LocalDateTime from, LocalDateTime to,
+                                                         LocalDateTime afterDate, Long afterId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<CardTransaction> transaction = query.from(CardTransaction.class);
+
+        // Обращение к id связанной карты использует колонку внешнего ключа без JOIN
+        Path<Long> fromCardId = transaction.get("fromCard").get("id");
+        Path<Long> toCardId = transaction.get("toCard").get("id");
+        Path<LocalDateTime> date = transaction.get("transactionDate");
+        Path<Long> id = transaction.get("id");
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.equal(direction == CardTransactionResponse.Direction.OUTGOING ? fromCardId : toCardId, cardId));
+        if (from != null) {
+            predicates.add(cb.greaterThanOrEqualTo(date, from));
+        }
+        if (to != null) {
+            predicates.add(cb.lessThan(date, to));
+        }
+        if (afterDate != null && afterId != null) {
+            // (transactionDate, id) < (afterDate, afterId); отдельное условие по дате
+            // позволяет PostgreSQL отсечь секции новее курсора
+            predicates.add(cb.lessThanOrEqualTo(date, afterDate));
+            predicates.add(cb.or(cb.lessThan(date, afterDate),
+                    cb.and(cb.equal(date, afterDate), cb.lessThan(id, afterId))));
+        }
+
+        query.multiselect(id, fromCardId, toCardId, transaction.get("amount"), date)
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(cb.desc(date), cb.desc(id));
+
+        List<Tuple> rows = entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+
+        List<CardTransactionResponse> result = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            result.add(new CardTransactionResponse(
+                    row.get(0, Long.class),
+                    row.get(1, Long.class),
+                    row.get(2, Long.class),
+                    row.get(3, Money.class).toBigDecimal(),
+                    row.get(4, LocalDateTime.class),
+                    direction));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.Role;
+
+import java.util.Collection;
+
+/**
+ * Текущий пользователь запроса.
+ * Хранит ID, имя и роли в виде битовой маски, поэтому проверки доступа в сервисах
+ * не требуют ни запросов к БД, ни обхода коллекции ролей.
+ * 
+ * @author system
+ */
+public final class CurrentUser {
+
+    private final Long id;
+    private final String username;
+    private final int roleMask;
+
+    /**
+     * Создает текущего пользователя.
+     *
+     * @param id идентификатор пользователя
+     * @param username имя пользователя
+     * @param roleMask битовая маска ролей (см. {@link #maskOf(Role.RoleName)})
+     */
+    public CurrentUser(Long id, String username, int roleMask) {
+        this.id = id;
+        this.username = username;
+        this.roleMask = roleMask;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * Проверяет наличие роли у пользователя.
+     *
+     * @param role роль
+     * @return true, если роль есть
+     */
+    public boolean hasRole(Role.RoleName role) {
+        return (roleMask & maskOf(role)) != 0;
+    }
+
+    /**
+     * Проверяет, является ли пользователь администратором.
+     *
+     * @return true для пользователей с ролью ROLE_ADMIN
+     */
+    public boolean isAdmin() {
+        return hasRole(Role.RoleName.ROLE_ADMIN);
+    }
+
+    /**
+     * Возвращает бит роли в маске.
+     *
+     * @param role роль
+     * @return маска с единственным битом роли
+     */
+    public static int maskOf(Role.RoleName role) {
+        return 1 << role.ordinal();
+    }
+
+    /**
+     * Строит маску ролей из их имен (например, authorities Spring Security).
+     * Неизвестные имена игнорируются.
+     *
+     * @param roleNames имена ролей
+     * @return битовая маска ролей
+     */
+    public static int maskOf(Collection<String> roleNames) {
+        int mask = 0;
+        for (Role.RoleName role : Role.RoleName.values()) {
+            if (roleNames.contains(role.name())) {
+                mask |= maskOf(role);
+            }
+        }
+        return mask;
+    }
+}
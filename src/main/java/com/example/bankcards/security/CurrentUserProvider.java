@@ -0,0 +1,85 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.ResourceNotFoundException;
+import com.example.bankcards.exception.UnauthorizedException;
+import com.example.bankcards.repository.UserRepository;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Определяет текущего пользователя один раз на HTTP запрос.
+ * 
+ * <p>Если principal восстановлен из JWT ({@link UserPrincipal} с ID), пользователь строится без SQL.
+ * Иначе выполняется один запрос к БД, а результат сохраняется в атрибутах запроса,
+ * чтобы последующие вызовы в том же запросе его переиспользовали.
+ * 
+ * @author system
+ */
+@Component
+public class CurrentUserProvider {
+
+    private static final String REQUEST_ATTRIBUTE = CurrentUserProvider.class.getName() + ".CURRENT_USER";
+
+    private final UserRepository userRepository;
+
+    /**
+     * Конструктор с внедрением зависимостей.
+     *
+     * @param userRepository репозиторий пользователей
+     */
+    public CurrentUserProvider(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Возвращает текущего пользователя.
+     *
+     * @return текущий пользователь
+     * @throws UnauthorizedException если запрос не аутентифицирован
+     * @throws ResourceNotFoundException если пользователь не найден в БД
+     */
+    public CurrentUser get() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            Object cached = attributes.getAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+            if (cached instanceof CurrentUser currentUser) {
+                return currentUser;
+            }
+        }
+
+        CurrentUser currentUser = resolve();
+        if (attributes != null) {
+            attributes.setAttribute(REQUEST_ATTRIBUTE, currentUser, RequestAttributes.SCOPE_REQUEST);
+        }
+        return currentUser;
+    }
+
+    private CurrentUser resolve() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null) {
+            throw new UnauthorizedException("Authentication required");
+        }
+
+        if (authentication.getPrincipal() instanceof UserPrincipal principal && principal.getId() != null) {
+            List<String> authorities = principal.getAuthorities().stream()
+                    .map(GrantedAuthority::getAuthority)
+                    .toList();
+            return new CurrentUser(principal.getId(), principal.getUsername(), CurrentUser.maskOf(authorities));
+        }
+
+        User user = userRepository.findByUsername(authentication.getName())
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        List<String> roles = user.getRoles().stream()
+                .map(role -> role.getName().name())
+                .collect(Collectors.toList());
+        return new CurrentUser(user.getId(), user.getUsername(), CurrentUser.maskOf(roles));
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.bankcards.security;
+
+import io.jsonwebtoken.Claims;
+import com.example.bankcards.util.LruCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Восстанавливает principal пользователя по claims проверенного JWT токена.
+ * 
+ * <p>В stateless-режиме principal строится прямо из claims (ID, username, роли), без SQL.
+ * Пользователь перепроверяется в БД не чаще одного раза за {@code jwt.stateless.recheck-interval}:
+ * если пользователь удален или его роли изменились, токены с устаревшими ролями перестают приниматься.
+ * Токены без claim с ID пользователя (выданные до появления stateless-режима) всегда проверяются по БД.
+ * Кэш проверенных пользователей ограничен: при переполнении вытесняется пользователь,
+ * к которому дольше всех не обращались, а не весь кэш сразу.
+ * 
+ * @author system
+ */
+@Component
+public class JwtPrincipalResolver {
+
+    private static final int MAX_VERIFIED_USERS = 10_000;
+
+    private final UserDetailsService userDetailsService;
+    private final boolean statelessEnabled;
+    private final long recheckIntervalMillis;
+    private final LruCache<String, VerifiedUser> verifiedUsers = new LruCache<>(MAX_VERIFIED_USERS);
+
+    /**
+     * Конструктор с внедрением зависимостей.
+     *
+     * @param userDetailsService сервис для загрузки пользователей
+     * @param statelessEnabled строить ли principal из claims без обращения к БД
+     * @param recheckInterval как часто перепроверять пользователя в БД (0 - при каждом запросе)
+     */
+    public JwtPrincipalResolver(UserDetailsService userDetailsService,
+                                @Value("${jwt.stateless.enabled:true}") boolean statelessEnabled,
+                                @Value("${jwt.stateless.recheck-interval:5m}") Duration recheckInterval) {
+        this.userDetailsService = userDetailsService;
+        this.statelessEnabled = statelessEnabled;
+        this.recheckIntervalMillis = recheckInterval.toMillis();
+    }
+
+    /**
+     * Возвращает principal для claims проверенного токена.
+     *
+     * @param claims claims токена (подпись и срок действия уже проверены)
+     * @return principal пользователя или null, если токен больше не соответствует пользователю в БД
+     * @throws org.springframework.security.core.userdetails.UsernameNotFoundException если пользователь удален
+     */
+    public UserDetails resolve(Claims claims) {
+        String username = claims.getSubject();
+        Long userId = claims.get(JwtTokenProvider.USER_ID_CLAIM, Long.class);
+        String roles = claims.get(JwtTokenProvider.ROLES_CLAIM, String.class);
+
+        if (!statelessEnabled || userId == null) {
+            return userDetailsService.loadUserByUsername(username);
+        }
+
+        long now = System.currentTimeMillis();
+        VerifiedUser verified = verifiedUsers.get(username);
+        if (verified == null || now - verified.checkedAt >= recheckIntervalMillis) {
+            verified = recheck(username, now);
+        }
+
+        // Токен выдан другому пользователю с тем же именем или с ролями, которые уже отозваны
+        if (!userId.equals(verified.id) || !rolesOf(roles).equals(verified.roles)) {
+            return null;
+        }
+        return new UserPrincipal(userId, username, null, verified.authorities);
+    }
+
+    private VerifiedUser recheck(String username, long now) {
+        try {
+            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            Set<GrantedAuthority> authorities = Set.copyOf(userDetails.getAuthorities());
+            Set<String> roles = authorities.stream()
+                    .map(GrantedAuthority::getAuthority)
+                    .collect(Collectors.toUnmodifiableSet());
+            Long id = userDetails instanceof UserPrincipal principal ? principal.getId() : null;
+
+            VerifiedUser verified = new VerifiedUser(id, roles, authorities, now);
+            verifiedUsers.put(username, verified);
+            return verified;
+        } catch (RuntimeException e) {
+            verifiedUsers.remove(username);
+            throw e;
+        }
+    }
+
+    private static Set<String> rolesOf(String roles) {
+        if (!StringUtils.hasText(roles)) {
+            return Set.of();
+        }
+        return Arrays.stream(roles.split(","))
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    private record VerifiedUser(Long id, Set<String> roles, Set<GrantedAuthority> authorities, long checkedAt) {
+    }
+}
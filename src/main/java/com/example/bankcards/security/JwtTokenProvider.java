@@ -1,8 +1,11 @@
 package com.example.bankcards.security;
 
+import com.example.bankcards.util.LruCache;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Component;
@@ -16,25 +19,47 @@ import java.util.stream.Collectors;
  * Провайдер JWT токенов.
  * Отвечает за генерацию, валидацию и извлечение данных из JWT токенов.
  * 
+ * <p>Ключ подписи и парсер создаются один раз при старте. Недавно проверенные токены
+ * хранятся в ограниченном кэше до истечения их срока действия, поэтому повторные запросы
+ * того же клиента не пересчитывают HMAC и не разбирают JSON заново. При переполнении кэша
+ * за O(1) вытесняется токен, к которому дольше всех не обращались, а истекшие токены,
+ * к которым больше не обращаются, периодически удаляются.
+ * 
  * @author system
  */
 @Component
 public class JwtTokenProvider {
     
+    /** Claim с ID пользователя. */
+    public static final String USER_ID_CLAIM = "uid";
+    
+    /** Claim с ролями пользователя через запятую. */
+    public static final String ROLES_CLAIM = "roles";
+    
     @Value("${jwt.secret}")
     private String jwtSecret;
     
     @Value("${jwt.expiration}")
     private long jwtExpiration;
+    
+    @Value("${jwt.verified-cache.max-size:10000}")
+    private int verifiedCacheMaxSize;
+
+    private SecretKey signingKey;
+    private JwtParser parser;
+    private LruCache<String, VerifiedToken> verifiedTokens;
 
     /**
-     * Создает секретный ключ для подписи JWT токенов.
-     *
-     * @return секретный ключ
+     * Создает ключ подписи и парсер JWT токенов.
      */
-    private SecretKey getSigningKey() {
+    @PostConstruct
+    void init() {
         byte[] keyBytes = jwtSecret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+        this.signingKey = Keys.hmacShaKeyFor(keyBytes);
+        this.parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+        this.verifiedTokens = new LruCache<>(verifiedCacheMaxSize);
     }
 
     /**
@@ -49,30 +74,76 @@ public class JwtTokenProvider {
                 .map(GrantedAuthority::getAuthority)
                 .collect(Collectors.joining(","));
         
+        Long userId = authentication.getPrincipal() instanceof UserPrincipal principal ? principal.getId() : null;
+        
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpiration);
 
         return Jwts.builder()
                 .subject(username)
-                .claim("roles", roles)
+                .claim(ROLES_CLAIM, roles)
+                .claim(USER_ID_CLAIM, userId)
                 .issuedAt(now)
                 .expiration(expiryDate)
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
+    /**
+     * Проверяет подпись и срок действия токена и возвращает его claims за один разбор.
+     *
+     * @param token JWT токен
+     * @return claims токена или null, если токен невалиден или истек
+     */
+    public Claims verifyToken(String token) {
+        long now = System.currentTimeMillis();
+        VerifiedToken cached = verifiedTokens.get(token);
+        if (cached != null) {
+            if (cached.expiresAt > now) {
+                return cached.claims;
+            }
+            verifiedTokens.remove(token, cached);
+            return null;
+        }
+
+        Claims claims;
+        try {
+            claims = parser.parseSignedClaims(token).getPayload();
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+
+        Date expiration = claims.getExpiration();
+        if (expiration != null) {
+            verifiedTokens.put(token, new VerifiedToken(claims, expiration.getTime()));
+        }
+        return claims;
+    }
+
+    /**
+     * Удаляет из кэша истекшие токены.
+     */
+    @Scheduled(fixedDelayString = "${jwt.verified-cache.sweep-interval:PT1M}")
+    public void evictExpired() {
+        evictExpired(System.currentTimeMillis());
+    }
+
+    int evictExpired(long nowMillis) {
+        return verifiedTokens.removeIf(token -> token.expiresAt <= nowMillis);
+    }
+
     /**
      * Извлекает username из JWT токена.
      *
      * @param token JWT токен
      * @return username пользователя
+     * @throws JwtException если токен невалиден
      */
     public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        Claims claims = verifyToken(token);
+        if (claims == null) {
+            throw new JwtException("Invalid JWT token");
+        }
         return claims.getSubject();
     }
 
@@ -83,15 +154,9 @@ public class JwtTokenProvider {
      * @return true, если токен валиден, иначе false
      */
     public boolean validateToken(String token) {
-        try {
-            Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token);
-            return true;
-        } catch (JwtException | IllegalArgumentException e) {
-            return false;
-        }
+        return verifyToken(token) != null;
     }
-}
 
+    private record VerifiedToken(Claims claims, long expiresAt) {
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Проверка пароля при входе в отдельном ограниченном пуле потоков.
+ *
+ * <p>Проверка BCrypt занимает процессор на десятки миллисекунд, и при массовом входе
+ * (например, после выпуска с новым ключом JWT) могла бы занять все потоки Tomcat.
+ * Пул ограничен числом ядер ({@code auth.login.threads}, 0 - по числу процессоров),
+ * очередь - {@code auth.login.queue-capacity}. Если очередь заполнена или проверка
+ * не завершилась за {@code auth.login.timeout}, вход отклоняется с 503, и поток запроса
+ * освобождается, не дожидаясь проверки.
+ *
+ * <p>Метрики: {@code bankcards.auth.login} (время входа по исходу),
+ * {@code bankcards.auth.login.queue_wait} (ожидание в очереди),
+ * {@code bankcards.auth.login.queue} (размер очереди), {@code bankcards.auth.login.rejected}.
+ *
+ * @author system
+ */
+@Component
+public class LoginAuthenticator {
+
+    private final AuthenticationManager authenticationManager;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+    private final Timer successTimer;
+    private final Timer failureTimer;
+    private final Timer queueWaitTimer;
+    private final Counter rejectedCounter;
+
+    /**
+     * Конструктор с внедрением зависимостей и регистрацией метрик.
+     *
+     * @param authenticationManager менеджер аутентификации Spring Security
+     * @param meterRegistry реестр метрик
+     * @param threads количество потоков проверки (0 - по числу процессоров)
+     * @param queueCapacity максимальное количество входов, ожидающих проверки
+     * @param timeout максимальное время входа, включая ожидание в очереди
+     */
+    public LoginAuthenticator(AuthenticationManager authenticationManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${auth.login.threads:0}") int threads,
+                              @Value("${auth.login.queue-capacity:64}") int queueCapacity,
+                              @Value("${auth.login.timeout:5s}") Duration timeout) {
+        this.authenticationManager = authenticationManager;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "login-auth-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.timeoutMillis = timeout.toMillis();
+
+        this.successTimer = Timer.builder("bankcards.auth.login")
+                .description("Login duration including password verification")
+                .tag("outcome", "success")
+                .register(meterRegistry);
+        this.failureTimer = Timer.builder("bankcards.auth.login")
+                .description("Login duration including password verification")
+                .tag("outcome", "failure")
+                .register(meterRegistry);
+        this.queueWaitTimer = Timer.builder("bankcards.auth.login.queue_wait")
+                .description("Time a login waits for a password verification thread")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("bankcards.auth.login.rejected")
+                .description("Logins rejected because the verification pool was saturated or timed out")
+                .register(meterRegistry);
+        Gauge.builder("bankcards.auth.login.queue", executor, e -> e.getQueue().size())
+                .description("Logins waiting for password verification")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Аутентифицирует пользователя в пуле проверки паролей.
+     *
+     * @param authentication имя пользователя и пароль
+     * @return аутентифицированный пользователь
+     * @throws AuthenticationException если имя пользователя или пароль неверны
+     * @throws ServiceUnavailableException если пул перегружен или проверка не уложилась в таймаут
+     */
+    public Authentication authenticate(Authentication authentication) {
+        long started = System.nanoTime();
+        Future<Authentication> result;
+        try {
+            result = executor.submit(() -> {
+                queueWaitTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                return authenticationManager.authenticate(authentication);
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw new ServiceUnavailableException("Too many login attempts in progress, try again later");
+        }
+
+        try {
+            Authentication authenticated = result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            successTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            return authenticated;
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            rejectedCounter.increment();
+            throw new ServiceUnavailableException("Login is taking too long, try again later");
+        } catch (ExecutionException e) {
+            failureTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Login failed", e.getCause());
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Login was interrupted, try again later");
+        }
+    }
+
+    /**
+     * Останавливает пул проверки паролей.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.exception.ErrorResponse;
+import com.example.bankcards.util.LruCache;
+import com.example.bankcards.util.TokenBucket;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ограничение частоты запросов пользователя, выполняемое после {@link JwtAuthenticationFilter}.
+ *
+ * <p>Для каждой пары (пользователь, класс эндпоинта) ведется своя корзина {@link TokenBucket}:
+ * <ul>
+ *   <li>transfer - выполнение переводов ({@code POST /api/cards/transfer},
+ *       {@code POST /api/cards/transfers/batch});</li>
+ *   <li>general - остальные запросы к {@code /api/**}.</li>
+ * </ul>
+ * Лимиты задаются в запросах в минуту с допустимым всплеском; для администраторов они
+ * умножаются на {@code rate-limit.admin-multiplier}. Запросы без аутентификации не ограничиваются:
+ * они будут отклонены дальше по цепочке, а вход защищен собственным пулом.
+ *
+ * <p>При превышении возвращается 429 с заголовком {@code Retry-After}. Таблица корзин разбита
+ * на {@value #STRIPES} LRU-сегментов общей емкостью {@code max-tracked-users}: корзина нового
+ * пользователя вытесняет давно не использованную корзину своего сегмента за O(1), поэтому
+ * поток новых пользователей не вызывает обхода таблицы и не обходит ограничение.
+ * Вытесняются корзины самых давно неактивных пользователей, которые, как правило, уже полны.
+ *
+ * <p>Метрики: {@code bankcards.ratelimit.rejected{endpoint}}, {@code bankcards.ratelimit.tracked}.
+ *
+ * @author system
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final int STRIPES = 16;
+
+    enum EndpointClass {
+        TRANSFER("transfer"),
+        GENERAL("general");
+
+        private final String tag;
+
+        EndpointClass(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private record BucketKey(Long userId, EndpointClass endpoint) {
+    }
+
+    private record Limit(long capacity, long intervalNanos) {
+        static Limit of(int requestsPerMinute, int burst, int multiplier) {
+            long perMinute = Math.max(1L, (long) requestsPerMinute * multiplier);
+            return new Limit(Math.max(1L, (long) burst * multiplier), TimeUnit.MINUTES.toNanos(1) / perMinute);
+        }
+    }
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final Map<EndpointClass, Limit> userLimits = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, Limit> adminLimits = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, Counter> rejections = new EnumMap<>(EndpointClass.class);
+    private final List<LruCache<BucketKey, TokenBucket>> buckets = new ArrayList<>(STRIPES);
+
+    /**
+     * Конструктор с внедрением зависимостей и регистрацией метрик.
+     *
+     * @param objectMapper JSON-сериализатор ответа об ошибке
+     * @param meterRegistry реестр метрик
+     * @param enabled включено ли ограничение
+     * @param transferPerMinute переводов в минуту на пользователя
+     * @param transferBurst допустимый всплеск переводов
+     * @param generalPerMinute остальных запросов в минуту на пользователя
+     * @param generalBurst допустимый всплеск остальных запросов
+     * @param adminMultiplier во сколько раз лимиты администраторов выше
+     * @param maxTrackedUsers максимальное число корзин в таблице
+     */
+    public RateLimitFilter(ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry,
+                           @Value("${rate-limit.enabled:true}") boolean enabled,
+                           @Value("${rate-limit.transfer.requests-per-minute:60}") int transferPerMinute,
+                           @Value("${rate-limit.transfer.burst:10}") int transferBurst,
+                           @Value("${rate-limit.general.requests-per-minute:600}") int generalPerMinute,
+                           @Value("${rate-limit.general.burst:100}") int generalBurst,
+                           @Value("${rate-limit.admin-multiplier:10}") int adminMultiplier,
+                           @Value("${rate-limit.max-tracked-users:100000}") int maxTrackedUsers) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        int stripeSize = Math.max(1, (maxTrackedUsers + STRIPES - 1) / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            buckets.add(new LruCache<>(stripeSize));
+        }
+        userLimits.put(EndpointClass.TRANSFER, Limit.of(transferPerMinute, transferBurst, 1));
+        userLimits.put(EndpointClass.GENERAL, Limit.of(generalPerMinute, generalBurst, 1));
+        adminLimits.put(EndpointClass.TRANSFER, Limit.of(transferPerMinute, transferBurst, adminMultiplier));
+        adminLimits.put(EndpointClass.GENERAL, Limit.of(generalPerMinute, generalBurst, adminMultiplier));
+
+        for (EndpointClass endpoint : EndpointClass.values()) {
+            rejections.put(endpoint, Counter.builder("bankcards.ratelimit.rejected")
+                    .description("Requests rejected by per-user rate limits")
+                    .tag("endpoint", endpoint.tag)
+                    .register(meterRegistry));
+        }
+        Gauge.builder("bankcards.ratelimit.tracked", this, RateLimitFilter::trackedBuckets)
+                .description("Rate limit buckets currently tracked")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !request.getRequestURI().startsWith("/api/") || request.getRequestURI().startsWith("/api/auth/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof UserPrincipal principal)
+                || principal.getId() == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        EndpointClass endpoint = classify(request);
+        long now = System.nanoTime();
+        TokenBucket bucket = bucketOf(new BucketKey(principal.getId(), endpoint), isAdmin(principal), now);
+
+        long waitNanos = bucket.tryAcquire(now);
+        if (waitNanos > 0) {
+            rejections.get(endpoint).increment();
+            reject(request, response, waitNanos);
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    int trackedBuckets() {
+        int size = 0;
+        for (LruCache<BucketKey, TokenBucket> stripe : buckets) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    static EndpointClass classify(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        if ("POST".equals(request.getMethod())
+                && (path.equals("/api/cards/transfer") || path.equals("/api/cards/transfers/batch"))) {
+            return EndpointClass.TRANSFER;
+        }
+        return EndpointClass.GENERAL;
+    }
+
+    private TokenBucket bucketOf(BucketKey key, boolean admin, long nowNanos) {
+        Limit limit = (admin ? adminLimits : userLimits).get(key.endpoint());
+        return buckets.get(Math.floorMod(key.hashCode(), STRIPES))
+                .computeIfAbsent(key, k -> new TokenBucket(limit.capacity(), limit.intervalNanos(), nowNanos));
+    }
+
+    private static boolean isAdmin(UserPrincipal principal) {
+        return principal.getAuthorities().stream()
+                .anyMatch(authority -> "ROLE_ADMIN".equals(authority.getAuthority()));
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, long waitNanos) throws IOException {
+        // Округление вверх: повтор раньше указанного времени снова будет отклонен
+        long nanosPerSecond = TimeUnit.SECONDS.toNanos(1);
+        long retryAfterSeconds = Math.max(1, (waitNanos + nanosPerSecond - 1) / nanosPerSecond);
+
+        ErrorResponse error = new ErrorResponse();
+        error.setTimestamp(LocalDateTime.now());
+        error.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        error.setError("Too Many Requests");
+        error.setMessage("Rate limit exceeded, try again later");
+        error.setPath(request.getRequestURI());
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), error);
+    }
+}
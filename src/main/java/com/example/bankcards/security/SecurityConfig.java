@@ -36,17 +36,21 @@ public class SecurityConfig {
 
     private final UserDetailsService userDetailsService;
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final RateLimitFilter rateLimitFilter;
 
     /**
      * Конструктор с внедрением зависимостей.
      *
      * @param userDetailsService сервис для загрузки пользователей
      * @param jwtAuthenticationFilter фильтр для проверки JWT токенов
+     * @param rateLimitFilter ограничение частоты запросов пользователя
      */
     public SecurityConfig(UserDetailsService userDetailsService,
-                         JwtAuthenticationFilter jwtAuthenticationFilter) {
+                         JwtAuthenticationFilter jwtAuthenticationFilter,
+                         RateLimitFilter rateLimitFilter) {
         this.userDetailsService = userDetailsService;
         this.jwtAuthenticationFilter = jwtAuthenticationFilter;
+        this.rateLimitFilter = rateLimitFilter;
     }
 
     @Bean
@@ -69,7 +73,8 @@ public class SecurityConfig {
 
     /**
      * Настраивает цепочку фильтров безопасности.
-     * Включает CORS, отключает CSRF (для stateless JWT), настраивает правила доступа.
+     * Включает CORS, отключает CSRF (для stateless JWT), настраивает правила доступа
+     * и ограничение частоты запросов после проверки JWT.
      *
      * @param http объект HttpSecurity для настройки
      * @return настроенная цепочка фильтров
@@ -95,7 +100,8 @@ public class SecurityConfig {
                         .anyRequest().authenticated()
                 )
                 .authenticationProvider(authenticationProvider())
-                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterAfter(rateLimitFilter, JwtAuthenticationFilter.class);
 
         return http.build();
     }
@@ -0,0 +1,87 @@
+package com.example.bankcards.security;
+
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Аутентифицированный пользователь в SecurityContext.
+ * В отличие от стандартного {@link org.springframework.security.core.userdetails.User}
+ * хранит ID пользователя, поэтому его можно восстановить из claims JWT токена без обращения к БД.
+ * 
+ * @author system
+ */
+public class UserPrincipal implements UserDetails, CredentialsContainer {
+
+    private final Long id;
+    private final String username;
+    private String password;
+    private final Set<GrantedAuthority> authorities;
+
+    /**
+     * Создает principal пользователя.
+     *
+     * @param id идентификатор пользователя
+     * @param username имя пользователя
+     * @param password хеш пароля (null, если principal восстановлен из токена)
+     * @param authorities роли пользователя
+     */
+    public UserPrincipal(Long id, String username, String password, Set<GrantedAuthority> authorities) {
+        this.id = id;
+        this.username = username;
+        this.password = password;
+        this.authorities = Set.copyOf(authorities);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public void eraseCredentials() {
+        this.password = null;
+    }
+
+    @Override
+    public String toString() {
+        return "UserPrincipal{id=" + id + ", username='" + username + "', authorities=" + authorities + "}";
+    }
+}
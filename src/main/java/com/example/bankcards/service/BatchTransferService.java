@@ -0,0 +1,125 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BatchTransferItemResponse;
+import com.example.bankcards.dto.BatchTransferRequest;
+import com.example.bankcards.dto.BatchTransferResponse;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.security.CurrentUser;
+import com.example.bankcards.security.CurrentUserProvider;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Сервис пакетных переводов между картами пользователя.
+ * Пакет выполняется одной транзакцией через {@link TransferBatchExecutor},
+ * а при включенном ledger.enabled - шардом {@link LedgerEngine} пользователя.
+ * Каждый перевод пакета предварительно проходит проверку скорости ({@link TransferVelocityGuard}).
+ * 
+ * @author system
+ */
+@Service
+public class BatchTransferService {
+
+    private final TransferBatchExecutor batchExecutor;
+    private final ObjectProvider<LedgerEngine> ledgerEngine;
+    private final TransferVelocityGuard velocityGuard;
+    private final CurrentUserProvider currentUserProvider;
+    private final int maxBatchSize;
+
+    /**
+     * Конструктор с внедрением зависимостей.
+     *
+     * @param batchExecutor исполнитель пакетов переводов
+     * @param ledgerEngine журнал балансов в памяти (доступен при ledger.enabled=true)
+     * @param velocityGuard предварительная проверка скорости переводов
+     * @param currentUserProvider источник текущего пользователя запроса
+     * @param maxBatchSize максимальное число переводов в пакете
+     */
+    public BatchTransferService(TransferBatchExecutor batchExecutor,
+                                ObjectProvider<LedgerEngine> ledgerEngine,
+                                TransferVelocityGuard velocityGuard,
+                                CurrentUserProvider currentUserProvider,
+                                @Value("${transfer.batch.max-size:1000}") int maxBatchSize) {
+        this.batchExecutor = batchExecutor;
+        this.ledgerEngine = ledgerEngine;
+        this.velocityGuard = velocityGuard;
+        this.currentUserProvider = currentUserProvider;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Выполняет пакет переводов между картами текущего пользователя.
+     * Правила для каждого перевода те же, что и для {@link TransferService#transferBetweenOwnCards}.
+     *
+     * @param request переводы и режим выполнения пакета
+     * @return результаты по каждому переводу в исходном порядке
+     * @throws BadRequestException если пакет превышает допустимый размер
+     */
+    public BatchTransferResponse transferBatch(BatchTransferRequest request) {
+        if (request.getTransfers().size() > maxBatchSize) {
+            throw new BadRequestException("Batch cannot contain more than " + maxBatchSize + " transfers");
+        }
+        BatchTransferRequest.Mode mode = request.getMode() != null
+                ? request.getMode()
+                : BatchTransferRequest.Mode.ALL_OR_NOTHING;
+
+        CurrentUser currentUser = currentUserProvider.get();
+        List<TransferBatchExecutor.Item> items = request.getTransfers().stream()
+                .map(transfer -> new TransferBatchExecutor.Item(currentUser.getId(), transfer))
+                .toList();
+
+        List<TransferBatchExecutor.Outcome> outcomes =
+                execute(items, mode == BatchTransferRequest.Mode.ALL_OR_NOTHING);
+
+        List<BatchTransferItemResponse> results = new ArrayList<>(outcomes.size());
+        int succeeded = 0;
+        for (int i = 0; i < outcomes.size(); i++) {
+            TransferBatchExecutor.Outcome outcome = outcomes.get(i);
+            if (outcome.isSuccess()) {
+                succeeded++;
+                results.add(new BatchTransferItemResponse(i, true, outcome.response(), null));
+            } else {
+                results.add(new BatchTransferItemResponse(i, false, null, outcome.error().getMessage()));
+            }
+        }
+        return new BatchTransferResponse(mode, succeeded, outcomes.size() - succeeded, results);
+    }
+
+    /**
+     * Отсеивает переводы, отклоненные проверкой скорости, и выполняет остальные.
+     * В режиме allOrNothing такой отказ отменяет пакет до обращения к базе данных.
+     */
+    private List<TransferBatchExecutor.Outcome> execute(List<TransferBatchExecutor.Item> items, boolean allOrNothing) {
+        TransferBatchExecutor.Outcome[] outcomes = new TransferBatchExecutor.Outcome[items.size()];
+        List<TransferBatchExecutor.Item> accepted = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            TransferBatchExecutor.Item item = items.get(i);
+            try {
+                velocityGuard.check(item.userId(), item.request().getFromCardId(), item.request().getAmount());
+                accepted.add(item);
+            } catch (BadRequestException ex) {
+                outcomes[i] = new TransferBatchExecutor.Outcome(null, ex);
+                if (allOrNothing) {
+                    return TransferBatchExecutor.rolledBack(Arrays.asList(outcomes), items.size(), i);
+                }
+            }
+        }
+
+        LedgerEngine ledger = ledgerEngine.getIfAvailable();
+        List<TransferBatchExecutor.Outcome> executed = ledger != null
+                ? ledger.execute(accepted, allOrNothing)
+                : batchExecutor.execute(accepted, allOrNothing);
+        int next = 0;
+        for (int i = 0; i < outcomes.length; i++) {
+            if (outcomes[i] == null) {
+                outcomes[i] = executed.get(next++);
+            }
+        }
+        return Arrays.asList(outcomes);
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.util.CardNumberEncryptor;
+import com.example.bankcards.util.CardNumberHasher;
+import com.example.bankcards.util.CardNumberMasker;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Сервис для заполнения вычисляемых колонок карт, добавленных миграциями.
+ * Обрабатывает карты порциями по возрастанию ID, каждая порция - в отдельной транзакции.
+ * 
+ * @author system
+ */
+@Service
+public class CardBackfillService {
+
+    private final CardRepository cardRepository;
+    private final CardNumberEncryptor cardNumberEncryptor;
+    private final CardNumberHasher cardNumberHasher;
+    private final CardNumberMasker cardNumberMasker;
+
+    /**
+     * Конструктор с внедрением зависимостей.
+     *
+     * @param cardRepository репозиторий карт
+     * @param cardNumberEncryptor утилита для шифрования номеров карт
+     * @param cardNumberHasher утилита для вычисления слепого индекса номеров карт
+     * @param cardNumberMasker утилита для маскирования номеров карт
+     */
+    public CardBackfillService(CardRepository cardRepository,
+                               CardNumberEncryptor cardNumberEncryptor,
+                               CardNumberHasher cardNumberHasher,
+                               CardNumberMasker cardNumberMasker) {
+        this.cardRepository = cardRepository;
+        this.cardNumberEncryptor = cardNumberEncryptor;
+        this.cardNumberHasher = cardNumberHasher;
+        this.cardNumberMasker = cardNumberMasker;
+    }
+
+    /**
+     * Заполняет слепой индекс номера для очередной порции карт.
+     *
+     * @param afterId ID последней обработанной карты (0 для первой порции)
+     * @param batchSize размер порции
+     * @return ID последней обработанной карты или null, если карт без индекса больше нет
+     */
+    @Transactional
+    public Long backfillCardNumberHashes(Long afterId, int batchSize) {
+        List<Card> cards = cardRepository.findByCardNumberHashIsNullAndIdGreaterThanOrderByIdAsc(
+                afterId, PageRequest.of(0, batchSize));
+        if (cards.isEmpty()) {
+            return null;
+        }
+
+        List<String> cardNumbers = cardNumberEncryptor.decryptAll(
+                cards.stream().map(Card::getEncryptedCardNumber).toList());
+        for (int i = 0; i < cards.size(); i++) {
+            cards.get(i).setCardNumberHash(cardNumberHasher.hash(cardNumbers.get(i)));
+        }
+        cardRepository.saveAll(cards);
+
+        return cards.get(cards.size() - 1).getId();
+    }
+
+    /**
+     * Заполняет маскированный номер для очередной порции карт.
+     *
+     * @param afterId ID последней обработанной карты (0 для первой порции)
+     * @param batchSize размер порции
+     * @return ID последней обработанной карты или null, если карт без маскированного номера больше нет
+     */
+    @Transactional
+    public Long backfillMaskedCardNumbers(Long afterId, int batchSize) {
+        List<Card> cards = cardRepository.findByMaskedCardNumberIsNullAndIdGreaterThanOrderByIdAsc(
+                afterId, PageRequest.of(0, batchSize));
+        if (cards.isEmpty()) {
+            return null;
+        }
+
+        List<String> cardNumbers = cardNumberEncryptor.decryptAll(
+                cards.stream().map(Card::getEncryptedCardNumber).toList());
+        for (int i = 0; i < cards.size(); i++) {
+            cards.get(i).setMaskedCardNumber(cardNumberMasker.maskCardNumber(cardNumbers.get(i)));
+        }
+        cardRepository.saveAll(cards);
+
+        return cards.get(cards.size() - 1).getId();
+    }
+}
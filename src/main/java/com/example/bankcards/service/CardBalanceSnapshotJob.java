@@ -0,0 +1,133 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.CardBalanceSnapshotRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Периодическое создание снимков балансов карт в card_balance_snapshots.
+ * 
+ * <p>Баланс на момент снимка T вычисляется одним запросом на порцию карт: текущий баланс
+ * минус зачисления и плюс списания с датой после T (суммы читаются из покрывающих индексов).
+ * T отстает от текущего времени на {@code lag}, чтобы переводы, начатые до T,
+ * но еще не зафиксированные, успели стать видимыми.
+ * 
+ * <p>Первый запуск снимает все карты. Последующие - только карты с переводами после
+ * предыдущего снимка: у остальных баланс не менялся и предыдущий снимок остается ближайшим.
+ * 
+ * @author system
+ */
+@Component
+public class CardBalanceSnapshotJob {
+
+    private static final Logger log = LoggerFactory.getLogger(CardBalanceSnapshotJob.class);
+
+    private static final String BALANCE_AT_SNAPSHOT =
+            "c.balance " +
+            "- COALESCE((SELECT SUM(t.amount) FROM card_transactions t " +
+            "WHERE t.to_card_id = c.id AND t.transaction_date > ?), 0) " +
+            "+ COALESCE((SELECT SUM(t.amount) FROM card_transactions t " +
+            "WHERE t.from_card_id = c.id AND t.transaction_date > ?), 0)";
+
+    private static final String SNAPSHOT_ALL_SQL =
+            "INSERT INTO card_balance_snapshots (card_id, snapshot_at, balance) " +
+            "SELECT c.id, ?, " + BALANCE_AT_SNAPSHOT + " FROM cards c " +
+            "WHERE c.id > ? AND c.id <= ? " +
+            "ON CONFLICT (card_id, snapshot_at) DO NOTHING";
+
+    private static final String SNAPSHOT_CHANGED_SQL =
+            "INSERT INTO card_balance_snapshots (card_id, snapshot_at, balance) " +
+            "SELECT c.id, ?, " + BALANCE_AT_SNAPSHOT + " FROM cards c " +
+            "WHERE c.id > ? AND c.id <= ? AND c.id IN (" +
+            "SELECT t.from_card_id FROM card_transactions t WHERE t.transaction_date > ? AND t.transaction_date <= ? " +
+            "UNION SELECT t.to_card_id FROM card_transactions t WHERE t.transaction_date > ? AND t.transaction_date <= ?) " +
+            "ON CONFLICT (card_id, snapshot_at) DO NOTHING";
+
+    private static final String NEXT_BOUND_SQL =
+            "SELECT MAX(id) FROM (SELECT id FROM cards WHERE id > ? ORDER BY id LIMIT ?) ids";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CardBalanceSnapshotRepository snapshotRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Duration lag;
+    private final int batchSize;
+
+    /**
+     * Конструктор с внедрением зависимостей.
+     *
+     * @param jdbcTemplate JDBC-шаблон
+     * @param snapshotRepository репозиторий снимков балансов
+     * @param transactionManager менеджер транзакций (каждая порция карт в своей транзакции)
+     * @param enabled включено ли создание снимков
+     * @param lag отставание момента снимка от текущего времени
+     * @param batchSize количество карт в одной порции
+     */
+    public CardBalanceSnapshotJob(JdbcTemplate jdbcTemplate,
+                                  CardBalanceSnapshotRepository snapshotRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${transactions.snapshots.enabled:true}") boolean enabled,
+                                  @Value("${transactions.snapshots.lag:5m}") Duration lag,
+                                  @Value("${transactions.snapshots.batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.snapshotRepository = snapshotRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.lag = lag;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Создает снимки балансов. Выполняется ежедневно.
+     */
+    @Scheduled(cron = "${transactions.snapshots.cron:0 45 2 * * *}")
+    public void takeSnapshots() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime snapshotAt = LocalDateTime.now().minus(lag);
+        Optional<LocalDateTime> previous = snapshotRepository.findLatestSnapshotAt();
+        if (previous.isPresent() && !previous.get().isBefore(snapshotAt)) {
+            return;
+        }
+        int inserted = takeSnapshots(snapshotAt, previous.orElse(null));
+        log.info("Card balance snapshots at {}: {} card(s)", snapshotAt, inserted);
+    }
+
+    /**
+     * Создает снимки балансов на момент snapshotAt порциями по возрастанию ID карты.
+     *
+     * @param snapshotAt момент снимка
+     * @param previousSnapshotAt момент предыдущего снимка (null - снять все карты)
+     * @return количество созданных снимков
+     */
+    int takeSnapshots(LocalDateTime snapshotAt, LocalDateTime previousSnapshotAt) {
+        Timestamp at = Timestamp.valueOf(snapshotAt);
+        Timestamp previous = previousSnapshotAt != null ? Timestamp.valueOf(previousSnapshotAt) : null;
+        int inserted = 0;
+        long lastId = 0L;
+        Long bound;
+        while ((bound = jdbcTemplate.queryForObject(NEXT_BOUND_SQL, Long.class, lastId, batchSize)) != null) {
+            long from = lastId;
+            long to = bound;
+            Integer count = transactionTemplate.execute(status -> previous == null
+                    ? jdbcTemplate.update(SNAPSHOT_ALL_SQL, at, at, at, from, to)
+                    : jdbcTemplate.update(SNAPSHOT_CHANGED_SQL, at, at, at, from, to,
+                            previous, at, previous, at));
+            inserted += count != null ? count : 0;
+            lastId = bound;
+        }
+        return inserted;
+    }
+}
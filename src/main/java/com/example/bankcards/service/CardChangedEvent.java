@@ -0,0 +1,10 @@
+package com.example.bankcards.service;
+
+/**
+ * Событие изменения карты (статус, удаление), после которого кэшированное состояние карты недействительно.
+ *
+ * @param cardId ID измененной карты
+ * @author system
+ */
+public record CardChangedEvent(Long cardId) {
+}
@@ -0,0 +1,42 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.util.Money;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+/**
+ * Чтение карт через JDBC для переводов, выполняемых в обход JPA.
+ * Возвращаемые карты не управляются контекстом персистентности.
+ * 
+ * @author system
+ */
+final class CardRows {
+
+    /**
+     * Колонки, необходимые для проверки правил перевода и формирования ответа.
+     */
+    static final String COLUMNS =
+            "id, owner_id, status, expiry_date, balance, masked_card_number, encrypted_card_number";
+
+    private CardRows() {
+    }
+
+    static Card map(ResultSet rs) throws SQLException {
+        User owner = new User();
+        owner.setId(rs.getLong("owner_id"));
+
+        Card card = new Card();
+        card.setId(rs.getLong("id"));
+        card.setOwner(owner);
+        card.setStatus(Card.CardStatus.valueOf(rs.getString("status")));
+        card.setExpiryDate(rs.getObject("expiry_date", LocalDate.class));
+        card.setBalance(Money.of(rs.getBigDecimal("balance")));
+        card.setMaskedCardNumber(rs.getString("masked_card_number"));
+        card.setEncryptedCardNumber(rs.getString("encrypted_card_number"));
+        return card;
+    }
+}
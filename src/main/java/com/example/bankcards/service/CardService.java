@@ -3,25 +3,38 @@ package com.example.bankcards.service;
 import com.example.bankcards.dto.CardCreateRequest;
 import com.example.bankcards.dto.CardResponse;
 import com.example.bankcards.dto.CardStatusUpdateRequest;
+import com.example.bankcards.dto.CursorPageResponse;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.BadRequestException;
 import com.example.bankcards.exception.ForbiddenException;
 import com.example.bankcards.exception.ResourceNotFoundException;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardRepositoryCustom;
+import com.example.bankcards.repository.CardStreamRow;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.CurrentUser;
+import com.example.bankcards.security.CurrentUserProvider;
 import com.example.bankcards.util.CardNumberEncryptor;
+import com.example.bankcards.util.CardNumberHasher;
 import com.example.bankcards.util.CardNumberMasker;
+import com.example.bankcards.util.KeysetCursor;
+import com.example.bankcards.util.Money;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Сервис для управления банковскими картами.
@@ -34,25 +47,41 @@ public class CardService {
 
     private final CardRepository cardRepository;
     private final UserRepository userRepository;
+    private final CurrentUserProvider currentUserProvider;
     private final CardNumberEncryptor cardNumberEncryptor;
     private final CardNumberMasker cardNumberMasker;
+    private final CardNumberHasher cardNumberHasher;
+    private final ApplicationEventPublisher eventPublisher;
+    private final OutboxWriter outboxWriter;
 
     /**
      * Конструктор с внедрением зависимостей.
      *
      * @param cardRepository репозиторий карт
      * @param userRepository репозиторий пользователей
+     * @param currentUserProvider источник текущего пользователя запроса
      * @param cardNumberEncryptor утилита для шифрования номеров карт
      * @param cardNumberMasker утилита для маскирования номеров карт
+     * @param cardNumberHasher утилита для вычисления слепого индекса номеров карт
+     * @param eventPublisher публикация событий изменения карт
+     * @param outboxWriter запись событий изменения карт в outbox
      */
     public CardService(CardRepository cardRepository,
                       UserRepository userRepository,
+                      CurrentUserProvider currentUserProvider,
                       CardNumberEncryptor cardNumberEncryptor,
-                      CardNumberMasker cardNumberMasker) {
+                      CardNumberMasker cardNumberMasker,
+                      CardNumberHasher cardNumberHasher,
+                      ApplicationEventPublisher eventPublisher,
+                      OutboxWriter outboxWriter) {
         this.cardRepository = cardRepository;
         this.userRepository = userRepository;
+        this.currentUserProvider = currentUserProvider;
         this.cardNumberEncryptor = cardNumberEncryptor;
         this.cardNumberMasker = cardNumberMasker;
+        this.cardNumberHasher = cardNumberHasher;
+        this.eventPublisher = eventPublisher;
+        this.outboxWriter = outboxWriter;
     }
 
     /**
@@ -68,12 +97,10 @@ public class CardService {
      */
     @Transactional(readOnly = true)
     public Page<CardResponse> getAllCardsForUser(Long userId, String cardholderName, Card.CardStatus status, Pageable pageable) {
-        String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
-        User currentUser = userRepository.findByUsername(currentUsername)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        CurrentUser currentUser = currentUserProvider.get();
 
         // Админ может видеть все карты, обычный пользователь только свои
-        if (!currentUser.getRoles().stream().anyMatch(r -> r.getName().name().equals("ROLE_ADMIN"))) {
+        if (!currentUser.isAdmin()) {
             if (!userId.equals(currentUser.getId())) {
                 throw new ForbiddenException("Access denied: You can only view your own cards");
             }
@@ -87,12 +114,84 @@ public class CardService {
         }
 
         return cards.map(card -> {
-            String maskedNumber = cardNumberMasker.maskCardNumber(
-                    cardNumberEncryptor.decrypt(card.getEncryptedCardNumber()));
+            String maskedNumber = cardNumberMasker.maskedNumberOf(card);
             return CardResponse.fromCard(card, maskedNumber);
         });
     }
 
+    /**
+     * Получает список карт пользователя с keyset (seek) пагинацией.
+     * В отличие от offset-режима не выполняет OFFSET и count(*): следующая страница
+     * выбирается по индексу начиная с позиции, закодированной в курсоре.
+     *
+     * @param userId ID пользователя
+     * @param cardholderName фильтр по имени держателя карты (опционально)
+     * @param status фильтр по статусу карты (опционально)
+     * @param sortBy поле для сортировки (id, cardholderName, expiryDate, createdAt)
+     * @param direction направление сортировки
+     * @param after курсор, полученный с предыдущей страницей (null для первой страницы)
+     * @param size размер страницы
+     * @return страница с картами и курсором следующей страницы
+     * @throws ForbiddenException если обычный пользователь пытается посмотреть чужие карты
+     * @throws BadRequestException если поле сортировки не поддерживается или курсор некорректен
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<CardResponse> getCardsForUserAfter(Long userId, String cardholderName, Card.CardStatus status,
+                                                                 String sortBy, Sort.Direction direction,
+                                                                 String after, int size) {
+        CurrentUser currentUser = currentUserProvider.get();
+
+        // Админ может видеть все карты, обычный пользователь только свои
+        if (!currentUser.isAdmin()) {
+            if (!userId.equals(currentUser.getId())) {
+                throw new ForbiddenException("Access denied: You can only view your own cards");
+            }
+        }
+
+        CardRepositoryCustom.SortKey sortKey = CardRepositoryCustom.SortKey.fromAttribute(sortBy);
+        if (sortKey == null) {
+            throw new BadRequestException("Unsupported sort field for cursor pagination: " + sortBy);
+        }
+
+        Comparable<?> afterValue = null;
+        Long afterId = null;
+        if (after != null && !after.isEmpty()) {
+            KeysetCursor cursor = KeysetCursor.decode(after);
+            if (!cursor.getSortKey().equals(sortKey.getAttribute())) {
+                throw new BadRequestException("Cursor was issued for a different sort field");
+            }
+            try {
+                afterValue = sortKey.parse(cursor.getValue());
+            } catch (NumberFormatException | DateTimeParseException e) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            afterId = cursor.getId();
+        }
+
+        // Запрашиваем на одну карту больше, чтобы без count(*) узнать, есть ли следующая страница
+        List<Card> cards = cardRepository.findByOwnerIdAfter(userId, cardholderName, status,
+                sortKey, direction, afterValue, afterId, size + 1);
+        boolean hasNext = cards.size() > size;
+        if (hasNext) {
+            cards = cards.subList(0, size);
+        }
+
+        List<CardResponse> content = cards.stream()
+                .map(card -> {
+                    String maskedNumber = cardNumberMasker.maskedNumberOf(card);
+                    return CardResponse.fromCard(card, maskedNumber);
+                })
+                .collect(Collectors.toList());
+
+        String nextCursor = null;
+        if (hasNext) {
+            Card last = cards.get(cards.size() - 1);
+            nextCursor = new KeysetCursor(sortKey.getAttribute(), sortKey.format(last), last.getId()).encode();
+        }
+
+        return new CursorPageResponse<>(content, content.size(), hasNext, nextCursor);
+    }
+
     /**
      * Получает карту по ID.
      * Обычные пользователи могут получить только свои карты, администраторы - любые.
@@ -107,19 +206,16 @@ public class CardService {
         Card card = cardRepository.findById(cardId)
                 .orElseThrow(() -> new ResourceNotFoundException("Card not found with id: " + cardId));
 
-        String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
-        User currentUser = userRepository.findByUsername(currentUsername)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        CurrentUser currentUser = currentUserProvider.get();
 
         // Проверка доступа
-        if (!currentUser.getRoles().stream().anyMatch(r -> r.getName().name().equals("ROLE_ADMIN"))) {
+        if (!currentUser.isAdmin()) {
             if (!card.getOwner().getId().equals(currentUser.getId())) {
                 throw new ForbiddenException("Access denied: You can only view your own cards");
             }
         }
 
-        String maskedNumber = cardNumberMasker.maskCardNumber(
-                cardNumberEncryptor.decrypt(card.getEncryptedCardNumber()));
+        String maskedNumber = cardNumberMasker.maskedNumberOf(card);
         return CardResponse.fromCard(card, maskedNumber);
     }
 
@@ -134,20 +230,18 @@ public class CardService {
      */
     @Transactional
     public CardResponse createCard(CardCreateRequest request) {
-        String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
-        User currentUser = userRepository.findByUsername(currentUsername)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        CurrentUser currentUser = currentUserProvider.get();
 
         // Админ может создавать карты для любого пользователя, обычный пользователь только для себя
         User owner;
         if (request.getOwnerId() != null) {
-            if (!currentUser.getRoles().stream().anyMatch(r -> r.getName().name().equals("ROLE_ADMIN"))) {
+            if (!currentUser.isAdmin()) {
                 throw new ForbiddenException("Only admins can create cards for other users");
             }
             owner = userRepository.findById(request.getOwnerId())
                     .orElseThrow(() -> new ResourceNotFoundException("Owner not found with id: " + request.getOwnerId()));
         } else {
-            owner = currentUser;
+            owner = userRepository.getReferenceById(currentUser.getId());
         }
 
         // Проверка срока действия
@@ -155,25 +249,31 @@ public class CardService {
             throw new BadRequestException("Expiry date cannot be in the past");
         }
 
-        // Проверка уникальности номера карты
-        String encryptedCardNumber = cardNumberEncryptor.encrypt(request.getCardNumber());
-        if (cardRepository.findAll().stream()
-                .anyMatch(c -> c.getEncryptedCardNumber().equals(encryptedCardNumber))) {
+        // Проверка уникальности номера карты по слепому индексу
+        String cardNumberHash = cardNumberHasher.hash(request.getCardNumber());
+        if (cardRepository.existsByCardNumberHash(cardNumberHash)) {
             throw new BadRequestException("Card with this number already exists");
         }
 
         Card card = new Card();
-        card.setEncryptedCardNumber(encryptedCardNumber);
+        card.setEncryptedCardNumber(cardNumberEncryptor.encrypt(request.getCardNumber()));
+        card.setCardNumberHash(cardNumberHash);
+        card.setMaskedCardNumber(cardNumberMasker.maskCardNumber(request.getCardNumber()));
         card.setCardholderName(request.getCardholderName());
         card.setExpiryDate(request.getExpiryDate());
         card.setStatus(Card.CardStatus.ACTIVE);
-        card.setBalance(java.math.BigDecimal.ZERO);
+        card.setBalance(Money.ZERO);
         card.setOwner(owner);
 
-        Card savedCard = cardRepository.save(card);
+        Card savedCard;
+        try {
+            savedCard = cardRepository.save(card);
+        } catch (DataIntegrityViolationException e) {
+            // Параллельный запрос успел создать карту с тем же номером
+            throw new BadRequestException("Card with this number already exists");
+        }
 
-        String maskedNumber = cardNumberMasker.maskCardNumber(request.getCardNumber());
-        return CardResponse.fromCard(savedCard, maskedNumber);
+        return CardResponse.fromCard(savedCard, savedCard.getMaskedCardNumber());
     }
 
     /**
@@ -191,12 +291,10 @@ public class CardService {
         Card card = cardRepository.findById(cardId)
                 .orElseThrow(() -> new ResourceNotFoundException("Card not found with id: " + cardId));
 
-        String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
-        User currentUser = userRepository.findByUsername(currentUsername)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        CurrentUser currentUser = currentUserProvider.get();
 
         // Обычный пользователь может только запросить блокировку
-        if (!currentUser.getRoles().stream().anyMatch(r -> r.getName().name().equals("ROLE_ADMIN"))) {
+        if (!currentUser.isAdmin()) {
             if (!card.getOwner().getId().equals(currentUser.getId())) {
                 throw new ForbiddenException("Access denied: You can only manage your own cards");
             }
@@ -207,9 +305,10 @@ public class CardService {
 
         card.setStatus(request.getStatus());
         Card updatedCard = cardRepository.save(card);
+        eventPublisher.publishEvent(new CardChangedEvent(cardId));
+        outboxWriter.appendCardStatusChanged(cardId, updatedCard.getStatus());
 
-        String maskedNumber = cardNumberMasker.maskCardNumber(
-                cardNumberEncryptor.decrypt(updatedCard.getEncryptedCardNumber()));
+        String maskedNumber = cardNumberMasker.maskedNumberOf(updatedCard);
         return CardResponse.fromCard(updatedCard, maskedNumber);
     }
 
@@ -225,16 +324,16 @@ public class CardService {
         Card card = cardRepository.findById(cardId)
                 .orElseThrow(() -> new ResourceNotFoundException("Card not found with id: " + cardId));
 
-        String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
-        User currentUser = userRepository.findByUsername(currentUsername)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        CurrentUser currentUser = currentUserProvider.get();
 
         // Только админ может удалять карты
-        if (!currentUser.getRoles().stream().anyMatch(r -> r.getName().name().equals("ROLE_ADMIN"))) {
+        if (!currentUser.isAdmin()) {
             throw new ForbiddenException("Only admins can delete cards");
         }
 
         cardRepository.delete(card);
+        eventPublisher.publishEvent(new CardChangedEvent(cardId));
+        outboxWriter.appendCardDeleted(cardId);
     }
 
     /**
@@ -245,24 +344,47 @@ public class CardService {
      */
     @Transactional(readOnly = true)
     public List<CardResponse> getAllCards() {
-        String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
-        User currentUser = userRepository.findByUsername(currentUsername)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        CurrentUser currentUser = currentUserProvider.get();
 
         // Только админ может видеть все карты
-        if (!currentUser.getRoles().stream().anyMatch(r -> r.getName().name().equals("ROLE_ADMIN"))) {
+        if (!currentUser.isAdmin()) {
             throw new ForbiddenException("Only admins can view all cards");
         }
 
         return cardRepository.findAll().stream()
                 .map(card -> {
-                    String maskedNumber = cardNumberMasker.maskCardNumber(
-                            cardNumberEncryptor.decrypt(card.getEncryptedCardNumber()));
+                    String maskedNumber = cardNumberMasker.maskedNumberOf(card);
                     return CardResponse.fromCard(card, maskedNumber);
                 })
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Потоково выгружает все карты в системе (только для администраторов).
+     * Карты читаются через серверный курсор в виде проекции (колонки карты и имя владельца)
+     * и передаются получателю по одной; сущности не создаются, поэтому расход памяти
+     * и число запросов не зависят ни от размера таблицы, ни от числа владельцев.
+     *
+     * @param consumer получатель карт (например, запись в ответ в формате NDJSON)
+     * @throws ForbiddenException если пользователь не является администратором
+     */
+    @Transactional(readOnly = true)
+    public void streamAllCards(Consumer<CardResponse> consumer) {
+        CurrentUser currentUser = currentUserProvider.get();
+
+        // Только админ может видеть все карты
+        if (!currentUser.isAdmin()) {
+            throw new ForbiddenException("Only admins can view all cards");
+        }
+
+        try (Stream<CardStreamRow> rows = cardRepository.streamAllWithOwner()) {
+            rows.forEach(row -> {
+                String maskedNumber = cardNumberMasker.maskedNumberOf(row.getMaskedCardNumber(), row.getEncryptedCardNumber());
+                consumer.accept(CardResponse.fromRow(row, maskedNumber));
+            });
+        }
+    }
+
     /**
      * Находит карту по ID (внутренний метод для использования в других сервисах).
      *
@@ -275,5 +397,18 @@ public class CardService {
         return cardRepository.findById(cardId)
                 .orElseThrow(() -> new ResourceNotFoundException("Card not found with id: " + cardId));
     }
-}
 
+    /**
+     * Находит карту по номеру (внутренний метод для использования в других сервисах).
+     * Поиск выполняется одним индексным запросом по слепому индексу номера.
+     *
+     * @param cardNumber номер карты в открытом виде
+     * @return сущность карты
+     * @throws ResourceNotFoundException если карта не найдена
+     */
+    @Transactional(readOnly = true)
+    public Card findCardByNumber(String cardNumber) {
+        return cardRepository.findByCardNumberHash(cardNumberHasher.hash(cardNumber))
+                .orElseThrow(() -> new ResourceNotFoundException("Card not found"));
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.bankcards.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Обслуживание помесячных секций card_transactions.
+ * 
+ * <p>Заранее создает секции на ближайшие месяцы, чтобы новые переводы не попадали в секцию DEFAULT,
+ * и, если задан срок хранения, отсоединяет секции старше него. Отсоединенная секция остается
+ * отдельной таблицей: ее можно выгрузить в архив и удалить вручную.
+ * Если таблица не секционирована (миграция 012 не применялась), ничего не делает.
+ * 
+ * @author system
+ */
+@Component
+public class CardTransactionPartitionManager {
+
+    private static final Logger log = LoggerFactory.getLogger(CardTransactionPartitionManager.class);
+
+    private static final String PARENT_TABLE = "card_transactions";
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final Pattern PARTITION_NAME = Pattern.compile(PARENT_TABLE + "_(\\d{6})");
+
+    private static final String IS_PARTITIONED_SQL =
+            "SELECT count(*) FROM pg_partitioned_table WHERE partrelid = to_regclass('" + PARENT_TABLE + "')";
+
+    private static final String LIST_PARTITIONS_SQL =
+            "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+            "WHERE i.inhparent = to_regclass('" + PARENT_TABLE + "')";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int monthsAhead;
+    private final int retentionMonths;
+
+    /**
+     * Конструктор с внедрением зависимостей.
+     *
+     * @param jdbcTemplate JDBC-шаблон
+     * @param enabled включено ли обслуживание секций
+     * @param monthsAhead на сколько месяцев вперед создавать секции
+     * @param retentionMonths сколько месяцев хранить секции подключенными (0 - не отсоединять)
+     */
+    public CardTransactionPartitionManager(JdbcTemplate jdbcTemplate,
+                                           @Value("${transactions.partitions.enabled:true}") boolean enabled,
+                                           @Value("${transactions.partitions.months-ahead:3}") int monthsAhead,
+                                           @Value("${transactions.partitions.retention-months:0}") int retentionMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+    }
+
+    /**
+     * Проверяет секции при старте приложения.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintainPartitions();
+    }
+
+    /**
+     * Создает недостающие секции и отсоединяет устаревшие. Выполняется ежедневно.
+     */
+    @Scheduled(cron = "${transactions.partitions.cron:0 15 2 * * *}")
+    public void maintainPartitions() {
+        if (!enabled || !isPartitioned()) {
+            return;
+        }
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= monthsAhead; i++) {
+            createPartition(current.plusMonths(i));
+        }
+        if (retentionMonths > 0) {
+            detachPartitionsBefore(current.minusMonths(retentionMonths));
+        }
+    }
+
+    private boolean isPartitioned() {
+        try {
+            Integer count = jdbcTemplate.queryForObject(IS_PARTITIONED_SQL, Integer.class);
+            return count != null && count > 0;
+        } catch (DataAccessException e) {
+            log.debug("Cannot check card_transactions partitioning", e);
+            return false;
+        }
+    }
+
+    private void createPartition(YearMonth month) {
+        LocalDate from = month.atDay(1);
+        LocalDate to = month.plusMonths(1).atDay(1);
+        String sql = "CREATE TABLE IF NOT EXISTS " + partitionName(month) + " PARTITION OF " + PARENT_TABLE +
+                " FOR VALUES FROM ('" + from + "') TO ('" + to + "')";
+        try {
+            jdbcTemplate.execute(sql);
+        } catch (DataAccessException e) {
+            // Обычно означает, что в DEFAULT уже есть строки за этот месяц
+            log.error("Failed to create partition {}", partitionName(month), e);
+        }
+    }
+
+    private void detachPartitionsBefore(YearMonth cutoff) {
+        List<String> partitions = jdbcTemplate.queryForList(LIST_PARTITIONS_SQL, String.class);
+        for (String partition : partitions) {
+            Matcher matcher = PARTITION_NAME.matcher(partition);
+            if (!matcher.matches() || !YearMonth.parse(matcher.group(1), SUFFIX).isBefore(cutoff)) {
+                continue;
+            }
+            try {
+                jdbcTemplate.execute("ALTER TABLE " + PARENT_TABLE + " DETACH PARTITION " + partition);
+                log.info("Detached partition {}", partition);
+            } catch (DataAccessException e) {
+                log.error("Failed to detach partition {}", partition, e);
+            }
+        }
+    }
+
+    static String partitionName(YearMonth month) {
+        return PARENT_TABLE + "_" + month.format(SUFFIX);
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardBalanceResponse;
+import com.example.bankcards.dto.CardTransactionResponse;
+import com.example.bankcards.dto.CursorPageResponse;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.exception.ForbiddenException;
+import com.example.bankcards.exception.ResourceNotFoundException;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardBalanceSnapshot;
+import com.example.bankcards.repository.CardBalanceSnapshotRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardTransactionRepository;
+import com.example.bankcards.security.CurrentUser;
+import com.example.bankcards.security.CurrentUserProvider;
+import com.example.bankcards.util.KeysetCursor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Сервис чтения истории переводов и исторических балансов карты.
+ * 
+ * @author system
+ */
+@Service
+public class CardTransactionService {
+
+    private static final String CURSOR_KEY = "transactionDate";
+
+    private static final Comparator<CardTransactionResponse> NEWEST_FIRST =
+            Comparator.comparing(CardTransactionResponse::getTransactionDate)
+                    .thenComparing(CardTransactionResponse::getId)
+                    .reversed();
+
+    private final CardRepository cardRepository;
+    private final CardTransactionRepository transactionRepository;
+    private final CardBalanceSnapshotRepository snapshotRepository;
+    private final CurrentUserProvider currentUserProvider;
+
+    /**
+     * Конструктор с внедрением зависимостей.
+     *
+     * @param cardRepository репозиторий карт
+     * @param transactionRepository репозиторий транзакций
+     * @param snapshotRepository репозиторий снимков балансов
+     * @param currentUserProvider источник текущего пользователя запроса
+     */
+    public CardTransactionService(CardRepository cardRepository,
+                                  CardTransactionRepository transactionRepository,
+                                  CardBalanceSnapshotRepository snapshotRepository,
+                                  CurrentUserProvider currentUserProvider) {
+        this.cardRepository = cardRepository;
+        this.transactionRepository = transactionRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.currentUserProvider = currentUserProvider;
+    }
+
+    /**
+     * Получает историю переводов карты (списания и зачисления) от новых к старым
+     * с keyset пагинацией по (transactionDate, id).
+     * 
+     * Списания и зачисления читаются отдельными запросами по индексам
+     * (from_card_id, transaction_date, id) и (to_card_id, transaction_date, id)
+     * и объединяются в памяти, поэтому стоимость страницы не зависит от длины истории.
+     *
+     * @param cardId ID карты
+     * @param from начало периода включительно (опционально)
+     * @param to конец периода не включительно (опционально)
+     * @param after курсор, полученный с предыдущей страницей (null для первой страницы)
+     * @param size размер страницы
+     * @return страница переводов и курсор следующей страницы
+     * @throws ResourceNotFoundException если карта не найдена
+     * @throws ForbiddenException если обычный пользователь запрашивает историю чужой карты
+     * @throws BadRequestException если курсор некорректен
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<CardTransactionResponse> getTransactionsForCard(Long cardId,
+                                                                             LocalDateTime from, LocalDateTime to,
+                                                                             String after, int size) {
+        checkAccess(cardId);
+
+        LocalDateTime afterDate = null;
+        Long afterId = null;
+        if (after != null && !after.isEmpty()) {
+            KeysetCursor cursor = KeysetCursor.decode(after);
+            if (!CURSOR_KEY.equals(cursor.getSortKey())) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            try {
+                afterDate = LocalDateTime.parse(cursor.getValue());
+            } catch (DateTimeParseException e) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            afterId = cursor.getId();
+        }
+
+        // Из каждой стороны берем на одну строку больше страницы: этого достаточно для слияния и hasNext
+        List<CardTransactionResponse> merged = new ArrayList<>(2 * size + 2);
+        merged.addAll(transactionRepository.findByCardAfter(cardId, CardTransactionResponse.Direction.OUTGOING,
+                from, to, afterDate, afterId, size + 1));
+        merged.addAll(transactionRepository.findByCardAfter(cardId, CardTransactionResponse.Direction.INCOMING,
+                from, to, afterDate, afterId, size + 1));
+        merged.sort(NEWEST_FIRST);
+
+        boolean hasNext = merged.size() > size;
+        List<CardTransactionResponse> content = hasNext ? merged.subList(0, size) : merged;
+
+        String nextCursor = null;
+        if (hasNext) {
+            CardTransactionResponse last = content.get(content.size() - 1);
+            nextCursor = new KeysetCursor(CURSOR_KEY, last.getTransactionDate().toString(), last.getId()).encode();
+        }
+
+        return new CursorPageResponse<>(new ArrayList<>(content), content.size(), hasNext, nextCursor);
+    }
+
+    /**
+     * Вычисляет баланс карты на момент времени (с учетом всех переводов с датой не позже at).
+     * 
+     * Расчет начинается от ближайшего снимка из card_balance_snapshots: от последнего снимка
+     * не позже at применяются переводы после него, а если такого нет - от первого снимка после at
+     * откатываются переводы до него. Без снимков баланс откатывается от текущего.
+     * Объем прочитанной истории ограничен интервалом между снимками, а не возрастом карты.
+     *
+     * @param cardId ID карты
+     * @param at момент времени
+     * @return баланс на момент at и время снимка, от которого он посчитан (null, если снимков нет)
+     * @throws ResourceNotFoundException если карта не найдена
+     * @throws ForbiddenException если обычный пользователь запрашивает баланс чужой карты
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public CardBalanceResponse getBalanceAt(Long cardId, LocalDateTime at) {
+        checkAccess(cardId);
+
+        Optional<CardBalanceSnapshot> before =
+                snapshotRepository.findFirstByCardIdAndSnapshotAtLessThanEqualOrderBySnapshotAtDesc(cardId, at);
+        if (before.isPresent()) {
+            CardBalanceSnapshot snapshot = before.get();
+            BigDecimal balance = snapshot.getBalance().add(netChange(cardId, snapshot.getSnapshotAt(), at));
+            return new CardBalanceResponse(cardId, at, balance, snapshot.getSnapshotAt());
+        }
+
+        Optional<CardBalanceSnapshot> after =
+                snapshotRepository.findFirstByCardIdAndSnapshotAtGreaterThanOrderBySnapshotAtAsc(cardId, at);
+        if (after.isPresent()) {
+            CardBalanceSnapshot snapshot = after.get();
+            BigDecimal balance = snapshot.getBalance().subtract(netChange(cardId, at, snapshot.getSnapshotAt()));
+            return new CardBalanceResponse(cardId, at, balance, snapshot.getSnapshotAt());
+        }
+
+        // Снимков еще нет: откатываем от текущего баланса переводы после at
+        Card card = cardRepository.findById(cardId)
+                .orElseThrow(() -> new ResourceNotFoundException("Card not found with id: " + cardId));
+        BigDecimal balance = card.getBalance().toBigDecimal().subtract(netChange(cardId, at, LocalDateTime.now()));
+        return new CardBalanceResponse(cardId, at, balance, null);
+    }
+
+    /**
+     * Изменение баланса карты за период (from, to]: зачисления минус списания.
+     */
+    private BigDecimal netChange(Long cardId, LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            return BigDecimal.ZERO;
+        }
+        return transactionRepository.sumIncoming(cardId, from, to)
+                .subtract(transactionRepository.sumOutgoing(cardId, from, to));
+    }
+
+    private void checkAccess(Long cardId) {
+        Long ownerId = cardRepository.findOwnerIdById(cardId)
+                .orElseThrow(() -> new ResourceNotFoundException("Card not found with id: " + cardId));
+
+        CurrentUser currentUser = currentUserProvider.get();
+        if (!currentUser.isAdmin() && !ownerId.equals(currentUser.getId())) {
+            throw new ForbiddenException("Access denied: You can only view your own cards");
+        }
+    }
+}
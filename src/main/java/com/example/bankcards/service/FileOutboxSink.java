@@ -0,0 +1,87 @@
+package com.example.bankcards.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Приемник событий outbox, дописывающий их в локальный файл NDJSON.
+ *
+ * <p>Порция событий записывается одним вызовом и сбрасывается на диск до возврата, поэтому
+ * удаленные из outbox события гарантированно есть в файле. При повторной доставке после сбоя
+ * в файле могут появиться дубликаты; получатели отбрасывают их по полю {@code id}.
+ * Используется по умолчанию ({@code outbox.sink=file}).
+ *
+ * @author system
+ */
+@Component
+@ConditionalOnProperty(name = "outbox.sink", havingValue = "file", matchIfMissing = true)
+public class FileOutboxSink implements OutboxSink {
+
+    private final ObjectMapper objectMapper;
+    private final Path file;
+
+    /**
+     * Конструктор с внедрением зависимостей.
+     *
+     * @param objectMapper JSON-сериализатор
+     * @param file путь к файлу событий
+     */
+    public FileOutboxSink(ObjectMapper objectMapper,
+                          @Value("${outbox.file.path:outbox/events.ndjson}") String file) {
+        this.objectMapper = objectMapper;
+        this.file = Paths.get(file);
+    }
+
+    @Override
+    public synchronized void publish(List<OutboxMessage> messages) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(serialize(messages));
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private byte[] serialize(List<OutboxMessage> messages) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(messages.size() * 256);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            for (OutboxMessage message : messages) {
+                generator.writeStartObject();
+                generator.writeNumberField("id", message.id());
+                generator.writeStringField("eventType", message.eventType());
+                generator.writeNumberField("aggregateId", message.aggregateId());
+                generator.writeStringField("createdAt", message.createdAt().toString());
+                // Полезная нагрузка уже сериализована при записи в outbox
+                generator.writeFieldName("payload");
+                generator.writeRawValue(message.payload());
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            }
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.bankcards.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Приемник событий outbox в памяти процесса ({@code outbox.sink=memory}).
+ *
+ * <p>Предназначен для локального запуска и тестов: хранит не более {@code capacity} последних
+ * событий, более старые вытесняются. События забираются через {@link #drain()}.
+ *
+ * @author system
+ */
+@Component
+@ConditionalOnProperty(name = "outbox.sink", havingValue = "memory")
+public class InMemoryOutboxSink implements OutboxSink {
+
+    private final int capacity;
+    private final Deque<OutboxMessage> messages = new ArrayDeque<>();
+
+    /**
+     * Конструктор с параметрами.
+     *
+     * @param capacity максимальное количество хранимых событий
+     */
+    public InMemoryOutboxSink(@Value("${outbox.memory.capacity:10000}") int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    public synchronized void publish(List<OutboxMessage> batch) {
+        for (OutboxMessage message : batch) {
+            if (messages.size() >= capacity) {
+                messages.pollFirst();
+            }
+            messages.addLast(message);
+        }
+    }
+
+    /**
+     * Забирает все накопленные события в порядке доставки.
+     *
+     * @return события, доставленные с момента предыдущего вызова
+     */
+    public synchronized List<OutboxMessage> drain() {
+        List<OutboxMessage> drained = new ArrayList<>(messages);
+        messages.clear();
+        return drained;
+    }
+}
@@ -0,0 +1,277 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.dto.TransferResponse;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.util.CardNumberMasker;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Журнал балансов в памяти для высокочастотных переводов между своими картами.
+ * 
+ * <p>Переводы распределяются по шардам по ID владельца: обе карты перевода всегда принадлежат
+ * одному пользователю, поэтому перевод целиком выполняется одним потоком шарда без блокировок
+ * и без координации между шардами. Правила те же, что у {@link TransferService}: владелец,
+ * статус ACTIVE, срок действия, достаточность средств и лимиты карты-источника.
+ * 
+ * <p>Каждый перевод записывается в журнал шарда до ответа вызывающему; в cards / card_transactions
+ * переводы попадают асинхронно пачками. При старте неподтвержденные записи журналов
+ * повторно записываются в базу. Пока движок включен, балансы карт, которые он держит в памяти,
+ * должны меняться только через него: одиночные переводы (в том числе с Idempotency-Key)
+ * направляет сюда {@link TransferService}, пакетные - {@link BatchTransferService},
+ * отложенные - {@link ScheduledTransferScheduler}. Групповая фиксация переводов пишет балансы
+ * напрямую в базу, поэтому вместе с журналом не запускается. Изменения статуса и удаление
+ * карт приходят событием {@link CardChangedEvent}.
+ * 
+ * @author system
+ */
+@Component
+@ConditionalOnProperty(prefix = "ledger", name = "enabled", havingValue = "true")
+public class LedgerEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerEngine.class);
+
+    private static final Pattern JOURNAL_FILE = Pattern.compile("shard-(\\d+)\\.journal");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LedgerFlusher flusher;
+    private final TransferLimitService transferLimitService;
+    private final CardNumberMasker cardNumberMasker;
+    private final int shardCount;
+    private final Path journalDir;
+    private final int journalCapacity;
+    private final boolean forceOnWrite;
+    private final int flushBatchSize;
+    private final long flushIntervalMs;
+    private final int maxCardsPerShard;
+    private final int idBlockSize;
+
+    private LedgerShard[] shards;
+
+    /**
+     * Конструктор с внедрением зависимостей.
+     *
+     * @param jdbcTemplate JDBC-шаблон
+     * @param transactionManager менеджер транзакций для сброса журнала в базу
+     * @param cardNumberMasker утилита для маскирования номеров карт
+     * @param outboxWriter запись событий о переводах в outbox при сбросе в БД
+     * @param transferLimitService лимиты переводов по картам
+     * @param shardCount количество шардов
+     * @param journalDir каталог файлов журнала
+     * @param journalCapacity емкость журнала шарда в записях
+     * @param forceOnWrite сбрасывать журнал на диск после каждой записи
+     * @param flushBatchSize число переводов, после которого журнал сбрасывается в базу
+     * @param flushIntervalMs период сброса журнала в базу
+     * @param maxCardsPerShard максимальное число карт в памяти шарда
+     * @param idBlockSize размер блока ID транзакций, выделяемого из последовательности
+     * @param groupCommitEnabled включена ли групповая фиксация переводов (несовместима с журналом)
+     */
+    public LedgerEngine(JdbcTemplate jdbcTemplate,
+                        PlatformTransactionManager transactionManager,
+                        CardNumberMasker cardNumberMasker,
+                        OutboxWriter outboxWriter,
+                        TransferLimitService transferLimitService,
+                        @Value("${ledger.shards:4}") int shardCount,
+                        @Value("${ledger.journal.dir:./ledger}") String journalDir,
+                        @Value("${ledger.journal.capacity:65536}") int journalCapacity,
+                        @Value("${ledger.journal.force-on-write:false}") boolean forceOnWrite,
+                        @Value("${ledger.flush.batch-size:500}") int flushBatchSize,
+                        @Value("${ledger.flush.interval-ms:50}") long flushIntervalMs,
+                        @Value("${ledger.max-cards-per-shard:100000}") int maxCardsPerShard,
+                        @Value("${ledger.id-block-size:1000}") int idBlockSize,
+                        @Value("${transfer.group-commit.enabled:false}") boolean groupCommitEnabled) {
+        if (groupCommitEnabled) {
+            throw new IllegalStateException(
+                    "ledger.enabled and transfer.group-commit.enabled cannot be enabled together");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.flusher = new LedgerFlusher(jdbcTemplate, new TransactionTemplate(transactionManager), outboxWriter);
+        this.transferLimitService = transferLimitService;
+        this.cardNumberMasker = cardNumberMasker;
+        this.shardCount = shardCount;
+        this.journalDir = Paths.get(journalDir);
+        this.journalCapacity = journalCapacity;
+        this.forceOnWrite = forceOnWrite;
+        this.flushBatchSize = Math.min(flushBatchSize, journalCapacity);
+        this.flushIntervalMs = flushIntervalMs;
+        this.maxCardsPerShard = maxCardsPerShard;
+        this.idBlockSize = idBlockSize;
+    }
+
+    /**
+     * Восстанавливает неподтвержденные переводы из журналов и запускает шарды.
+     * Журналы шардов, которых больше нет (уменьшено ledger.shards), восстанавливаются и удаляются.
+     */
+    @PostConstruct
+    public void start() throws IOException {
+        Files.createDirectories(journalDir);
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(journalDir, "shard-*.journal")) {
+            for (Path file : files) {
+                Matcher matcher = JOURNAL_FILE.matcher(file.getFileName().toString());
+                if (matcher.matches() && Integer.parseInt(matcher.group(1)) >= shardCount) {
+                    try (LedgerJournal journal = openJournal(file)) {
+                        replay(Integer.parseInt(matcher.group(1)), journal);
+                    }
+                    Files.delete(file);
+                }
+            }
+        }
+
+        shards = new LedgerShard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            LedgerJournal journal = openJournal(journalDir.resolve("shard-" + i + ".journal"));
+            replay(i, journal);
+            shards[i] = new LedgerShard(i, journal, flusher, transferLimitService, jdbcTemplate, cardNumberMasker::maskedNumberOf,
+                    flushBatchSize, flushIntervalMs, maxCardsPerShard, idBlockSize);
+        }
+        log.info("Ledger engine started with {} shard(s), journal in {}", shardCount, journalDir.toAbsolutePath());
+    }
+
+    /**
+     * Сбрасывает журналы в базу и останавливает шарды.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (shards == null) {
+            return;
+        }
+        for (LedgerShard shard : shards) {
+            shard.shutdown();
+        }
+    }
+
+    /**
+     * Выполняет перевод между картами пользователя.
+     *
+     * @param userId ID пользователя, выполняющего перевод
+     * @param request данные перевода (fromCardId, toCardId, amount)
+     * @return результат перевода; ID транзакции совпадает с ID будущей записи card_transactions
+     */
+    public TransferResponse transfer(Long userId, TransferRequest request) {
+        return transfer(userId, request, response -> { });
+    }
+
+    /**
+     * Выполняет перевод и вызывает {@code onCompleted} после записи перевода в журнал.
+     * Исключение из {@code onCompleted} отменяет перевод записью отмены в журнал.
+     *
+     * @param userId ID пользователя, выполняющего перевод
+     * @param request данные перевода (fromCardId, toCardId, amount)
+     * @param onCompleted действие с результатом перевода до его подтверждения
+     * @return результат перевода
+     */
+    public TransferResponse transfer(Long userId, TransferRequest request, Consumer<TransferResponse> onCompleted) {
+        return await(shardOf(userId).submit(userId, request, onCompleted));
+    }
+
+    /**
+     * Выполняет пакет переводов с теми же правилами, что и {@link TransferBatchExecutor#execute}.
+     * Переводы разных пользователей выполняются их шардами независимо друг от друга,
+     * поэтому пакет allOrNothing должен содержать переводы одного пользователя.
+     *
+     * @param items переводы пакета
+     * @param allOrNothing выполнить все переводы или ни одного
+     * @return результаты по каждому переводу в исходном порядке
+     * @throws IllegalArgumentException если пакет allOrNothing содержит переводы разных пользователей
+     */
+    public List<TransferBatchExecutor.Outcome> execute(List<TransferBatchExecutor.Item> items, boolean allOrNothing) {
+        Map<Long, List<Integer>> indexesByUser = new LinkedHashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            indexesByUser.computeIfAbsent(items.get(i).userId(), userId -> new ArrayList<>()).add(i);
+        }
+        if (allOrNothing && indexesByUser.size() > 1) {
+            throw new IllegalArgumentException("All-or-nothing ledger batch must contain transfers of one user");
+        }
+
+        Map<Long, CompletableFuture<List<TransferBatchExecutor.Outcome>>> futures = new LinkedHashMap<>();
+        indexesByUser.forEach((userId, indexes) -> futures.put(userId, shardOf(userId).submitBatch(
+                indexes.stream().map(items::get).toList(), allOrNothing)));
+
+        TransferBatchExecutor.Outcome[] outcomes = new TransferBatchExecutor.Outcome[items.size()];
+        futures.forEach((userId, future) -> {
+            List<Integer> indexes = indexesByUser.get(userId);
+            List<TransferBatchExecutor.Outcome> userOutcomes = await(future);
+            for (int i = 0; i < indexes.size(); i++) {
+                outcomes[indexes.get(i)] = userOutcomes.get(i);
+            }
+        });
+        return Arrays.asList(outcomes);
+    }
+
+    /**
+     * Сбрасывает в базу переводы, накопленные во всех шардах этого узла.
+     *
+     * @throws RuntimeException если сброс одного из шардов не удался
+     */
+    public void flush() {
+        List<CompletableFuture<Void>> futures = Arrays.stream(shards).map(LedgerShard::flushNow).toList();
+        futures.forEach(LedgerEngine::await);
+    }
+
+    /**
+     * Удаляет измененную карту из памяти шардов после фиксации изменения.
+     *
+     * @param event событие изменения карты
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCardChanged(CardChangedEvent event) {
+        for (LedgerShard shard : shards) {
+            shard.evict(event.cardId());
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private LedgerShard shardOf(Long userId) {
+        return shards[(int) Math.floorMod(userId, (long) shardCount)];
+    }
+
+    private LedgerJournal openJournal(Path file) throws IOException {
+        return new LedgerJournal(file, journalCapacity, forceOnWrite);
+    }
+
+    private void replay(int shardId, LedgerJournal journal) {
+        List<LedgerJournal.Entry> entries = journal.readAfter(flusher.lastFlushedTransactionId(shardId));
+        if (!entries.isEmpty()) {
+            flusher.flush(shardId, entries);
+            log.info("Ledger shard {}: replayed {} transfer(s) from journal", shardId, entries.size());
+        }
+        journal.reset();
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.bankcards.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Запись накопленных переводов шарда в cards / card_transactions.
+ * 
+ * <p>Балансы меняются приращениями ({@code balance = balance + ?}), а контрольная точка шарда
+ * обновляется в той же транзакции, поэтому повторная запись уже сброшенных записей исключена.
+ * События о переводах попадают в outbox в той же транзакции, то есть после записи в базу.
+ * 
+ * @author system
+ */
+final class LedgerFlusher {
+
+    private static final String UPDATE_BALANCE_SQL =
+            "UPDATE cards SET balance = balance + ?, updated_at = ? WHERE id = ?";
+
+    private static final String INSERT_TRANSACTION_SQL =
+            "INSERT INTO card_transactions (id, from_card_id, to_card_id, amount, transaction_date) " +
+            "VALUES (?, ?, ?, ?, ?)";
+
+    private static final String UPSERT_CHECKPOINT_SQL =
+            "INSERT INTO ledger_checkpoints (shard_id, last_transaction_id, updated_at) VALUES (?, ?, ?) " +
+            "ON CONFLICT (shard_id) DO UPDATE SET last_transaction_id = EXCLUDED.last_transaction_id, " +
+            "updated_at = EXCLUDED.updated_at";
+
+    private static final String SELECT_CHECKPOINT_SQL =
+            "SELECT last_transaction_id FROM ledger_checkpoints WHERE shard_id = ?";
+
+    private static final String NEXT_TRANSACTION_IDS_SQL =
+            "SELECT nextval('card_transactions_id_seq') FROM generate_series(1, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxWriter outboxWriter;
+
+    LedgerFlusher(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, OutboxWriter outboxWriter) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.outboxWriter = outboxWriter;
+    }
+
+    /**
+     * Возвращает ID последней транзакции шарда, записанной в базу, или 0.
+     */
+    long lastFlushedTransactionId(int shardId) {
+        List<Long> ids = jdbcTemplate.queryForList(SELECT_CHECKPOINT_SQL, Long.class, shardId);
+        return ids.isEmpty() ? 0L : ids.get(0);
+    }
+
+    /**
+     * Выделяет блок ID транзакций из последовательности card_transactions.
+     */
+    List<Long> allocateTransactionIds(int count) {
+        return jdbcTemplate.queryForList(NEXT_TRANSACTION_IDS_SQL, Long.class, count);
+    }
+
+    /**
+     * Записывает переводы и контрольную точку шарда в одной транзакции.
+     * Отмененные переводы (вместе с записями отмены) пропускаются.
+     *
+     * @param shardId номер шарда
+     * @param journalEntries записи журнала в порядке возрастания ID транзакций
+     */
+    void flush(int shardId, List<LedgerJournal.Entry> journalEntries) {
+        List<LedgerJournal.Entry> entries = withoutCancelled(journalEntries);
+        if (entries.isEmpty()) {
+            return;
+        }
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+
+        Map<Long, BigDecimal> deltas = new LinkedHashMap<>();
+        List<Object[]> inserts = new ArrayList<>(entries.size());
+        List<OutboxWriter.TransferCompleted> events = new ArrayList<>(entries.size());
+        for (LedgerJournal.Entry entry : entries) {
+            BigDecimal amount = BigDecimal.valueOf(entry.amountMinorUnits(), 2);
+            deltas.merge(entry.fromCardId(), amount.negate(), BigDecimal::add);
+            deltas.merge(entry.toCardId(), amount, BigDecimal::add);
+            inserts.add(new Object[]{entry.transactionId(), entry.fromCardId(), entry.toCardId(),
+                    amount, new Timestamp(entry.timestampMillis())});
+            events.add(new OutboxWriter.TransferCompleted(entry.transactionId(), entry.fromCardId(),
+                    entry.toCardId(), amount, new Timestamp(entry.timestampMillis()).toLocalDateTime()));
+        }
+        List<Object[]> updates = new ArrayList<>(deltas.size());
+        deltas.forEach((cardId, delta) -> updates.add(new Object[]{delta, now, cardId}));
+        long lastTransactionId = entries.get(entries.size() - 1).transactionId();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(UPDATE_BALANCE_SQL, updates);
+            jdbcTemplate.batchUpdate(INSERT_TRANSACTION_SQL, inserts);
+            outboxWriter.appendTransfers(events);
+            jdbcTemplate.update(UPSERT_CHECKPOINT_SQL, shardId, lastTransactionId, now);
+        });
+    }
+
+    private static List<LedgerJournal.Entry> withoutCancelled(List<LedgerJournal.Entry> entries) {
+        Set<Long> cancelled = new HashSet<>();
+        for (LedgerJournal.Entry entry : entries) {
+            if (entry.isCancellation()) {
+                cancelled.add(entry.transactionId());
+            }
+        }
+        if (cancelled.isEmpty()) {
+            return entries;
+        }
+        return entries.stream().filter(entry -> !cancelled.contains(entry.transactionId())).toList();
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.bankcards.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал переводов шарда в отображаемом в память файле фиксированного размера.
+ * 
+ * <p>Записи фиксированной длины: маркер, CRC32 содержимого, ID транзакции, ID карт, сумма в копейках, время.
+ * ID транзакций внутри шарда возрастают, поэтому при восстановлении записи с ID не больше
+ * контрольной точки из ledger_checkpoints пропускаются. После сброса в базу журнал
+ * начинает писаться с начала файла; оставшиеся старые записи отсекаются той же контрольной точкой.
+ * 
+ * <p>Класс не потокобезопасен: используется только потоком своего шарда.
+ * 
+ * @author system
+ */
+final class LedgerJournal implements Closeable {
+
+    static final int RECORD_SIZE = 48;
+
+    private static final int MAGIC = 0x4C444752;
+    private static final int PAYLOAD_OFFSET = 8;
+    private static final int PAYLOAD_SIZE = RECORD_SIZE - PAYLOAD_OFFSET;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final boolean forceOnWrite;
+    private final CRC32 crc = new CRC32();
+    private final byte[] payload = new byte[PAYLOAD_SIZE];
+
+    /**
+     * Запись журнала о переводе. Запись с отрицательной суммой - отмена перевода с тем же ID:
+     * оба перевода пропускаются при записи в базу.
+     */
+    record Entry(long transactionId, long fromCardId, long toCardId, long amountMinorUnits, long timestampMillis) {
+
+        boolean isCancellation() {
+            return amountMinorUnits < 0;
+        }
+
+        Entry cancellation() {
+            return new Entry(transactionId, fromCardId, toCardId, -amountMinorUnits, timestampMillis);
+        }
+    }
+
+    LedgerJournal(Path path, int capacityRecords, boolean forceOnWrite) throws IOException {
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacityRecords * RECORD_SIZE);
+        this.forceOnWrite = forceOnWrite;
+    }
+
+    boolean hasCapacity() {
+        return hasCapacity(1);
+    }
+
+    /**
+     * Проверяет, поместятся ли в журнал еще {@code records} записей.
+     */
+    boolean hasCapacity(int records) {
+        return buffer.remaining() / RECORD_SIZE >= records;
+    }
+
+    /**
+     * Дописывает запись в журнал.
+     *
+     * @param entry запись о переводе
+     * @throws IllegalStateException если журнал заполнен
+     */
+    void append(Entry entry) {
+        if (!hasCapacity()) {
+            throw new IllegalStateException("Ledger journal is full");
+        }
+        ByteBuffer body = ByteBuffer.wrap(payload);
+        body.putLong(entry.transactionId())
+                .putLong(entry.fromCardId())
+                .putLong(entry.toCardId())
+                .putLong(entry.amountMinorUnits())
+                .putLong(entry.timestampMillis());
+
+        crc.reset();
+        crc.update(payload);
+        buffer.putInt(MAGIC).putInt((int) crc.getValue()).put(payload);
+        if (forceOnWrite) {
+            buffer.force();
+        }
+    }
+
+    /**
+     * Читает с начала файла записи с ID транзакции больше заданного.
+     * Чтение останавливается на первой поврежденной или пустой записи.
+     *
+     * @param lastTransactionId ID последней транзакции, уже записанной в базу
+     * @return записи, которые еще не записаны в базу
+     */
+    List<Entry> readAfter(long lastTransactionId) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(0);
+        List<Entry> entries = new ArrayList<>();
+        while (view.remaining() >= RECORD_SIZE) {
+            int magic = view.getInt();
+            int checksum = view.getInt();
+            view.get(payload);
+            crc.reset();
+            crc.update(payload);
+            if (magic != MAGIC || checksum != (int) crc.getValue()) {
+                break;
+            }
+            ByteBuffer body = ByteBuffer.wrap(payload);
+            Entry entry = new Entry(body.getLong(), body.getLong(), body.getLong(), body.getLong(), body.getLong());
+            if (entry.transactionId() > lastTransactionId) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Начинает запись с начала файла. Вызывается только когда все записи уже в базе.
+     */
+    void reset() {
+        buffer.position(0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+}
@@ -0,0 +1,332 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.dto.TransferResponse;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.exception.ForbiddenException;
+import com.example.bankcards.exception.ResourceNotFoundException;
+import com.example.bankcards.util.LruCache;
+import com.example.bankcards.util.Money;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Шард журнала балансов: карты одной группы владельцев, обслуживаемые одним потоком.
+ * 
+ * <p>Все изменения состояния шарда выполняются в его потоке, поэтому блокировки не нужны.
+ * Перевод проверяется по балансам в памяти, записывается в журнал и подтверждается вызывающему;
+ * в базу данных переводы сбрасываются пачками - по размеру пачки или по таймеру.
+ * Лимиты карты-источника резервируются в {@link TransferLimitService} после проверки правил
+ * и снимаются, если перевод не попал в журнал.
+ * 
+ * @author system
+ */
+final class LedgerShard {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerShard.class);
+
+    private static final String SELECT_CARD_SQL = "SELECT " + CardRows.COLUMNS + " FROM cards WHERE id = ?";
+
+    private final int shardId;
+    private final LedgerJournal journal;
+    private final LedgerFlusher flusher;
+    private final TransferLimitService transferLimitService;
+    private final JdbcTemplate jdbcTemplate;
+    private final Function<Card, String> maskedNumbers;
+    private final int flushBatchSize;
+    private final int idBlockSize;
+    private final ScheduledExecutorService loop;
+
+    private final LruCache<Long, Card> cards;
+    private final List<LedgerJournal.Entry> pending = new ArrayList<>();
+    private final ArrayDeque<Long> transactionIds = new ArrayDeque<>();
+
+    LedgerShard(int shardId,
+                LedgerJournal journal,
+                LedgerFlusher flusher,
+                TransferLimitService transferLimitService,
+                JdbcTemplate jdbcTemplate,
+                Function<Card, String> maskedNumbers,
+                int flushBatchSize,
+                long flushIntervalMs,
+                int maxCards,
+                int idBlockSize) {
+        this.shardId = shardId;
+        this.journal = journal;
+        this.flusher = flusher;
+        this.transferLimitService = transferLimitService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.maskedNumbers = maskedNumbers;
+        this.flushBatchSize = flushBatchSize;
+        this.cards = new LruCache<>(maxCards);
+        this.idBlockSize = idBlockSize;
+        this.loop = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ledger-shard-" + shardId);
+            thread.setDaemon(true);
+            return thread;
+        });
+        loop.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Ставит перевод в очередь шарда.
+     * {@code onCompleted} вызывается в потоке шарда после записи перевода в журнал, но до изменения
+     * балансов в памяти; исключение из него отменяет перевод записью отмены в журнал.
+     */
+    CompletableFuture<TransferResponse> submit(Long userId, TransferRequest request,
+                                               Consumer<TransferResponse> onCompleted) {
+        return CompletableFuture.supplyAsync(() -> apply(userId, request, onCompleted), loop);
+    }
+
+    /**
+     * Ставит пакет переводов в очередь шарда. Пакет применяется целиком в потоке шарда.
+     */
+    CompletableFuture<List<TransferBatchExecutor.Outcome>> submitBatch(List<TransferBatchExecutor.Item> items,
+                                                                       boolean allOrNothing) {
+        return CompletableFuture.supplyAsync(() -> applyBatch(items, allOrNothing), loop);
+    }
+
+    /**
+     * Сбрасывает накопленные переводы в базу в потоке шарда.
+     */
+    CompletableFuture<Void> flushNow() {
+        return CompletableFuture.runAsync(this::flush, loop);
+    }
+
+    /**
+     * Удаляет карту из памяти; при следующем обращении она будет прочитана из базы.
+     */
+    void evict(Long cardId) {
+        loop.execute(() -> cards.remove(cardId));
+    }
+
+    /**
+     * Сбрасывает оставшиеся переводы в базу и останавливает поток шарда.
+     */
+    void shutdown() throws InterruptedException {
+        loop.execute(this::flushQuietly);
+        loop.shutdown();
+        if (!loop.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Ledger shard {} did not stop in time, {} transfer(s) remain in the journal", shardId, pending.size());
+        }
+    }
+
+    private TransferResponse apply(Long userId, TransferRequest request, Consumer<TransferResponse> onCompleted) {
+        Money amount = TransferRules.amountOf(request.getAmount());
+
+        Card fromCard = cardOf(request.getFromCardId(), userId, "From card not found with id: ");
+        Card toCard = cardOf(request.getToCardId(), userId, "To card not found with id: ");
+        TransferRules.validate(fromCard, toCard, amount, userId);
+        TransferLimitService.Reservation reservation = transferLimitService.reserve(fromCard.getId(), amount);
+
+        TransferResponse response;
+        LedgerJournal.Entry entry;
+        try {
+            // Место резервируется и под возможную запись отмены
+            ensureCapacity(2);
+            long timestamp = System.currentTimeMillis();
+            entry = new LedgerJournal.Entry(nextTransactionId(),
+                    fromCard.getId(), toCard.getId(), amount.minorUnits(), timestamp);
+            response = responseOf(entry, fromCard, toCard, amount);
+            journal.append(entry);
+        } catch (RuntimeException ex) {
+            // Перевод не попал в журнал: резерв лимитов возвращается
+            reservation.release();
+            throw ex;
+        }
+
+        // Сохранение ключа идемпотентности фиксируется сразу (у потока шарда нет транзакции),
+        // поэтому выполняется только после того, как перевод надежно записан в журнал
+        try {
+            onCompleted.accept(response);
+        } catch (RuntimeException ex) {
+            journal.append(entry.cancellation());
+            reservation.release();
+            throw ex;
+        }
+        pending.add(entry);
+        fromCard.setBalance(fromCard.getBalance().minus(amount));
+        toCard.setBalance(toCard.getBalance().plus(amount));
+
+        if (pending.size() >= flushBatchSize) {
+            flushQuietly();
+        }
+        return response;
+    }
+
+    /**
+     * Применяет пакет: переводы проверяются по очереди с учетом предыдущих переводов пакета,
+     * затем все принятые переводы записываются в журнал. В режиме allOrNothing первый отказ
+     * возвращает балансы в памяти к состоянию до пакета, и в журнал ничего не пишется.
+     * Резервы лимитов снимаются для всех переводов, которые не попали в журнал.
+     */
+    private List<TransferBatchExecutor.Outcome> applyBatch(List<TransferBatchExecutor.Item> items, boolean allOrNothing) {
+        ensureCapacity(items.size());
+        long timestamp = System.currentTimeMillis();
+
+        // Карты пакета удерживаются здесь, даже если кэш шарда вытеснит их посреди пакета
+        Map<Long, Card> batchCards = new HashMap<>();
+        Map<Long, Money> originalBalances = new HashMap<>();
+        List<LedgerJournal.Entry> entries = new ArrayList<>(items.size());
+        List<TransferLimitService.Reservation> reservations = new ArrayList<>(items.size());
+        List<TransferBatchExecutor.Outcome> outcomes = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            TransferBatchExecutor.Item item = items.get(i);
+            TransferRequest request = item.request();
+            try {
+                Money amount = TransferRules.amountOf(request.getAmount());
+                Card fromCard = batchCards.computeIfAbsent(request.getFromCardId(),
+                        id -> cardOf(id, item.userId(), "From card not found with id: "));
+                Card toCard = batchCards.computeIfAbsent(request.getToCardId(),
+                        id -> cardOf(id, item.userId(), "To card not found with id: "));
+                TransferRules.validate(fromCard, toCard, amount, item.userId());
+                reservations.add(transferLimitService.reserve(fromCard.getId(), amount));
+
+                originalBalances.putIfAbsent(fromCard.getId(), fromCard.getBalance());
+                originalBalances.putIfAbsent(toCard.getId(), toCard.getBalance());
+                fromCard.setBalance(fromCard.getBalance().minus(amount));
+                toCard.setBalance(toCard.getBalance().plus(amount));
+
+                LedgerJournal.Entry entry = new LedgerJournal.Entry(nextTransactionId(),
+                        fromCard.getId(), toCard.getId(), amount.minorUnits(), timestamp);
+                entries.add(entry);
+                outcomes.add(new TransferBatchExecutor.Outcome(responseOf(entry, fromCard, toCard, amount), null));
+            } catch (ResourceNotFoundException | ForbiddenException | BadRequestException ex) {
+                outcomes.add(new TransferBatchExecutor.Outcome(null, ex));
+                if (allOrNothing) {
+                    reservations.forEach(TransferLimitService.Reservation::release);
+                    originalBalances.forEach((cardId, balance) -> batchCards.get(cardId).setBalance(balance));
+                    return TransferBatchExecutor.rolledBack(outcomes, items.size(), i);
+                }
+            }
+        }
+
+        for (int i = 0; i < entries.size(); i++) {
+            LedgerJournal.Entry entry = entries.get(i);
+            try {
+                journal.append(entry);
+            } catch (RuntimeException ex) {
+                // Переводы, не попавшие в журнал, отменяются в памяти и в лимитах
+                for (int j = i; j < entries.size(); j++) {
+                    LedgerJournal.Entry rejected = entries.get(j);
+                    Money amount = Money.ofMinor(rejected.amountMinorUnits());
+                    Card fromCard = batchCards.get(rejected.fromCardId());
+                    Card toCard = batchCards.get(rejected.toCardId());
+                    fromCard.setBalance(fromCard.getBalance().plus(amount));
+                    toCard.setBalance(toCard.getBalance().minus(amount));
+                    reservations.get(j).release();
+                }
+                throw ex;
+            }
+            pending.add(entry);
+        }
+        if (pending.size() >= flushBatchSize) {
+            flushQuietly();
+        }
+        return outcomes;
+    }
+
+    private TransferResponse responseOf(LedgerJournal.Entry entry, Card fromCard, Card toCard, Money amount) {
+        TransferResponse response = new TransferResponse();
+        response.setId(entry.transactionId());
+        response.setFromCardId(fromCard.getId());
+        response.setFromCardMaskedNumber(maskedNumbers.apply(fromCard));
+        response.setToCardId(toCard.getId());
+        response.setToCardMaskedNumber(maskedNumbers.apply(toCard));
+        response.setAmount(amount.toBigDecimal());
+        response.setTransactionDate(LocalDateTime.ofInstant(Instant.ofEpochMilli(entry.timestampMillis()), ZoneId.systemDefault()));
+        response.setMessage("Transfer completed successfully");
+        return response;
+    }
+
+    /**
+     * Освобождает журнал, если в нем не хватает места для {@code records} записей.
+     */
+    private void ensureCapacity(int records) {
+        if (!journal.hasCapacity(records)) {
+            flush();
+        }
+        if (!journal.hasCapacity(records)) {
+            throw new IllegalStateException("Ledger journal cannot hold " + records + " transfer(s)");
+        }
+    }
+
+    /**
+     * Возвращает карту из памяти или читает ее из базы с учетом еще не сброшенных переводов.
+     * Чужие карты в памяти не сохраняются: перевод с ними будет отклонен проверкой владельца.
+     * Поэтому карта хранится и меняется только в шарде своего владельца. При заполнении кэша
+     * вытесняется одна давно не использованная карта.
+     */
+    private Card cardOf(Long cardId, Long userId, String notFoundMessage) {
+        Card card = cards.get(cardId);
+        if (card != null) {
+            return card;
+        }
+
+        List<Card> rows = jdbcTemplate.query(SELECT_CARD_SQL, (rs, rowNum) -> CardRows.map(rs), cardId);
+        if (rows.isEmpty()) {
+            throw new ResourceNotFoundException(notFoundMessage + cardId);
+        }
+        card = rows.get(0);
+        card.setBalance(card.getBalance().plus(pendingDelta(cardId)));
+
+        if (card.getOwner().getId().equals(userId)) {
+            cards.put(cardId, card);
+        }
+        return card;
+    }
+
+    private Money pendingDelta(Long cardId) {
+        long delta = 0;
+        for (LedgerJournal.Entry entry : pending) {
+            if (entry.fromCardId() == cardId) {
+                delta -= entry.amountMinorUnits();
+            }
+            if (entry.toCardId() == cardId) {
+                delta += entry.amountMinorUnits();
+            }
+        }
+        return Money.ofMinor(delta);
+    }
+
+    private long nextTransactionId() {
+        if (transactionIds.isEmpty()) {
+            transactionIds.addAll(flusher.allocateTransactionIds(idBlockSize));
+        }
+        return transactionIds.removeFirst();
+    }
+
+    private void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        flusher.flush(shardId, pending);
+        pending.clear();
+        journal.reset();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Ledger shard {} failed to flush {} transfer(s), will retry", shardId, pending.size(), e);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.bankcards.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Событие из outbox, передаваемое во внешний приемник.
+ *
+ * @param id ID события (возрастает в порядке записи)
+ * @param eventType тип события
+ * @param aggregateId ID сущности, к которой относится событие
+ * @param payload данные события в формате JSON
+ * @param createdAt момент записи события
+ * @author system
+ */
+public record OutboxMessage(long id, String eventType, long aggregateId, String payload, LocalDateTime createdAt) {
+}
@@ -0,0 +1,175 @@
+package com.example.bankcards.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Доставка событий из outbox_events в {@link OutboxSink}.
+ * 
+ * <p>Порция событий в порядке ID захватывается одним коротким UPDATE через
+ * {@code FOR UPDATE SKIP LOCKED}: событиям проставляется срок захвата {@code claimed_until}.
+ * Приемнику порция передается вне транзакции, поэтому медленный приемник не держит
+ * блокировки и соединение с базой. После доставки события удаляются; если приемник отказал,
+ * захват снимается и порция будет доставлена повторно. Если узел упал между доставкой
+ * и удалением, порцию после истечения {@code claim-timeout} доставит другой узел.
+ * 
+ * <p>Доставка выполняется не менее одного раза, а при работе нескольких узлов порции
+ * разбираются параллельно и порядок событий между порциями не гарантируется - в том числе
+ * для одной карты. Захват по aggregate_id порядок не восстановил бы: перевод затрагивает
+ * две карты, а его событие ключуется ID транзакции. Поэтому потребители дедуплицируют
+ * и упорядочивают события по ID (см. {@link OutboxWriter}).
+ * 
+ * <p>Метрики: {@code bankcards.outbox.published} - доставленные события,
+ * {@code bankcards.outbox.lag} - задержка от записи события до доставки,
+ * {@code bankcards.outbox.failures} - события, отклоненные приемником.
+ * 
+ * @author system
+ */
+@Component
+public class OutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private static final String CLAIM_EVENTS_SQL =
+            "UPDATE outbox_events SET claimed_until = ? WHERE id IN (" +
+            "SELECT id FROM outbox_events WHERE claimed_until IS NULL OR claimed_until < ? " +
+            "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id, event_type, aggregate_id, payload, created_at";
+
+    private static final String DELETE_EVENT_SQL = "DELETE FROM outbox_events WHERE id = ?";
+
+    private static final String RELEASE_EVENT_SQL = "UPDATE outbox_events SET claimed_until = NULL WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxSink sink;
+    private final Counter publishedCounter;
+    private final Counter failureCounter;
+    private final Timer lagTimer;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final Duration claimTimeout;
+
+    /**
+     * Конструктор с внедрением зависимостей и регистрацией метрик.
+     *
+     * @param jdbcTemplate JDBC-шаблон
+     * @param transactionManager менеджер транзакций (каждая порция в своей транзакции)
+     * @param sink приемник событий
+     * @param meterRegistry реестр метрик
+     * @param enabled включена ли доставка на этом узле
+     * @param batchSize количество событий в порции
+     * @param maxBatchesPerRun максимальное количество порций за один запуск
+     * @param claimTimeout срок захвата порции узлом
+     */
+    public OutboxRelay(JdbcTemplate jdbcTemplate,
+                       PlatformTransactionManager transactionManager,
+                       OutboxSink sink,
+                       MeterRegistry meterRegistry,
+                       @Value("${outbox.relay.enabled:true}") boolean enabled,
+                       @Value("${outbox.relay.batch-size:500}") int batchSize,
+                       @Value("${outbox.relay.max-batches-per-run:20}") int maxBatchesPerRun,
+                       @Value("${outbox.relay.claim-timeout:PT1M}") Duration claimTimeout) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.sink = sink;
+        this.publishedCounter = Counter.builder("bankcards.outbox.published")
+                .description("Outbox events delivered to the sink")
+                .register(meterRegistry);
+        this.failureCounter = Counter.builder("bankcards.outbox.failures")
+                .description("Outbox events rejected by the sink")
+                .register(meterRegistry);
+        this.lagTimer = Timer.builder("bankcards.outbox.lag")
+                .description("Delay between writing an outbox event and delivering it")
+                .register(meterRegistry);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.claimTimeout = claimTimeout;
+    }
+
+    /**
+     * Доставляет накопленные события порциями.
+     */
+    @Scheduled(fixedDelayString = "${outbox.relay.poll-interval:PT0.5S}")
+    public void relay() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                if (relayBatch() < batchSize) {
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Outbox delivery failed, will retry on the next run", e);
+        }
+    }
+
+    /**
+     * Захватывает, доставляет и удаляет одну порцию событий.
+     *
+     * @return количество доставленных событий
+     * @throws RuntimeException если приемник отказал (захват порции при этом снимается)
+     */
+    int relayBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxMessage> messages = new ArrayList<>(jdbcTemplate.query(CLAIM_EVENTS_SQL, (rs, rowNum) -> new OutboxMessage(
+                rs.getLong("id"),
+                rs.getString("event_type"),
+                rs.getLong("aggregate_id"),
+                rs.getString("payload"),
+                rs.getTimestamp("created_at").toLocalDateTime()),
+                Timestamp.valueOf(now.plus(claimTimeout)), Timestamp.valueOf(now), batchSize));
+        if (messages.isEmpty()) {
+            return 0;
+        }
+        // RETURNING не сохраняет порядок подзапроса
+        messages.sort(Comparator.comparingLong(OutboxMessage::id));
+
+        List<Object[]> ids = new ArrayList<>(messages.size());
+        for (OutboxMessage message : messages) {
+            ids.add(new Object[]{message.id()});
+        }
+        try {
+            sink.publish(messages);
+        } catch (RuntimeException e) {
+            failureCounter.increment(messages.size());
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(RELEASE_EVENT_SQL, ids));
+            throw e;
+        }
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(DELETE_EVENT_SQL, ids));
+
+        publishedCounter.increment(messages.size());
+        recordLag(messages);
+        return messages.size();
+    }
+
+    /**
+     * Учитывает задержку доставки событий после фиксации порции.
+     */
+    private void recordLag(List<OutboxMessage> messages) {
+        LocalDateTime now = LocalDateTime.now();
+        for (OutboxMessage message : messages) {
+            lagTimer.record(Duration.between(message.createdAt(), now));
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.bankcards.service;
+
+import java.util.List;
+
+/**
+ * Приемник событий outbox. Доставка выполняется не менее одного раза: если publish
+ * завершился исключением или узел упал до подтверждения, порция будет передана повторно.
+ * Порции разных узлов могут доставляться параллельно и не по порядку.
+ *
+ * @author system
+ */
+public interface OutboxSink {
+
+    /**
+     * Доставляет порцию событий. Возврат без исключения означает, что события приняты.
+     *
+     * @param messages события в порядке возрастания ID
+     */
+    void publish(List<OutboxMessage> messages);
+}
@@ -0,0 +1,110 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Запись событий в таблицу outbox_events.
+ * Вызывается внутри транзакции изменения данных, поэтому событие фиксируется вместе с ним или не фиксируется вовсе.
+ *
+ * <p>{@link OutboxRelay} доставляет события не менее одного раза и без общего порядка между
+ * порциями. Потребители обязаны отбрасывать повторы по ID события и упорядочивать события
+ * по ID: ID выдается последовательностью при записи события.
+ *
+ * @author system
+ */
+@Component
+public class OutboxWriter {
+
+    public static final String TRANSFER_COMPLETED = "TRANSFER_COMPLETED";
+    public static final String CARD_STATUS_CHANGED = "CARD_STATUS_CHANGED";
+    public static final String CARD_DELETED = "CARD_DELETED";
+
+    private static final String INSERT_EVENT_SQL =
+            "INSERT INTO outbox_events (event_type, aggregate_id, payload, created_at) VALUES (?, ?, ?, ?)";
+
+    /**
+     * Данные события о выполненном переводе.
+     */
+    public record TransferCompleted(Long transactionId, Long fromCardId, Long toCardId,
+                                    BigDecimal amount, LocalDateTime transactionDate) {
+    }
+
+    private record CardStatusChanged(Long cardId, Card.CardStatus status) {
+    }
+
+    private record CardDeleted(Long cardId) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Конструктор с внедрением зависимостей.
+     *
+     * @param jdbcTemplate JDBC-шаблон
+     * @param objectMapper JSON-сериализатор данных событий
+     */
+    public OutboxWriter(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Записывает события о выполненных переводах одним пакетом.
+     *
+     * @param transfers выполненные переводы
+     */
+    public void appendTransfers(List<TransferCompleted> transfers) {
+        if (transfers.isEmpty()) {
+            return;
+        }
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<Object[]> rows = new ArrayList<>(transfers.size());
+        for (TransferCompleted transfer : transfers) {
+            rows.add(new Object[]{TRANSFER_COMPLETED, transfer.transactionId(), toJson(transfer), now});
+        }
+        jdbcTemplate.batchUpdate(INSERT_EVENT_SQL, rows);
+    }
+
+    /**
+     * Записывает событие об изменении статуса карты.
+     *
+     * @param cardId ID карты
+     * @param status новый статус
+     */
+    public void appendCardStatusChanged(Long cardId, Card.CardStatus status) {
+        append(CARD_STATUS_CHANGED, cardId, new CardStatusChanged(cardId, status));
+    }
+
+    /**
+     * Записывает событие об удалении карты.
+     *
+     * @param cardId ID карты
+     */
+    public void appendCardDeleted(Long cardId) {
+        append(CARD_DELETED, cardId, new CardDeleted(cardId));
+    }
+
+    private void append(String eventType, Long aggregateId, Object payload) {
+        jdbcTemplate.update(INSERT_EVENT_SQL, eventType, aggregateId, toJson(payload),
+                new Timestamp(System.currentTimeMillis()));
+    }
+
+    private String toJson(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize outbox event", e);
+        }
+    }
+}
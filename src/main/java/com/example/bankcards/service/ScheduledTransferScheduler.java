@@ -0,0 +1,262 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.entity.ScheduledTransfer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Выполнение наступивших отложенных и регулярных переводов.
+ * 
+ * <p>Наступившие записи выбираются порциями через {@code FOR UPDATE SKIP LOCKED}: несколько узлов
+ * разбирают разные порции, а захваченные строки остаются заблокированными до фиксации порции.
+ * Переводы порции выполняются одной транзакцией через {@link TransferBatchExecutor} в режиме
+ * best-effort (те же правила и лимиты, что у обычных переводов), в той же транзакции записывается
+ * результат и следующий момент выполнения. При включенном ledger.enabled переводы выполняет
+ * {@link LedgerEngine}, а следующий момент выполнения фиксируется до них.
+ * 
+ * <p>Чтобы пик в начале месяца не вытеснял интерактивные переводы, за один запуск обрабатывается
+ * не больше {@code max-batches-per-run} порций с паузой между ними; остаток разбирается следующими
+ * запусками. Пропущенные выполнения (например, после простоя) не догоняются: следующий момент
+ * сдвигается на первый после текущего времени.
+ * 
+ * @author system
+ */
+@Component
+public class ScheduledTransferScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(ScheduledTransferScheduler.class);
+
+    private static final int MAX_ERROR_LENGTH = 255;
+
+    private static final String CLAIM_DUE_SQL =
+            "SELECT id, user_id, from_card_id, to_card_id, amount, recurrence, start_at, next_run_at " +
+            "FROM scheduled_transfers WHERE active AND next_run_at <= ? " +
+            "ORDER BY next_run_at LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private static final String UPDATE_RUN_SQL =
+            "UPDATE scheduled_transfers SET next_run_at = ?, active = ?, last_run_at = ?, " +
+            "last_status = ?, last_error = ?, updated_at = ? WHERE id = ?";
+
+    private static final String ADVANCE_RUN_SQL =
+            "UPDATE scheduled_transfers SET next_run_at = ?, active = ?, updated_at = ? WHERE id = ?";
+
+    private record DueTransfer(Long id, Long userId, Long fromCardId, Long toCardId, BigDecimal amount,
+                               ScheduledTransfer.Recurrence recurrence, LocalDateTime startAt,
+                               LocalDateTime nextRunAt) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransferBatchExecutor batchExecutor;
+    private final ObjectProvider<LedgerEngine> ledgerEngine;
+    private final Counter completedCounter;
+    private final Counter failedCounter;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final Duration batchPause;
+
+    /**
+     * Конструктор с внедрением зависимостей.
+     *
+     * @param jdbcTemplate JDBC-шаблон
+     * @param transactionManager менеджер транзакций (каждая порция в своей транзакции)
+     * @param batchExecutor исполнитель пакетов переводов
+     * @param ledgerEngine журнал балансов в памяти (доступен при ledger.enabled=true)
+     * @param meterRegistry реестр метрик
+     * @param enabled включено ли выполнение отложенных переводов на этом узле
+     * @param batchSize количество переводов в порции
+     * @param maxBatchesPerRun максимальное количество порций за один запуск
+     * @param batchPause пауза между порциями
+     */
+    public ScheduledTransferScheduler(JdbcTemplate jdbcTemplate,
+                                      PlatformTransactionManager transactionManager,
+                                      TransferBatchExecutor batchExecutor,
+                                      ObjectProvider<LedgerEngine> ledgerEngine,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${transfer.scheduled.enabled:true}") boolean enabled,
+                                      @Value("${transfer.scheduled.batch-size:200}") int batchSize,
+                                      @Value("${transfer.scheduled.max-batches-per-run:50}") int maxBatchesPerRun,
+                                      @Value("${transfer.scheduled.batch-pause:50ms}") Duration batchPause) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchExecutor = batchExecutor;
+        this.ledgerEngine = ledgerEngine;
+        this.completedCounter = Counter.builder("bankcards.transfer.scheduled")
+                .description("Scheduled transfer runs")
+                .tag("outcome", "completed")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("bankcards.transfer.scheduled")
+                .description("Scheduled transfer runs")
+                .tag("outcome", "failed")
+                .register(meterRegistry);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.batchPause = batchPause;
+    }
+
+    /**
+     * Выполняет наступившие переводы порциями.
+     */
+    @Scheduled(fixedDelayString = "${transfer.scheduled.poll-interval:PT10S}")
+    public void runDueTransfers() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                if (runBatch(LocalDateTime.now()) < batchSize) {
+                    return;
+                }
+                Thread.sleep(batchPause.toMillis());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (DataAccessException e) {
+            log.error("Scheduled transfer batch failed, will retry on the next run", e);
+        }
+    }
+
+    /**
+     * Захватывает и выполняет одну порцию наступивших переводов.
+     *
+     * @param now текущий момент
+     * @return количество обработанных переводов
+     */
+    int runBatch(LocalDateTime now) {
+        LedgerEngine ledger = ledgerEngine.getIfAvailable();
+        if (ledger != null) {
+            return runLedgerBatch(ledger, now);
+        }
+        Integer processed = transactionTemplate.execute(status -> {
+            List<DueTransfer> due = claimDue(now);
+            if (due.isEmpty()) {
+                return 0;
+            }
+            List<TransferBatchExecutor.Outcome> outcomes = batchExecutor.execute(itemsOf(due), false);
+            jdbcTemplate.batchUpdate(UPDATE_RUN_SQL, runUpdates(due, outcomes, now));
+            return due.size();
+        });
+        return processed != null ? processed : 0;
+    }
+
+    /**
+     * Выполняет порцию через журнал балансов. Журнал подтверждает переводы вне транзакции базы,
+     * поэтому следующий момент выполнения фиксируется до переводов: сбой между переводом
+     * и записью результата приводит к пропуску выполнения, а не к повторному списанию.
+     */
+    private int runLedgerBatch(LedgerEngine ledger, LocalDateTime now) {
+        List<DueTransfer> due = transactionTemplate.execute(status -> {
+            List<DueTransfer> claimed = claimDue(now);
+            List<Object[]> advances = new ArrayList<>(claimed.size());
+            for (DueTransfer transfer : claimed) {
+                LocalDateTime next = nextRunAfter(transfer, now);
+                advances.add(new Object[]{
+                        Timestamp.valueOf(next != null ? next : transfer.nextRunAt()),
+                        next != null,
+                        Timestamp.valueOf(now),
+                        transfer.id()});
+            }
+            jdbcTemplate.batchUpdate(ADVANCE_RUN_SQL, advances);
+            return claimed;
+        });
+        if (due == null || due.isEmpty()) {
+            return 0;
+        }
+
+        List<TransferBatchExecutor.Outcome> outcomes;
+        try {
+            outcomes = ledger.execute(itemsOf(due), false);
+        } catch (RuntimeException e) {
+            log.error("Ledger failed to execute {} scheduled transfer(s)", due.size(), e);
+            outcomes = due.stream().map(transfer -> new TransferBatchExecutor.Outcome(null, e)).toList();
+        }
+        List<Object[]> updates = runUpdates(due, outcomes, now);
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPDATE_RUN_SQL, updates));
+        return due.size();
+    }
+
+    private List<DueTransfer> claimDue(LocalDateTime now) {
+        return jdbcTemplate.query(CLAIM_DUE_SQL, (rs, rowNum) -> new DueTransfer(
+                rs.getLong("id"),
+                rs.getLong("user_id"),
+                rs.getLong("from_card_id"),
+                rs.getLong("to_card_id"),
+                rs.getBigDecimal("amount"),
+                ScheduledTransfer.Recurrence.valueOf(rs.getString("recurrence")),
+                rs.getTimestamp("start_at").toLocalDateTime(),
+                rs.getTimestamp("next_run_at").toLocalDateTime()), Timestamp.valueOf(now), batchSize);
+    }
+
+    private static List<TransferBatchExecutor.Item> itemsOf(List<DueTransfer> due) {
+        return due.stream()
+                .map(transfer -> new TransferBatchExecutor.Item(transfer.userId(),
+                        new TransferRequest(transfer.fromCardId(), transfer.toCardId(), transfer.amount())))
+                .toList();
+    }
+
+    private List<Object[]> runUpdates(List<DueTransfer> due, List<TransferBatchExecutor.Outcome> outcomes,
+                                      LocalDateTime now) {
+        Timestamp ranAt = Timestamp.valueOf(now);
+        List<Object[]> updates = new ArrayList<>(due.size());
+        for (int i = 0; i < due.size(); i++) {
+            DueTransfer transfer = due.get(i);
+            TransferBatchExecutor.Outcome outcome = outcomes.get(i);
+            LocalDateTime next = nextRunAfter(transfer, now);
+            if (outcome.isSuccess()) {
+                completedCounter.increment();
+            } else {
+                failedCounter.increment();
+            }
+            updates.add(new Object[]{
+                    Timestamp.valueOf(next != null ? next : transfer.nextRunAt()),
+                    next != null,
+                    ranAt,
+                    (outcome.isSuccess() ? ScheduledTransfer.RunStatus.COMPLETED : ScheduledTransfer.RunStatus.FAILED).name(),
+                    outcome.isSuccess() ? null : truncate(outcome.error().getMessage()),
+                    ranAt,
+                    transfer.id()});
+        }
+        return updates;
+    }
+
+    private static LocalDateTime nextRunAfter(DueTransfer transfer, LocalDateTime now) {
+        return nextRunAfter(transfer.recurrence(), transfer.startAt(), transfer.nextRunAt(), now);
+    }
+
+    /**
+     * Первый момент выполнения после scheduledAt и now по расписанию, начатому в startAt.
+     *
+     * @return следующий момент или null, если перевод разовый
+     */
+    static LocalDateTime nextRunAfter(ScheduledTransfer.Recurrence recurrence, LocalDateTime startAt,
+                                      LocalDateTime scheduledAt, LocalDateTime now) {
+        return recurrence.nextAfter(startAt, scheduledAt.isAfter(now) ? scheduledAt : now);
+    }
+
+    private static String truncate(String message) {
+        if (message == null || message.length() <= MAX_ERROR_LENGTH) {
+            return message;
+        }
+        return message.substring(0, MAX_ERROR_LENGTH);
+    }
+}
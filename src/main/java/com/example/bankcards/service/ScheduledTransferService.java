@@ -0,0 +1,147 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.ScheduledTransferRequest;
+import com.example.bankcards.dto.ScheduledTransferResponse;
+import com.example.bankcards.entity.ScheduledTransfer;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.exception.ForbiddenException;
+import com.example.bankcards.exception.ResourceNotFoundException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.ScheduledTransferRepository;
+import com.example.bankcards.security.CurrentUser;
+import com.example.bankcards.security.CurrentUserProvider;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Сервис управления отложенными и регулярными переводами пользователя.
+ * Выполняет их {@link ScheduledTransferScheduler}.
+ * 
+ * @author system
+ */
+@Service
+public class ScheduledTransferService {
+
+    private final ScheduledTransferRepository scheduledTransferRepository;
+    private final CardRepository cardRepository;
+    private final CurrentUserProvider currentUserProvider;
+
+    /**
+     * Конструктор с внедрением зависимостей.
+     *
+     * @param scheduledTransferRepository репозиторий отложенных переводов
+     * @param cardRepository репозиторий карт
+     * @param currentUserProvider источник текущего пользователя запроса
+     */
+    public ScheduledTransferService(ScheduledTransferRepository scheduledTransferRepository,
+                                    CardRepository cardRepository,
+                                    CurrentUserProvider currentUserProvider) {
+        this.scheduledTransferRepository = scheduledTransferRepository;
+        this.cardRepository = cardRepository;
+        this.currentUserProvider = currentUserProvider;
+    }
+
+    /**
+     * Получает отложенные переводы текущего пользователя.
+     *
+     * @return список отложенных переводов
+     */
+    @Transactional(readOnly = true)
+    public List<ScheduledTransferResponse> getScheduledTransfers() {
+        return scheduledTransferRepository.findByUserIdOrderByIdAsc(currentUserProvider.get().getId()).stream()
+                .map(ScheduledTransferResponse::fromScheduledTransfer)
+                .toList();
+    }
+
+    /**
+     * Получает отложенный перевод по ID.
+     *
+     * @param id ID отложенного перевода
+     * @return отложенный перевод
+     * @throws ResourceNotFoundException если перевод не найден
+     * @throws ForbiddenException если перевод принадлежит другому пользователю
+     */
+    @Transactional(readOnly = true)
+    public ScheduledTransferResponse getScheduledTransfer(Long id) {
+        return ScheduledTransferResponse.fromScheduledTransfer(findOwn(id));
+    }
+
+    /**
+     * Создает отложенный перевод между картами текущего пользователя.
+     * Остальные правила перевода (статус, срок действия, баланс, лимиты) проверяются при выполнении.
+     *
+     * @param request карты, сумма, периодичность и момент первого выполнения
+     * @return созданный отложенный перевод
+     * @throws ForbiddenException если карты не принадлежат текущему пользователю
+     * @throws BadRequestException если карты совпадают
+     */
+    @Transactional
+    public ScheduledTransferResponse createScheduledTransfer(ScheduledTransferRequest request) {
+        ScheduledTransfer transfer = new ScheduledTransfer();
+        transfer.setUserId(currentUserProvider.get().getId());
+        apply(transfer, request);
+        return ScheduledTransferResponse.fromScheduledTransfer(scheduledTransferRepository.save(transfer));
+    }
+
+    /**
+     * Изменяет отложенный перевод.
+     *
+     * @param id ID отложенного перевода
+     * @param request новые параметры перевода
+     * @return измененный отложенный перевод
+     * @throws ResourceNotFoundException если перевод не найден
+     * @throws ForbiddenException если перевод или карты принадлежат другому пользователю
+     * @throws BadRequestException если карты совпадают
+     */
+    @Transactional
+    public ScheduledTransferResponse updateScheduledTransfer(Long id, ScheduledTransferRequest request) {
+        ScheduledTransfer transfer = findOwn(id);
+        apply(transfer, request);
+        return ScheduledTransferResponse.fromScheduledTransfer(scheduledTransferRepository.save(transfer));
+    }
+
+    /**
+     * Удаляет отложенный перевод.
+     *
+     * @param id ID отложенного перевода
+     * @throws ResourceNotFoundException если перевод не найден
+     * @throws ForbiddenException если перевод принадлежит другому пользователю
+     */
+    @Transactional
+    public void deleteScheduledTransfer(Long id) {
+        scheduledTransferRepository.delete(findOwn(id));
+    }
+
+    private ScheduledTransfer findOwn(Long id) {
+        ScheduledTransfer transfer = scheduledTransferRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Scheduled transfer not found with id: " + id));
+        CurrentUser currentUser = currentUserProvider.get();
+        if (!transfer.getUserId().equals(currentUser.getId())) {
+            throw new ForbiddenException("Access denied: You can only manage your own scheduled transfers");
+        }
+        return transfer;
+    }
+
+    private void apply(ScheduledTransfer transfer, ScheduledTransferRequest request) {
+        if (request.getFromCardId().equals(request.getToCardId())) {
+            throw new BadRequestException("Cannot transfer to the same card");
+        }
+        Long fromOwnerId = cardRepository.findOwnerIdById(request.getFromCardId())
+                .orElseThrow(() -> new ResourceNotFoundException("From card not found with id: " + request.getFromCardId()));
+        Long toOwnerId = cardRepository.findOwnerIdById(request.getToCardId())
+                .orElseThrow(() -> new ResourceNotFoundException("To card not found with id: " + request.getToCardId()));
+        if (!fromOwnerId.equals(transfer.getUserId()) || !toOwnerId.equals(transfer.getUserId())) {
+            throw new ForbiddenException("You can only transfer between your own cards");
+        }
+
+        transfer.setFromCardId(request.getFromCardId());
+        transfer.setToCardId(request.getToCardId());
+        transfer.setAmount(request.getAmount());
+        transfer.setRecurrence(request.getRecurrence());
+        transfer.setStartAt(request.getNextRunAt());
+        transfer.setNextRunAt(request.getNextRunAt());
+        transfer.setActive(request.getActive() == null || request.getActive());
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.bankcards.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Запись выписок диапазона карт в сжатый файл NDJSON: одна строка на карту.
+ *
+ * <p>Строка пишется потоково по мере чтения переводов:
+ * {@code {"cardId", "maskedCardNumber", "month", "openingBalance", "transactions": [...], "closingBalance"}},
+ * поэтому расход памяти не зависит от количества переводов карты. У карты, выпущенной в течение
+ * месяца, есть поле {@code "issuedAt"}, а openingBalance - баланс при выпуске.
+ * Исходящие переводы записываются с отрицательной суммой.
+ *
+ * @author system
+ */
+final class StatementFileWriter implements Closeable {
+
+    private final JsonGenerator generator;
+    private final String month;
+    private BigDecimal balance;
+    private boolean cardOpen;
+    private int cards;
+
+    StatementFileWriter(JsonFactory jsonFactory, Path file, YearMonth month) throws IOException {
+        OutputStream out = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+        this.generator = jsonFactory.createGenerator(out);
+        this.generator.setRootValueSeparator(new SerializedString("\n"));
+        this.month = month.toString();
+    }
+
+    /**
+     * Начинает выписку карты.
+     *
+     * @param cardId ID карты
+     * @param maskedCardNumber маскированный номер карты
+     * @param openingBalance баланс на начало месяца или на момент выпуска
+     * @param issuedAt момент выпуска, если карта выпущена в течение месяца, иначе null
+     */
+    void beginCard(long cardId, String maskedCardNumber, BigDecimal openingBalance,
+                   LocalDateTime issuedAt) throws IOException {
+        endCard();
+        balance = openingBalance;
+        generator.writeStartObject();
+        generator.writeNumberField("cardId", cardId);
+        generator.writeStringField("maskedCardNumber", maskedCardNumber);
+        generator.writeStringField("month", month);
+        if (issuedAt != null) {
+            generator.writeStringField("issuedAt", issuedAt.toString());
+        }
+        generator.writeNumberField("openingBalance", openingBalance);
+        generator.writeArrayFieldStart("transactions");
+        cardOpen = true;
+        cards++;
+    }
+
+    /**
+     * Добавляет перевод в выписку текущей карты.
+     *
+     * @param transactionId ID перевода
+     * @param date дата перевода
+     * @param counterpartyCardId ID второй карты перевода
+     * @param signedAmount сумма: положительная для зачисления, отрицательная для списания
+     */
+    void transaction(long transactionId, LocalDateTime date, long counterpartyCardId,
+                     BigDecimal signedAmount) throws IOException {
+        balance = balance.add(signedAmount);
+        generator.writeStartObject();
+        generator.writeNumberField("id", transactionId);
+        generator.writeStringField("date", date.toString());
+        generator.writeNumberField("counterpartyCardId", counterpartyCardId);
+        generator.writeNumberField("amount", signedAmount);
+        generator.writeNumberField("balance", balance);
+        generator.writeEndObject();
+    }
+
+    /**
+     * Завершает выписку текущей карты, записывая баланс на конец месяца.
+     */
+    void endCard() throws IOException {
+        if (!cardOpen) {
+            return;
+        }
+        generator.writeEndArray();
+        generator.writeNumberField("closingBalance", balance);
+        generator.writeEndObject();
+        cardOpen = false;
+    }
+
+    /**
+     * Количество карт, выписки которых начаты в файле.
+     */
+    int cards() {
+        return cards;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            endCard();
+            if (cards > 0) {
+                generator.writeRaw('\n');
+            }
+        } finally {
+            generator.close();
+        }
+    }
+}
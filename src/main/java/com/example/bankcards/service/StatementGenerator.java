@@ -0,0 +1,368 @@
+package com.example.bankcards.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Формирование месячных выписок по всем картам: баланс на начало месяца, переводы и баланс на конец.
+ *
+ * <p>Пространство ID карт делится на диапазоны фиксированного размера, которые обрабатываются
+ * параллельно в {@link ForkJoinPool}. Для каждого диапазона одним запросом считаются балансы
+ * на начало месяца, затем переводы диапазона читаются курсором (fetch size) в порядке
+ * (карта, дата, ID) и сразу пишутся в сжатый файл {@code cards-<from>-<to>.ndjson.gz}.
+ * Оба запроса диапазона выполняются в одной транзакции REPEATABLE READ, поэтому видят
+ * один снимок данных.
+ *
+ * <p>Баланс на начало месяца считается от последнего снимка card_balance_snapshots до начала
+ * месяца плюс переводы между снимком и началом месяца; для карт без снимка - от текущего
+ * баланса минус переводы с начала месяца. У карты, выпущенной в течение месяца, начальный
+ * баланс - баланс при выпуске, а в выписке указывается момент выпуска.
+ *
+ * <p>Перед формированием переводы из журнала балансов этого узла ({@link LedgerEngine})
+ * сбрасываются в базу. Журналы других узлов сбрасываются ими самими с периодом
+ * ledger.flush.interval-ms, что намного меньше отступа запуска от конца месяца.
+ *
+ * <p>Файл диапазона пишется во временный файл и переименовывается после записи: готовый файл
+ * означает завершенный диапазон, и повторный запуск пропускает его. Размер диапазона
+ * записывается в каталог месяца ({@code _RANGE_SIZE}); если при повторном запуске он изменен,
+ * формирование отклоняется, иначе новые диапазоны пересеклись бы с готовыми файлами.
+ * После всех диапазонов создается маркер {@code _SUCCESS}.
+ * 
+ * <p>Формирование занимает часы, поэтому запуск по расписанию только передает его собственному
+ * потоку и сразу освобождает поток планировщика для остальных фоновых задач (outbox,
+ * отложенные переводы, очистки). Пока предыдущий запуск не завершен, новый пропускается.
+ *
+ * @author system
+ */
+@Component
+public class StatementGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(StatementGenerator.class);
+
+    private static final String SUCCESS_MARKER = "_SUCCESS";
+
+    private static final String RANGE_SIZE_MARKER = "_RANGE_SIZE";
+
+    private static final String MAX_CARD_ID_SQL = "SELECT COALESCE(MAX(id), 0) FROM cards";
+
+    // Снимок строго до начала месяца: переводы ровно в начале месяца относятся к месяцу
+    private static final String OPENING_BALANCES_SQL =
+            "SELECT c.id, c.masked_card_number, c.created_at, CASE WHEN s.snapshot_at IS NULL THEN c.balance " +
+            "- COALESCE((SELECT SUM(t.amount) FROM card_transactions t " +
+            "WHERE t.to_card_id = c.id AND t.transaction_date >= ?), 0) " +
+            "+ COALESCE((SELECT SUM(t.amount) FROM card_transactions t " +
+            "WHERE t.from_card_id = c.id AND t.transaction_date >= ?), 0) " +
+            "ELSE s.balance " +
+            "+ COALESCE((SELECT SUM(t.amount) FROM card_transactions t " +
+            "WHERE t.to_card_id = c.id AND t.transaction_date > s.snapshot_at AND t.transaction_date < ?), 0) " +
+            "- COALESCE((SELECT SUM(t.amount) FROM card_transactions t " +
+            "WHERE t.from_card_id = c.id AND t.transaction_date > s.snapshot_at AND t.transaction_date < ?), 0) " +
+            "END AS opening_balance " +
+            "FROM cards c LEFT JOIN LATERAL (SELECT b.snapshot_at, b.balance FROM card_balance_snapshots b " +
+            "WHERE b.card_id = c.id AND b.snapshot_at < ? ORDER BY b.snapshot_at DESC LIMIT 1) s ON TRUE " +
+            "WHERE c.id >= ? AND c.id < ? AND c.created_at < ? ORDER BY c.id";
+
+    private static final String RANGE_TRANSACTIONS_SQL =
+            "SELECT t.from_card_id AS card_id, t.id, t.to_card_id AS counterparty_id, -t.amount AS amount, " +
+            "t.transaction_date FROM card_transactions t " +
+            "WHERE t.from_card_id >= ? AND t.from_card_id < ? AND t.transaction_date >= ? AND t.transaction_date < ? " +
+            "UNION ALL " +
+            "SELECT t.to_card_id, t.id, t.from_card_id, t.amount, t.transaction_date FROM card_transactions t " +
+            "WHERE t.to_card_id >= ? AND t.to_card_id < ? AND t.transaction_date >= ? AND t.transaction_date < ? " +
+            "ORDER BY card_id, transaction_date, id";
+
+    private record CardOpening(long id, String maskedCardNumber, BigDecimal openingBalance, LocalDateTime issuedAt) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ObjectProvider<LedgerEngine> ledgerEngine;
+    private final boolean enabled;
+    private final Path outputDir;
+    private final int rangeSize;
+    private final int parallelism;
+    private final ExecutorService runner;
+    private final AtomicBoolean inProgress = new AtomicBoolean();
+
+    /**
+     * Конструктор с внедрением зависимостей.
+     *
+     * @param dataSource источник соединений (для курсорного чтения переводов)
+     * @param jdbcTemplate JDBC-шаблон
+     * @param transactionManager менеджер транзакций
+     * @param objectMapper JSON-сериализатор
+     * @param ledgerEngine журнал балансов в памяти (доступен при ledger.enabled=true)
+     * @param enabled включено ли формирование выписок
+     * @param outputDir каталог выписок
+     * @param rangeSize количество ID карт в одном диапазоне
+     * @param parallelism количество диапазонов, обрабатываемых одновременно
+     * @param fetchSize количество строк, читаемых курсором за один запрос к БД
+     */
+    public StatementGenerator(DataSource dataSource,
+                              JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              ObjectMapper objectMapper,
+                              ObjectProvider<LedgerEngine> ledgerEngine,
+                              @Value("${statements.enabled:true}") boolean enabled,
+                              @Value("${statements.dir:statements}") String outputDir,
+                              @Value("${statements.range-size:10000}") int rangeSize,
+                              @Value("${statements.parallelism:4}") int parallelism,
+                              @Value("${statements.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingJdbcTemplate.setFetchSize(fetchSize);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.transactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.ledgerEngine = ledgerEngine;
+        this.enabled = enabled;
+        this.outputDir = Paths.get(outputDir);
+        this.rangeSize = rangeSize;
+        this.parallelism = parallelism;
+        this.runner = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "statement-generator");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Формирует (или дописывает после прерывания) выписки за прошлый месяц. Выполняется ежедневно;
+     * если выписки уже сформированы, ничего не делает.
+     */
+    @Scheduled(cron = "${statements.cron:0 0 4 * * *}")
+    public void generatePreviousMonth() {
+        if (!enabled) {
+            return;
+        }
+        if (!inProgress.compareAndSet(false, true)) {
+            log.info("Statement generation is still running, skipping this run");
+            return;
+        }
+        runner.execute(() -> {
+            try {
+                generate(YearMonth.now().minusMonths(1));
+            } catch (RuntimeException e) {
+                log.error("Statement generation failed, completed ranges will be kept", e);
+            } finally {
+                inProgress.set(false);
+            }
+        });
+    }
+
+    /**
+     * Прерывает формирование выписок; готовые диапазоны сохраняются и пропускаются при следующем запуске.
+     */
+    @PreDestroy
+    public void stop() {
+        runner.shutdownNow();
+    }
+
+    /**
+     * Формирует выписки за месяц по всем картам, пропуская уже готовые диапазоны.
+     *
+     * @param month месяц выписок
+     * @return количество карт в сформированных в этом запуске диапазонах
+     * @throws IllegalStateException если каталог месяца начат с другим размером диапазона
+     */
+    public int generate(YearMonth month) {
+        Path monthDir = outputDir.resolve(month.toString());
+        if (Files.exists(monthDir.resolve(SUCCESS_MARKER))) {
+            return 0;
+        }
+        try {
+            Files.createDirectories(monthDir);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        checkRangeSize(month, monthDir);
+
+        LedgerEngine ledger = ledgerEngine.getIfAvailable();
+        if (ledger != null) {
+            ledger.flush();
+        }
+
+        Long maxCardId = jdbcTemplate.queryForObject(MAX_CARD_ID_SQL, Long.class);
+        int ranges = (int) (maxCardId / rangeSize) + 1;
+        AtomicInteger cards = new AtomicInteger();
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new RangeTask(month, monthDir, 0, ranges, cards));
+        } finally {
+            pool.shutdown();
+        }
+
+        try {
+            Files.createFile(monthDir.resolve(SUCCESS_MARKER));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.info("Statements for {} generated: {} card(s) in {} range(s)", month, cards.get(), ranges);
+        return cards.get();
+    }
+
+    /**
+     * Записывает размер диапазона в каталог месяца или сверяет его с записанным ранее.
+     */
+    private void checkRangeSize(YearMonth month, Path monthDir) {
+        Path marker = monthDir.resolve(RANGE_SIZE_MARKER);
+        try {
+            if (Files.exists(marker)) {
+                int recorded = Integer.parseInt(Files.readString(marker).trim());
+                if (recorded != rangeSize) {
+                    throw new IllegalStateException("Statements for " + month + " were started with range size "
+                            + recorded + ", but statements.range-size is " + rangeSize
+                            + "; restore the setting or remove " + monthDir);
+                }
+                return;
+            }
+            try (DirectoryStream<Path> ranges = Files.newDirectoryStream(monthDir, "cards-*")) {
+                if (ranges.iterator().hasNext()) {
+                    throw new IllegalStateException("Statements for " + month
+                            + " have range files but no range size marker; remove " + monthDir);
+                }
+            }
+            Files.writeString(marker, Integer.toString(rangeSize));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Делит диапазоны пополам до одного диапазона на задачу.
+     */
+    private final class RangeTask extends RecursiveAction {
+        private final YearMonth month;
+        private final Path monthDir;
+        private final int fromRange;
+        private final int toRange;
+        private final AtomicInteger cards;
+
+        RangeTask(YearMonth month, Path monthDir, int fromRange, int toRange, AtomicInteger cards) {
+            this.month = month;
+            this.monthDir = monthDir;
+            this.fromRange = fromRange;
+            this.toRange = toRange;
+            this.cards = cards;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRange - fromRange == 1) {
+                cards.addAndGet(generateRange(month, monthDir, (long) fromRange * rangeSize,
+                        (long) toRange * rangeSize));
+                return;
+            }
+            int middle = (fromRange + toRange) >>> 1;
+            invokeAll(new RangeTask(month, monthDir, fromRange, middle, cards),
+                    new RangeTask(month, monthDir, middle, toRange, cards));
+        }
+    }
+
+    /**
+     * Формирует файл выписок карт с ID в [fromId, toId), если он еще не сформирован.
+     *
+     * @return количество карт в файле (0, если диапазон уже был готов)
+     */
+    int generateRange(YearMonth month, Path monthDir, long fromId, long toId) {
+        Path target = monthDir.resolve("cards-" + fromId + "-" + toId + ".ndjson.gz");
+        if (Files.exists(target)) {
+            return 0;
+        }
+        Path temp = monthDir.resolve(target.getFileName() + ".tmp");
+
+        LocalDateTime monthStart = month.atDay(1).atStartOfDay();
+        Timestamp start = Timestamp.valueOf(monthStart);
+        Timestamp end = Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay());
+
+        Integer written = transactionTemplate.execute(status -> {
+            List<CardOpening> openings = new ArrayList<>();
+            jdbcTemplate.query(OPENING_BALANCES_SQL, rs -> {
+                LocalDateTime createdAt = rs.getTimestamp("created_at").toLocalDateTime();
+                openings.add(new CardOpening(rs.getLong("id"), rs.getString("masked_card_number"),
+                        rs.getBigDecimal("opening_balance"), createdAt.isBefore(monthStart) ? null : createdAt));
+            }, start, start, start, start, start, fromId, toId, end);
+
+            try {
+                StatementFileWriter writer = new StatementFileWriter(objectMapper.getFactory(), temp, month);
+                try (writer) {
+                    writeStatements(writer, openings, fromId, toId, start, end);
+                }
+                return writer.cards();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return written != null ? written : 0;
+    }
+
+    private void writeStatements(StatementFileWriter writer, List<CardOpening> openings,
+                                 long fromId, long toId, Timestamp start, Timestamp end) throws IOException {
+        int[] next = {0};
+        long[] current = {-1};
+        streamingJdbcTemplate.query(RANGE_TRANSACTIONS_SQL, rs -> {
+            long cardId = rs.getLong("card_id");
+            try {
+                // Выписки карт без переводов пишутся по пути к следующей карте с переводами
+                while (next[0] < openings.size() && openings.get(next[0]).id() <= cardId) {
+                    CardOpening opening = openings.get(next[0]++);
+                    writer.beginCard(opening.id(), opening.maskedCardNumber(), opening.openingBalance(),
+                            opening.issuedAt());
+                    current[0] = opening.id();
+                }
+                if (current[0] == cardId) {
+                    writer.transaction(rs.getLong("id"), rs.getTimestamp("transaction_date").toLocalDateTime(),
+                            rs.getLong("counterparty_id"), rs.getBigDecimal("amount"));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, fromId, toId, start, end, fromId, toId, start, end);
+
+        while (next[0] < openings.size()) {
+            CardOpening opening = openings.get(next[0]++);
+            writer.beginCard(opening.id(), opening.maskedCardNumber(), opening.openingBalance(), opening.issuedAt());
+        }
+    }
+}
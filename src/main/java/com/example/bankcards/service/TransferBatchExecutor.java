@@ -0,0 +1,235 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.dto.TransferResponse;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.exception.ForbiddenException;
+import com.example.bankcards.exception.ResourceNotFoundException;
+import com.example.bankcards.util.CardNumberMasker;
+import com.example.bankcards.util.Money;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Выполнение множества переводов в одной транзакции базы данных.
+ * 
+ * <p>Все карты пакета блокируются одним запросом {@code SELECT ... FOR UPDATE} в порядке возрастания ID,
+ * бизнес-правила проверяются в памяти по текущим (с учетом предыдущих переводов пакета) балансам,
+ * после чего новые балансы и записи транзакций пишутся пакетными JDBC-запросами.
+ * 
+ * @author system
+ */
+@Component
+public class TransferBatchExecutor {
+
+    private static final String LOCK_CARDS_SQL =
+            "SELECT " + CardRows.COLUMNS + " FROM cards WHERE id IN (:ids) ORDER BY id FOR UPDATE";
+
+    private static final String UPDATE_BALANCE_SQL =
+            "UPDATE cards SET balance = ?, updated_at = ? WHERE id = ?";
+
+    private static final String NEXT_TRANSACTION_IDS_SQL =
+            "SELECT nextval('card_transactions_id_seq') FROM generate_series(1, ?)";
+
+    private static final String INSERT_TRANSACTION_SQL =
+            "INSERT INTO card_transactions (id, from_card_id, to_card_id, amount, transaction_date) " +
+            "VALUES (?, ?, ?, ?, ?)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CardNumberMasker cardNumberMasker;
+    private final TransferLimitService transferLimitService;
+    private final OutboxWriter outboxWriter;
+
+    /**
+     * Конструктор с внедрением зависимостей.
+     *
+     * @param jdbcTemplate JDBC-шаблон для пакетных запросов
+     * @param transactionManager менеджер транзакций
+     * @param cardNumberMasker утилита для маскирования номеров карт
+     * @param transferLimitService лимиты переводов по картам
+     * @param outboxWriter запись событий о переводах в outbox
+     */
+    public TransferBatchExecutor(NamedParameterJdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 CardNumberMasker cardNumberMasker,
+                                 TransferLimitService transferLimitService,
+                                 OutboxWriter outboxWriter) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.cardNumberMasker = cardNumberMasker;
+        this.transferLimitService = transferLimitService;
+        this.outboxWriter = outboxWriter;
+    }
+
+    /**
+     * Перевод в составе пакета вместе с пользователем, от имени которого он выполняется.
+     */
+    public record Item(Long userId, TransferRequest request) {
+    }
+
+    /**
+     * Результат перевода в пакете: ответ при успехе или исключение с причиной отказа.
+     */
+    public record Outcome(TransferResponse response, RuntimeException error) {
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+
+    /**
+     * Выполняет переводы в одной транзакции. Результаты возвращаются в порядке переводов.
+     * 
+     * <p>В режиме allOrNothing первый отказ отменяет весь пакет: ничего не записывается,
+     * а остальные переводы получают отказ с указанием номера неудачного перевода.
+     * Иначе отклоненные переводы пропускаются, а остальные выполняются.
+     *
+     * @param items переводы пакета
+     * @param allOrNothing выполнить все переводы или ни одного
+     * @return результаты по каждому переводу
+     */
+    public List<Outcome> execute(List<Item> items, boolean allOrNothing) {
+        if (items.isEmpty()) {
+            return List.of();
+        }
+        List<TransferLimitService.Reservation> reservations = new ArrayList<>();
+        try {
+            return transactionTemplate.execute(status -> executeInTransaction(items, allOrNothing, reservations));
+        } catch (RuntimeException ex) {
+            // Пакет не зафиксирован: резервы лимитов возвращаются
+            reservations.forEach(TransferLimitService.Reservation::release);
+            throw ex;
+        }
+    }
+
+    private List<Outcome> executeInTransaction(List<Item> items, boolean allOrNothing,
+                                               List<TransferLimitService.Reservation> reservations) {
+        Map<Long, Card> cards = lockCards(items);
+        Map<Long, Card> changedCards = new LinkedHashMap<>();
+        Map<Long, String> maskedNumbers = new HashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+
+        List<Outcome> outcomes = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            Item item = items.get(i);
+            TransferRequest request = item.request();
+            try {
+                Card fromCard = cardOf(cards, request.getFromCardId(), "From card not found with id: ");
+                Card toCard = cardOf(cards, request.getToCardId(), "To card not found with id: ");
+                Money amount = TransferRules.amountOf(request.getAmount());
+                TransferRules.validate(fromCard, toCard, amount, item.userId());
+                reservations.add(transferLimitService.reserve(fromCard.getId(), amount));
+
+                fromCard.setBalance(fromCard.getBalance().minus(amount));
+                toCard.setBalance(toCard.getBalance().plus(amount));
+                changedCards.put(fromCard.getId(), fromCard);
+                changedCards.put(toCard.getId(), toCard);
+
+                TransferResponse response = new TransferResponse();
+                response.setFromCardId(fromCard.getId());
+                response.setFromCardMaskedNumber(maskedNumbers.computeIfAbsent(fromCard.getId(), id -> cardNumberMasker.maskedNumberOf(fromCard)));
+                response.setToCardId(toCard.getId());
+                response.setToCardMaskedNumber(maskedNumbers.computeIfAbsent(toCard.getId(), id -> cardNumberMasker.maskedNumberOf(toCard)));
+                response.setAmount(amount.toBigDecimal());
+                response.setTransactionDate(now);
+                response.setMessage("Transfer completed successfully");
+                outcomes.add(new Outcome(response, null));
+            } catch (ResourceNotFoundException | ForbiddenException | BadRequestException ex) {
+                outcomes.add(new Outcome(null, ex));
+                if (allOrNothing) {
+                    reservations.forEach(TransferLimitService.Reservation::release);
+                    reservations.clear();
+                    return rolledBack(outcomes, items.size(), i);
+                }
+            }
+        }
+
+        persist(outcomes, changedCards.values(), now);
+        return outcomes;
+    }
+
+    /**
+     * Блокирует все карты пакета одним запросом; PostgreSQL блокирует строки в порядке ORDER BY.
+     */
+    private Map<Long, Card> lockCards(List<Item> items) {
+        TreeSet<Long> ids = new TreeSet<>();
+        for (Item item : items) {
+            ids.add(item.request().getFromCardId());
+            ids.add(item.request().getToCardId());
+        }
+
+        Map<Long, Card> cards = new HashMap<>();
+        jdbcTemplate.query(LOCK_CARDS_SQL, Map.of("ids", ids), rs -> {
+            Card card = CardRows.map(rs);
+            cards.put(card.getId(), card);
+        });
+        return cards;
+    }
+
+    private void persist(List<Outcome> outcomes, Iterable<Card> changedCards, LocalDateTime now) {
+        List<TransferResponse> completed = outcomes.stream()
+                .filter(Outcome::isSuccess)
+                .map(Outcome::response)
+                .toList();
+        if (completed.isEmpty()) {
+            return;
+        }
+
+        Timestamp timestamp = Timestamp.valueOf(now);
+        List<Object[]> balanceUpdates = new ArrayList<>();
+        for (Card card : changedCards) {
+            balanceUpdates.add(new Object[]{card.getBalance().toBigDecimal(), timestamp, card.getId()});
+        }
+        jdbcTemplate.getJdbcOperations().batchUpdate(UPDATE_BALANCE_SQL, balanceUpdates);
+
+        // ID транзакций выделяются заранее одним запросом, чтобы вставка шла одним пакетом
+        List<Long> transactionIds = jdbcTemplate.getJdbcOperations()
+                .queryForList(NEXT_TRANSACTION_IDS_SQL, Long.class, completed.size());
+        List<Object[]> inserts = new ArrayList<>(completed.size());
+        List<OutboxWriter.TransferCompleted> events = new ArrayList<>(completed.size());
+        for (int i = 0; i < completed.size(); i++) {
+            TransferResponse response = completed.get(i);
+            response.setId(transactionIds.get(i));
+            inserts.add(new Object[]{response.getId(), response.getFromCardId(), response.getToCardId(),
+                    response.getAmount(), timestamp});
+            events.add(new OutboxWriter.TransferCompleted(response.getId(), response.getFromCardId(),
+                    response.getToCardId(), response.getAmount(), now));
+        }
+        jdbcTemplate.getJdbcOperations().batchUpdate(INSERT_TRANSACTION_SQL, inserts);
+        outboxWriter.appendTransfers(events);
+    }
+
+    /**
+     * Результаты отмененного пакета: у неудачного перевода - его причина отказа,
+     * у остальных - отказ с указанием номера неудачного перевода.
+     */
+    static List<Outcome> rolledBack(List<Outcome> outcomes, int size, int failedIndex) {
+        BadRequestException rolledBack = new BadRequestException(
+                "Batch rolled back: transfer #" + failedIndex + " failed");
+        List<Outcome> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(i == failedIndex ? outcomes.get(i) : new Outcome(null, rolledBack));
+        }
+        return result;
+    }
+
+    private static Card cardOf(Map<Long, Card> cards, Long cardId, String notFoundMessage) {
+        Card card = cards.get(cardId);
+        if (card == null) {
+            throw new ResourceNotFoundException(notFoundMessage + cardId);
+        }
+        return card;
+    }
+}
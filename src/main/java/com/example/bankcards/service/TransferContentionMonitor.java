@@ -0,0 +1,136 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardContentionResponse;
+import com.example.bankcards.util.LruCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Сбор метрик конкуренции за строки карт при переводах.
+ * 
+ * <p>Агрегированные метрики (время ожидания блокировки, повторы, исчерпанные повторы) публикуются
+ * в Micrometer. Статистика по отдельным картам хранится в памяти и доступна администратору:
+ * публиковать ее как теги метрик нельзя из-за кардинальности. Таблица разбита на {@value #STRIPES}
+ * LRU-сегментов, поэтому при переполнении вытесняется карта, к которой дольше всего не было
+ * переводов, а статистика часто используемых карт сохраняется.
+ * 
+ * @author system
+ */
+@Component
+public class TransferContentionMonitor {
+
+    private static final int MAX_TRACKED_CARDS = 10_000;
+    private static final int STRIPES = 16;
+
+    private final Timer lockWaitTimer;
+    private final Counter retryCounter;
+    private final Counter retryExhaustedCounter;
+    private final List<LruCache<Long, CardContention>> cards = new ArrayList<>(STRIPES);
+
+    /**
+     * Конструктор с регистрацией метрик.
+     *
+     * @param meterRegistry реестр метрик
+     */
+    public TransferContentionMonitor(MeterRegistry meterRegistry) {
+        this.lockWaitTimer = Timer.builder("bankcards.transfer.lock.wait")
+                .description("Time spent acquiring card row locks for transfers")
+                .register(meterRegistry);
+        this.retryCounter = Counter.builder("bankcards.transfer.retries")
+                .description("Transfers retried after a lock or serialization failure")
+                .register(meterRegistry);
+        this.retryExhaustedCounter = Counter.builder("bankcards.transfer.retries.exhausted")
+                .description("Transfers that failed after all retry attempts")
+                .register(meterRegistry);
+        for (int i = 0; i < STRIPES; i++) {
+            cards.add(new LruCache<>(MAX_TRACKED_CARDS / STRIPES));
+        }
+    }
+
+    /**
+     * Учитывает время ожидания блокировки строки карты.
+     *
+     * @param cardId ID карты
+     * @param waitNanos время ожидания в наносекундах
+     */
+    public void recordLockWait(Long cardId, long waitNanos) {
+        lockWaitTimer.record(waitNanos, TimeUnit.NANOSECONDS);
+        CardContention contention = contentionOf(cardId);
+        if (contention != null) {
+            contention.locks.increment();
+            contention.lockWaitNanos.add(waitNanos);
+            contention.maxLockWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        }
+    }
+
+    /**
+     * Учитывает повтор перевода после ошибки блокировки или сериализации.
+     *
+     * @param fromCardId ID карты-источника
+     * @param toCardId ID карты-получателя
+     */
+    public void recordRetry(Long fromCardId, Long toCardId) {
+        retryCounter.increment();
+        for (Long cardId : new Long[]{fromCardId, toCardId}) {
+            CardContention contention = contentionOf(cardId);
+            if (contention != null) {
+                contention.retries.increment();
+            }
+        }
+    }
+
+    /**
+     * Учитывает перевод, который не удалось выполнить за все попытки.
+     */
+    public void recordRetryExhausted() {
+        retryExhaustedCounter.increment();
+    }
+
+    /**
+     * Возвращает карты с наибольшим суммарным временем ожидания блокировок.
+     *
+     * @param limit количество карт
+     * @return статистика по наиболее конкурентным картам
+     */
+    public List<CardContentionResponse> getMostContendedCards(int limit) {
+        return cards.stream()
+                .flatMap(stripe -> stripe.snapshot().entrySet().stream())
+                .map(entry -> entry.getValue().toResponse(entry.getKey()))
+                .sorted(Comparator.comparingLong(CardContentionResponse::getTotalLockWaitMillis).reversed()
+                        .thenComparing(Comparator.comparingLong(CardContentionResponse::getRetries).reversed()))
+                .limit(limit)
+                .toList();
+    }
+
+    private CardContention contentionOf(Long cardId) {
+        if (cardId == null) {
+            return null;
+        }
+        return cards.get(Math.floorMod(cardId.hashCode(), STRIPES))
+                .computeIfAbsent(cardId, id -> new CardContention());
+    }
+
+    private static final class CardContention {
+        private final LongAdder locks = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder lockWaitNanos = new LongAdder();
+        private final AtomicLong maxLockWaitNanos = new AtomicLong();
+
+        private CardContentionResponse toResponse(Long cardId) {
+            return new CardContentionResponse(cardId,
+                    locks.sum(),
+                    retries.sum(),
+                    TimeUnit.NANOSECONDS.toMillis(lockWaitNanos.sum()),
+                    TimeUnit.NANOSECONDS.toMillis(maxLockWaitNanos.get()));
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.dto.TransferResponse;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Групповая фиксация переводов: переводы, пришедшие в пределах нескольких миллисекунд,
+ * выполняются одной транзакцией базы данных через {@link TransferBatchExecutor}.
+ * 
+ * <p>Переводы группы независимы друг от друга (как в режиме BEST_EFFORT): отказ одного
+ * не влияет на остальные, а каждый вызывающий получает свой результат или свою ошибку.
+ * Группа закрывается по достижении максимального размера или максимального ожидания.
+ * Группа, прерванная базой данных (дедлок, ошибка сериализации), повторяется целиком с той же
+ * политикой, что и одиночный перевод ({@code transfer.retry.*}).
+ * 
+ * <p>После остановки переводы выполняются сразу отдельной транзакцией, а не дошедшие
+ * до фиксации переводы из очереди получают отказ; вызывающий ждет результат не дольше
+ * {@code result-timeout-ms}.
+ * 
+ * @author system
+ */
+@Component
+@ConditionalOnProperty(prefix = "transfer.group-commit", name = "enabled", havingValue = "true")
+public class TransferGroupCommitPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(TransferGroupCommitPipeline.class);
+
+    private final TransferBatchExecutor batchExecutor;
+    private final BlockingQueue<PendingTransfer> queue;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final long resultTimeoutMs;
+    private final int maxAttempts;
+    private final long backoffMs;
+    private final DistributionSummary batchSizeSummary;
+    private final Timer queueDelayTimer;
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    private record PendingTransfer(TransferBatchExecutor.Item item,
+                                   CompletableFuture<TransferBatchExecutor.Outcome> result,
+                                   long enqueuedAt) {
+    }
+
+    /**
+     * Конструктор с внедрением зависимостей. Запускает поток формирования групп.
+     *
+     * @param batchExecutor исполнитель пакетов переводов
+     * @param meterRegistry реестр метрик
+     * @param maxBatchSize максимальное число переводов в группе
+     * @param maxWaitMs максимальное ожидание заполнения группы в миллисекундах
+     * @param queueCapacity емкость очереди ожидающих переводов
+     * @param resultTimeoutMs максимальное ожидание результата перевода в миллисекундах
+     * @param maxAttempts максимальное число попыток фиксации группы
+     * @param backoffMs базовая задержка перед повтором в миллисекундах
+     */
+    public TransferGroupCommitPipeline(TransferBatchExecutor batchExecutor,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${transfer.group-commit.max-batch-size:200}") int maxBatchSize,
+                                       @Value("${transfer.group-commit.max-wait-ms:5}") long maxWaitMs,
+                                       @Value("${transfer.group-commit.queue-capacity:10000}") int queueCapacity,
+                                       @Value("${transfer.group-commit.result-timeout-ms:30000}") long resultTimeoutMs,
+                                       @Value("${transfer.retry.max-attempts:3}") int maxAttempts,
+                                       @Value("${transfer.retry.backoff-ms:20}") long backoffMs) {
+        this.batchExecutor = batchExecutor;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        this.resultTimeoutMs = resultTimeoutMs;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMs = backoffMs;
+        this.batchSizeSummary = DistributionSummary.builder("bankcards.transfer.group_commit.batch_size")
+                .description("Transfers committed per database transaction")
+                .register(meterRegistry);
+        this.queueDelayTimer = Timer.builder("bankcards.transfer.group_commit.queue_delay")
+                .description("Time a transfer waits before its group is committed")
+                .register(meterRegistry);
+        this.dispatcher = new Thread(this::dispatch, "transfer-group-commit");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * Выполняет перевод в составе ближайшей группы и ждет ее фиксации.
+     * Если очередь переполнена, перевод выполняется сразу отдельной транзакцией.
+     *
+     * @param userId ID пользователя, выполняющего перевод
+     * @param request данные перевода (fromCardId, toCardId, amount)
+     * @return результат перевода
+     */
+    public TransferResponse transfer(Long userId, TransferRequest request) {
+        TransferBatchExecutor.Item item = new TransferBatchExecutor.Item(userId, request);
+        PendingTransfer pending = new PendingTransfer(item, new CompletableFuture<>(), System.nanoTime());
+
+        TransferBatchExecutor.Outcome outcome;
+        if (running && queue.offer(pending)) {
+            // Конвейер мог остановиться между проверкой и постановкой в очередь:
+            // тогда перевод забирается обратно и выполняется сразу
+            outcome = !running && queue.remove(pending) ? executeDirectly(item) : await(pending);
+        } else {
+            outcome = executeDirectly(item);
+        }
+
+        if (!outcome.isSuccess()) {
+            throw outcome.error();
+        }
+        return outcome.response();
+    }
+
+    /**
+     * Останавливает прием новых переводов и дожидается фиксации уже поставленных в очередь.
+     * Переводы, оставшиеся в очереди после остановки потока групп, получают отказ.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        dispatcher.join(TimeUnit.SECONDS.toMillis(30));
+
+        List<PendingTransfer> abandoned = new ArrayList<>();
+        queue.drainTo(abandoned);
+        if (!abandoned.isEmpty()) {
+            log.warn("Transfer pipeline stopped with {} uncommitted transfer(s)", abandoned.size());
+            fail(abandoned, new IllegalStateException("Transfer pipeline stopped"));
+        }
+    }
+
+    private TransferBatchExecutor.Outcome executeDirectly(TransferBatchExecutor.Item item) {
+        return batchExecutor.execute(List.of(item), false).get(0);
+    }
+
+    private TransferBatchExecutor.Outcome await(PendingTransfer pending) {
+        try {
+            return pending.result().get(resultTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            if (queue.remove(pending)) {
+                throw new IllegalStateException("Transfer was not committed in time, try again later");
+            }
+            // Группа с переводом уже фиксируется: результат неизвестен
+            throw new IllegalStateException("Transfer commit is taking too long, check the card history");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the transfer to commit");
+        } catch (ExecutionException e) {
+            // Результат всегда завершается значением, сюда попасть нельзя
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void dispatch() {
+        List<PendingTransfer> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingTransfer first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    PendingTransfer next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commit(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(batch, new IllegalStateException("Transfer pipeline interrupted"));
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<PendingTransfer> batch) {
+        long started = System.nanoTime();
+        for (PendingTransfer pending : batch) {
+            queueDelayTimer.record(started - pending.enqueuedAt(), TimeUnit.NANOSECONDS);
+        }
+        batchSizeSummary.record(batch.size());
+
+        List<TransferBatchExecutor.Item> items = new ArrayList<>(batch.size());
+        for (PendingTransfer pending : batch) {
+            items.add(pending.item());
+        }
+
+        List<TransferBatchExecutor.Outcome> outcomes;
+        try {
+            outcomes = executeWithRetry(items);
+        } catch (RuntimeException e) {
+            log.warn("Group commit of {} transfer(s) failed", batch.size(), e);
+            fail(batch, e);
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).result().complete(outcomes.get(i));
+        }
+    }
+
+    private List<TransferBatchExecutor.Outcome> executeWithRetry(List<TransferBatchExecutor.Item> items) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return batchExecutor.execute(items, false);
+            } catch (ConcurrencyFailureException ex) {
+                if (attempt >= maxAttempts) {
+                    throw ex;
+                }
+                log.debug("Group commit of {} transfer(s) aborted by the database, retrying", items.size(), ex);
+                TransferService.backoff(backoffMs, attempt, ex);
+            }
+        }
+    }
+
+    private static void fail(List<PendingTransfer> batch, RuntimeException error) {
+        for (PendingTransfer pending : batch) {
+            pending.result().complete(new TransferBatchExecutor.Outcome(null, error));
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.dto.TransferResponse;
+import com.example.bankcards.entity.TransferIdempotencyKey;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.repository.TransferIdempotencyKeyRepository;
+import com.example.bankcards.security.CurrentUser;
+import com.example.bankcards.security.CurrentUserProvider;
+import com.example.bankcards.util.LruCache;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/**
+ * Идемпотентное выполнение переводов по заголовку Idempotency-Key.
+ * 
+ * <p>Ответ перевода сохраняется в таблице transfer_idempotency_keys в той же транзакции,
+ * что и сам перевод, поэтому повтор запроса никогда не приводит к двойному списанию.
+ * При включенном журнале балансов ответ сохраняется сразу после записи перевода в журнал,
+ * а ошибка сохранения отменяет перевод записью отмены в журнал.
+ * Недавние ответы дополнительно хранятся в LRU-кэше в памяти, и повторы
+ * обслуживаются без обращения к картам и транзакциям. Срок действия записи кэша проверяется
+ * при чтении; устаревшие записи, которые больше не запрашиваются, вытесняются новыми.
+ * 
+ * @author system
+ */
+@Service
+public class TransferIdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final TransferService transferService;
+    private final TransferIdempotencyKeyRepository idempotencyKeyRepository;
+    private final CurrentUserProvider currentUserProvider;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final LruCache<String, StoredResponse> cache;
+
+    /**
+     * Конструктор с внедрением зависимостей.
+     *
+     * @param transferService сервис переводов
+     * @param idempotencyKeyRepository репозиторий сохраненных ответов
+     * @param currentUserProvider источник текущего пользователя запроса
+     * @param objectMapper JSON-сериализатор ответов
+     * @param ttl время хранения ответа
+     * @param cacheMaxSize максимальный размер кэша в памяти
+     */
+    public TransferIdempotencyService(TransferService transferService,
+                                      TransferIdempotencyKeyRepository idempotencyKeyRepository,
+                                      CurrentUserProvider currentUserProvider,
+                                      ObjectMapper objectMapper,
+                                      @Value("${transfer.idempotency.ttl:24h}") Duration ttl,
+                                      @Value("${transfer.idempotency.cache-max-size:10000}") int cacheMaxSize) {
+        this.transferService = transferService;
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.currentUserProvider = currentUserProvider;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.cache = new LruCache<>(cacheMaxSize);
+    }
+
+    /**
+     * Выполняет перевод не более одного раза для данного ключа.
+     * Повтор с тем же ключом и теми же параметрами возвращает сохраненный ответ.
+     *
+     * @param idempotencyKey значение заголовка Idempotency-Key
+     * @param request данные перевода
+     * @return результат перевода (исходный или сохраненный)
+     * @throws BadRequestException если ключ некорректен или уже использован с другими параметрами
+     */
+    public TransferResponse transfer(String idempotencyKey, TransferRequest request) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters long");
+        }
+
+        CurrentUser currentUser = currentUserProvider.get();
+        String cacheKey = currentUser.getId() + ":" + idempotencyKey;
+        String requestHash = fingerprint(request);
+
+        TransferResponse stored = findStored(cacheKey, currentUser.getId(), idempotencyKey, requestHash);
+        if (stored != null) {
+            return stored;
+        }
+
+        LocalDateTime expiresAt = LocalDateTime.now().plus(ttl);
+        try {
+            TransferResponse response = transferService.transferBetweenOwnCards(request,
+                    completed -> save(currentUser.getId(), idempotencyKey, requestHash, completed, expiresAt));
+            cache.put(cacheKey, new StoredResponse(requestHash, response, expiresAt));
+            return response;
+        } catch (DataIntegrityViolationException ex) {
+            // Параллельный запрос с тем же ключом сохранил результат первым; наш перевод откатан
+            TransferResponse winner = findStored(cacheKey, currentUser.getId(), idempotencyKey, requestHash);
+            if (winner == null) {
+                throw ex;
+            }
+            return winner;
+        }
+    }
+
+    /**
+     * Удаляет устаревшие ключи из базы данных. Кэш не обходится: устаревшая запись
+     * отбрасывается при чтении или вытесняется как давно не использованная.
+     */
+    @Scheduled(fixedDelayString = "${transfer.idempotency.purge-interval:PT1H}")
+    @Transactional
+    public void purgeExpired() {
+        idempotencyKeyRepository.deleteExpired(LocalDateTime.now());
+    }
+
+    private TransferResponse findStored(String cacheKey, Long userId, String idempotencyKey, String requestHash) {
+        LocalDateTime now = LocalDateTime.now();
+
+        StoredResponse cached = cache.get(cacheKey);
+        if (cached != null) {
+            if (cached.expiresAt().isAfter(now)) {
+                return responseFor(cached, requestHash);
+            }
+            cache.remove(cacheKey, cached);
+        }
+
+        Optional<TransferIdempotencyKey> record = idempotencyKeyRepository.findByUserIdAndIdempotencyKey(userId, idempotencyKey);
+        if (record.isEmpty()) {
+            return null;
+        }
+        if (!record.get().getExpiresAt().isAfter(now)) {
+            // Ключ устарел, но еще не удален по расписанию - освобождаем его для нового перевода
+            idempotencyKeyRepository.delete(record.get());
+            return null;
+        }
+
+        StoredResponse stored = new StoredResponse(record.get().getRequestHash(),
+                readResponse(record.get().getResponse()), record.get().getExpiresAt());
+        cache.put(cacheKey, stored);
+        return responseFor(stored, requestHash);
+    }
+
+    private TransferResponse responseFor(StoredResponse stored, String requestHash) {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw new BadRequestException("Idempotency-Key has already been used with a different request");
+        }
+        return stored.response();
+    }
+
+    private void save(Long userId, String idempotencyKey, String requestHash,
+                      TransferResponse response, LocalDateTime expiresAt) {
+        TransferIdempotencyKey record = new TransferIdempotencyKey();
+        record.setUserId(userId);
+        record.setIdempotencyKey(idempotencyKey);
+        record.setRequestHash(requestHash);
+        record.setResponse(writeResponse(response));
+        record.setCreatedAt(LocalDateTime.now());
+        record.setExpiresAt(expiresAt);
+        idempotencyKeyRepository.save(record);
+    }
+
+    private String writeResponse(TransferResponse response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private TransferResponse readResponse(String json) {
+        try {
+            return objectMapper.readValue(json, TransferResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String fingerprint(TransferRequest request) {
+        String canonical = request.getFromCardId() + "|" + request.getToCardId() + "|"
+                + request.getAmount().stripTrailingZeros().toPlainString();
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record StoredResponse(String requestHash, TransferResponse response, LocalDateTime expiresAt) {
+    }
+}
@@ -0,0 +1,345 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardLimitRequest;
+import com.example.bankcards.dto.CardLimitResponse;
+import com.example.bankcards.entity.CardLimit;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.exception.ResourceNotFoundException;
+import com.example.bankcards.repository.CardLimitRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.util.Money;
+import com.example.bankcards.util.SlidingWindowCounter;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Лимиты переводов по карте-источнику: сумма за 24 часа, сумма за 30 дней и количество за час.
+ *
+ * <p>Расход по каждой карте с лимитами хранится в памяти в неблокирующих скользящих окнах
+ * ({@link SlidingWindowCounter}) и при старте восстанавливается одним агрегирующим запросом
+ * по card_transactions за последние 30 дней. Перевод сначала резервирует сумму в окнах и только
+ * потом сверяет итог с лимитом; при отказе или откате перевода резерв снимается. Поэтому
+ * конкурентные переводы никогда не превышают лимит, хотя у самой границы лимита
+ * один из них может получить отказ, не дожидаясь отката другого.
+ *
+ * <p>Изменения лимитов применяются к окнам в памяти только после фиксации транзакции,
+ * поэтому откат не оставляет в памяти лимиты, которых нет в базе.
+ *
+ * <p>Окна ведутся в каждом экземпляре приложения отдельно: при нескольких экземплярах
+ * лимит соблюдается в пределах каждого из них.
+ *
+ * @author system
+ */
+@Service
+public class TransferLimitService {
+
+    private static final Logger log = LoggerFactory.getLogger(TransferLimitService.class);
+
+    private static final long MINUTE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final int MONTH_DAYS = 30;
+
+    private static final String USAGE_COLUMNS =
+            "SELECT t.from_card_id, date_trunc('minute', t.transaction_date) AS minute, " +
+            "SUM(t.amount) AS amount, COUNT(*) AS transfers FROM card_transactions t ";
+
+    private static final String LOAD_USAGE_SQL = USAGE_COLUMNS +
+            "JOIN card_limits l ON l.card_id = t.from_card_id " +
+            "WHERE t.transaction_date > ? GROUP BY t.from_card_id, date_trunc('minute', t.transaction_date)";
+
+    private static final String LOAD_CARD_USAGE_SQL = USAGE_COLUMNS +
+            "WHERE t.from_card_id = ? AND t.transaction_date > ? " +
+            "GROUP BY t.from_card_id, date_trunc('minute', t.transaction_date)";
+
+    private final CardLimitRepository limitRepository;
+    private final CardRepository cardRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Long, CardUsage> usages = new ConcurrentHashMap<>();
+
+    /**
+     * Конструктор с внедрением зависимостей.
+     *
+     * @param limitRepository репозиторий лимитов карт
+     * @param cardRepository репозиторий карт
+     * @param jdbcTemplate JDBC-шаблон для восстановления расхода по истории переводов
+     */
+    public TransferLimitService(CardLimitRepository limitRepository,
+                                CardRepository cardRepository,
+                                JdbcTemplate jdbcTemplate) {
+        this.limitRepository = limitRepository;
+        this.cardRepository = cardRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Резерв лимитов под один перевод. Снимается вызовом {@link #release()}, если перевод не выполнен.
+     */
+    public static final class Reservation {
+        /**
+         * Резерв для карты без лимитов.
+         */
+        public static final Reservation NONE = new Reservation(null, 0, 0, 0, 0);
+
+        private final CardUsage usage;
+        private final long amountMinor;
+        private final long dayEpoch;
+        private final long monthEpoch;
+        private final long hourEpoch;
+
+        private Reservation(CardUsage usage, long amountMinor, long dayEpoch, long monthEpoch, long hourEpoch) {
+            this.usage = usage;
+            this.amountMinor = amountMinor;
+            this.dayEpoch = dayEpoch;
+            this.monthEpoch = monthEpoch;
+            this.hourEpoch = hourEpoch;
+        }
+
+        /**
+         * Возвращает зарезервированную сумму и перевод в окна лимитов.
+         */
+        public void release() {
+            if (usage != null) {
+                usage.daily.subtract(dayEpoch, amountMinor);
+                usage.monthly.subtract(monthEpoch, amountMinor);
+                usage.hourly.subtract(hourEpoch, 1);
+            }
+        }
+    }
+
+    /**
+     * Лимиты карты в минимальных единицах валюты; null - без ограничения.
+     */
+    private record Limits(Long dailyMinor, Long monthlyMinor, Integer hourlyCount) {
+        static Limits of(CardLimit limit) {
+            return new Limits(toMinor(limit.getDailyAmount()), toMinor(limit.getMonthlyAmount()),
+                    limit.getHourlyCount());
+        }
+    }
+
+    /**
+     * Расход по карте в скользящих окнах: 24 часовые корзины, 30 суточных и 60 минутных.
+     */
+    private static final class CardUsage {
+        final SlidingWindowCounter daily = new SlidingWindowCounter(24, HOUR_MILLIS);
+        final SlidingWindowCounter monthly = new SlidingWindowCounter(MONTH_DAYS, DAY_MILLIS);
+        final SlidingWindowCounter hourly = new SlidingWindowCounter(60, MINUTE_MILLIS);
+        volatile Limits limits;
+
+        CardUsage(Limits limits) {
+            this.limits = limits;
+        }
+
+        void record(long timeMillis, long amountMinor, long transfers) {
+            daily.add(timeMillis, amountMinor);
+            monthly.add(timeMillis, amountMinor);
+            hourly.add(timeMillis, transfers);
+        }
+    }
+
+    /**
+     * Восстанавливает расход по картам с лимитами из истории переводов.
+     */
+    @PostConstruct
+    public void loadUsage() {
+        for (CardLimit limit : limitRepository.findAll()) {
+            usages.put(limit.getCardId(), new CardUsage(Limits.of(limit)));
+        }
+        if (usages.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.query(LOAD_USAGE_SQL, rs -> {
+            CardUsage usage = usages.get(rs.getLong("from_card_id"));
+            if (usage != null) {
+                usage.record(rs.getTimestamp("minute").getTime(),
+                        toMinor(rs.getBigDecimal("amount")), rs.getLong("transfers"));
+            }
+        }, Timestamp.valueOf(usageHorizon()));
+        log.info("Transfer limit usage restored for {} card(s)", usages.size());
+    }
+
+    /**
+     * Резервирует перевод в лимитах карты-источника.
+     *
+     * @param cardId ID карты-источника
+     * @param amount сумма перевода
+     * @return резерв, который нужно снять, если перевод не будет выполнен
+     * @throws BadRequestException если перевод превышает один из лимитов карты
+     */
+    public Reservation reserve(Long cardId, Money amount) {
+        return reserve(cardId, amount, System.currentTimeMillis());
+    }
+
+    Reservation reserve(Long cardId, Money amount, long nowMillis) {
+        CardUsage usage = usages.get(cardId);
+        if (usage == null) {
+            return Reservation.NONE;
+        }
+        long amountMinor = amount.minorUnits();
+        Reservation reservation = new Reservation(usage, amountMinor,
+                usage.daily.add(nowMillis, amountMinor),
+                usage.monthly.add(nowMillis, amountMinor),
+                usage.hourly.add(nowMillis, 1));
+
+        Limits limits = usage.limits;
+        String exceeded = null;
+        if (limits.dailyMinor() != null && usage.daily.sum(nowMillis) > limits.dailyMinor()) {
+            exceeded = "Daily transfer limit exceeded";
+        } else if (limits.monthlyMinor() != null && usage.monthly.sum(nowMillis) > limits.monthlyMinor()) {
+            exceeded = "Monthly transfer limit exceeded";
+        } else if (limits.hourlyCount() != null && usage.hourly.sum(nowMillis) > limits.hourlyCount()) {
+            exceeded = "Hourly transfer count limit exceeded";
+        }
+        if (exceeded != null) {
+            reservation.release();
+            throw new BadRequestException(exceeded);
+        }
+        return reservation;
+    }
+
+    /**
+     * Получает лимиты карты и текущий расход по ним.
+     *
+     * @param cardId ID карты
+     * @return лимиты и расход (лимиты null, если не заданы)
+     * @throws ResourceNotFoundException если карта не найдена
+     */
+    @Transactional(readOnly = true)
+    public CardLimitResponse getLimits(Long cardId) {
+        requireCard(cardId);
+        CardLimit limit = limitRepository.findById(cardId).orElse(null);
+        return toResponse(cardId, limit, usages.get(cardId));
+    }
+
+    /**
+     * Устанавливает лимиты карты. Если все лимиты пустые, лимиты карты удаляются.
+     * Для карты, у которой лимитов еще не было, расход восстанавливается из истории переводов
+     * после фиксации транзакции; расход в ответе читается из истории сразу.
+     *
+     * @param cardId ID карты
+     * @param request новые лимиты
+     * @return лимиты и текущий расход
+     * @throws ResourceNotFoundException если карта не найдена
+     */
+    @Transactional
+    public CardLimitResponse setLimits(Long cardId, CardLimitRequest request) {
+        requireCard(cardId);
+        if (request.getDailyAmount() == null && request.getMonthlyAmount() == null
+                && request.getHourlyCount() == null) {
+            removeLimits(cardId);
+            return toResponse(cardId, null, null);
+        }
+
+        CardLimit limit = limitRepository.findById(cardId).orElseGet(CardLimit::new);
+        limit.setCardId(cardId);
+        limit.setDailyAmount(request.getDailyAmount());
+        limit.setMonthlyAmount(request.getMonthlyAmount());
+        limit.setHourlyCount(request.getHourlyCount());
+        limit.setUpdatedAt(LocalDateTime.now());
+        limitRepository.save(limit);
+
+        Limits limits = Limits.of(limit);
+        CardUsage existing = usages.get(cardId);
+        if (existing != null) {
+            afterCommit(() -> existing.limits = limits);
+            return toResponse(cardId, limit, existing);
+        }
+
+        CardUsage preview = new CardUsage(limits);
+        loadCardUsage(cardId, preview);
+        afterCommit(() -> publish(cardId, limits));
+        return toResponse(cardId, limit, preview);
+    }
+
+    /**
+     * Удаляет лимиты карты.
+     *
+     * @param cardId ID карты
+     * @throws ResourceNotFoundException если карта не найдена
+     */
+    @Transactional
+    public void removeLimits(Long cardId) {
+        requireCard(cardId);
+        if (limitRepository.existsById(cardId)) {
+            limitRepository.deleteById(cardId);
+        }
+        afterCommit(() -> usages.remove(cardId));
+    }
+
+    /**
+     * Начинает учет расхода карты, для которой установлены лимиты.
+     * Окна публикуются до чтения истории: переводы, зафиксированные в промежутке,
+     * могут быть учтены дважды, но не пропущены.
+     */
+    private void publish(Long cardId, Limits limits) {
+        CardUsage usage = new CardUsage(limits);
+        CardUsage raced = usages.putIfAbsent(cardId, usage);
+        if (raced != null) {
+            raced.limits = limits;
+            return;
+        }
+        loadCardUsage(cardId, usage);
+    }
+
+    private void loadCardUsage(Long cardId, CardUsage usage) {
+        jdbcTemplate.query(LOAD_CARD_USAGE_SQL, rs -> {
+            usage.record(rs.getTimestamp("minute").getTime(),
+                    toMinor(rs.getBigDecimal("amount")), rs.getLong("transfers"));
+        }, cardId, Timestamp.valueOf(usageHorizon()));
+    }
+
+    /**
+     * Выполняет действие после фиксации текущей транзакции; вне транзакции - сразу.
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private void requireCard(Long cardId) {
+        if (!cardRepository.existsById(cardId)) {
+            throw new ResourceNotFoundException("Card not found with id: " + cardId);
+        }
+    }
+
+    private static CardLimitResponse toResponse(Long cardId, CardLimit limit, CardUsage usage) {
+        long now = System.currentTimeMillis();
+        return new CardLimitResponse(cardId,
+                limit != null ? limit.getDailyAmount() : null,
+                limit != null ? limit.getMonthlyAmount() : null,
+                limit != null ? limit.getHourlyCount() : null,
+                BigDecimal.valueOf(usage != null ? usage.daily.sum(now) : 0, 2),
+                BigDecimal.valueOf(usage != null ? usage.monthly.sum(now) : 0, 2),
+                usage != null ? usage.hourly.sum(now) : 0);
+    }
+
+    private static LocalDateTime usageHorizon() {
+        return LocalDateTime.now().minusDays(MONTH_DAYS);
+    }
+
+    private static Long toMinor(BigDecimal amount) {
+        return amount == null ? null : amount.movePointRight(2).setScale(0, RoundingMode.CEILING).longValueExact();
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.exception.ForbiddenException;
+import com.example.bankcards.util.Money;
+
+import java.math.BigDecimal;
+
+/**
+ * Бизнес-правила перевода между картами, общие для одиночных и пакетных переводов.
+ * 
+ * @author system
+ */
+final class TransferRules {
+
+    private TransferRules() {
+    }
+
+    /**
+     * Переводит сумму запроса в копейки.
+     *
+     * @param amount сумма перевода из запроса
+     * @return сумма перевода
+     * @throws BadRequestException если у суммы больше двух знаков после запятой или она слишком велика
+     */
+    static Money amountOf(BigDecimal amount) {
+        try {
+            return Money.of(amount);
+        } catch (ArithmeticException e) {
+            throw new BadRequestException("Amount must have at most 2 decimal places");
+        }
+    }
+
+    /**
+     * Проверяет бизнес-правила перевода.
+     *
+     * @param fromCard карта-источник
+     * @param toCard карта-получатель
+     * @param amount сумма перевода
+     * @param userId ID пользователя, выполняющего перевод
+     * @throws ForbiddenException если карты не принадлежат пользователю
+     * @throws BadRequestException если нарушены бизнес-правила
+     */
+    static void validate(Card fromCard, Card toCard, Money amount, Long userId) {
+        // Проверка, что обе карты принадлежат текущему пользователю
+        if (!fromCard.getOwner().getId().equals(userId) || 
+            !toCard.getOwner().getId().equals(userId)) {
+            throw new ForbiddenException("You can only transfer between your own cards");
+        }
+
+        // Проверка, что карты не одинаковые
+        if (fromCard.getId().equals(toCard.getId())) {
+            throw new BadRequestException("Cannot transfer to the same card");
+        }
+
+        // Проверка статуса карт
+        if (fromCard.getStatus() != Card.CardStatus.ACTIVE) {
+            throw new BadRequestException("From card is not active");
+        }
+
+        if (toCard.getStatus() != Card.CardStatus.ACTIVE) {
+            throw new BadRequestException("To card is not active");
+        }
+
+        // Проверка срока действия
+        if (fromCard.isExpired()) {
+            throw new BadRequestException("From card has expired");
+        }
+
+        if (toCard.isExpired()) {
+            throw new BadRequestException("To card has expired");
+        }
+
+        // Проверка баланса
+        if (fromCard.getBalance().isLessThan(amount)) {
+            throw new BadRequestException("Insufficient funds");
+        }
+    }
+}
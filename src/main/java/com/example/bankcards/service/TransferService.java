@@ -4,22 +4,29 @@ import com.example.bankcards.dto.TransferRequest;
 import com.example.bankcards.dto.TransferResponse;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardTransaction;
-import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.BadRequestException;
 import com.example.bankcards.exception.ForbiddenException;
 import com.example.bankcards.exception.ResourceNotFoundException;
+import com.example.bankcards.repository.CardBalanceUpdate;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.CardTransactionRepository;
-import com.example.bankcards.repository.UserRepository;
-import com.example.bankcards.util.CardNumberEncryptor;
+import com.example.bankcards.security.CurrentUser;
+import com.example.bankcards.security.CurrentUserProvider;
 import com.example.bankcards.util.CardNumberMasker;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.context.SecurityContextHolder;
+import com.example.bankcards.util.Money;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 /**
  * Сервис для выполнения переводов между банковскими картами.
@@ -32,29 +39,65 @@ public class TransferService {
 
     private final CardRepository cardRepository;
     private final CardTransactionRepository transactionRepository;
-    private final UserRepository userRepository;
-    private final CardNumberEncryptor cardNumberEncryptor;
+    private final CurrentUserProvider currentUserProvider;
     private final CardNumberMasker cardNumberMasker;
+    private final TransactionTemplate transactionTemplate;
+    private final TransferContentionMonitor contentionMonitor;
+    private final TransferLimitService transferLimitService;
+    private final TransferVelocityGuard velocityGuard;
+    private final OutboxWriter outboxWriter;
+    private final ObjectProvider<LedgerEngine> ledgerEngine;
+    private final ObjectProvider<TransferGroupCommitPipeline> groupCommitPipeline;
+    private final int maxAttempts;
+    private final long backoffMs;
+    private final boolean fastPathEnabled;
 
     /**
      * Конструктор с внедрением зависимостей.
      *
      * @param cardRepository репозиторий карт
      * @param transactionRepository репозиторий транзакций
-     * @param userRepository репозиторий пользователей
-     * @param cardNumberEncryptor утилита для шифрования номеров карт
+     * @param currentUserProvider источник текущего пользователя запроса
      * @param cardNumberMasker утилита для маскирования номеров карт
+     * @param transactionManager менеджер транзакций для повторяемых попыток перевода
+     * @param contentionMonitor сбор метрик конкуренции за карты
+     * @param transferLimitService лимиты переводов по картам
+     * @param velocityGuard предварительная проверка скорости переводов
+     * @param outboxWriter запись событий о переводах в outbox
+     * @param ledgerEngine журнал балансов в памяти (доступен при ledger.enabled=true)
+     * @param groupCommitPipeline групповая фиксация переводов (доступна при transfer.group-commit.enabled=true)
+     * @param maxAttempts максимальное число попыток перевода
+     * @param backoffMs базовая задержка перед повтором в миллисекундах
+     * @param fastPathEnabled выполнять перевод условными UPDATE вместо блокирующего чтения карт
      */
     public TransferService(CardRepository cardRepository,
                           CardTransactionRepository transactionRepository,
-                          UserRepository userRepository,
-                          CardNumberEncryptor cardNumberEncryptor,
-                          CardNumberMasker cardNumberMasker) {
+                          CurrentUserProvider currentUserProvider,
+                          CardNumberMasker cardNumberMasker,
+                          PlatformTransactionManager transactionManager,
+                          TransferContentionMonitor contentionMonitor,
+                          TransferLimitService transferLimitService,
+                          TransferVelocityGuard velocityGuard,
+                          OutboxWriter outboxWriter,
+                          ObjectProvider<LedgerEngine> ledgerEngine,
+                          ObjectProvider<TransferGroupCommitPipeline> groupCommitPipeline,
+                          @Value("${transfer.retry.max-attempts:3}") int maxAttempts,
+                          @Value("${transfer.retry.backoff-ms:20}") long backoffMs,
+                          @Value("${transfer.fast-path-enabled:true}") boolean fastPathEnabled) {
         this.cardRepository = cardRepository;
         this.transactionRepository = transactionRepository;
-        this.userRepository = userRepository;
-        this.cardNumberEncryptor = cardNumberEncryptor;
+        this.currentUserProvider = currentUserProvider;
         this.cardNumberMasker = cardNumberMasker;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.contentionMonitor = contentionMonitor;
+        this.transferLimitService = transferLimitService;
+        this.velocityGuard = velocityGuard;
+        this.outboxWriter = outboxWriter;
+        this.ledgerEngine = ledgerEngine;
+        this.groupCommitPipeline = groupCommitPipeline;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMs = backoffMs;
+        this.fastPathEnabled = fastPathEnabled;
     }
 
     /**
@@ -67,61 +110,117 @@ public class TransferService {
      * - статус карт (должны быть ACTIVE)
      * - срок действия карт
      * - достаточность баланса на карте-источнике
+     * - лимиты карты-источника (сумма за сутки и за месяц, количество за час)
+     * 
+     * До обращения к базе данных перевод проходит проверку скорости переводов с карты
+     * ({@link TransferVelocityGuard}) - при любом способе выполнения перевода.
+     * 
+     * Строки обеих карт блокируются в порядке возрастания ID, поэтому встречные переводы
+     * A→B и B→A не приводят к взаимной блокировке. Если транзакция все же прервана
+     * базой данных (дедлок, таймаут блокировки, ошибка сериализации), перевод повторяется
+     * в новой транзакции ограниченное число раз.
+     * 
+     * При включенном transfer.fast-path-enabled перевод выполняется двумя условными UPDATE
+     * и одним INSERT без предварительного чтения карт.
+     * 
+     * При включенном transfer.group-commit.enabled перевод выполняет {@link TransferGroupCommitPipeline}.
+     * При включенном ledger.enabled перевод выполняет {@link LedgerEngine}: пока журнал включен,
+     * балансы карт меняются только через него.
      *
      * @param request данные перевода (fromCardId, toCardId, amount)
      * @return результат перевода с информацией о транзакции
      * @throws ForbiddenException если карты не принадлежат текущему пользователю
      * @throws BadRequestException если нарушены бизнес-правила (недостаточно средств, карта неактивна и т.д.)
      */
-    @Transactional
     public TransferResponse transferBetweenOwnCards(TransferRequest request) {
-        String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
-        User currentUser = userRepository.findByUsername(currentUsername)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-
-        Card fromCard = cardRepository.findById(request.getFromCardId())
-                .orElseThrow(() -> new ResourceNotFoundException("From card not found with id: " + request.getFromCardId()));
-
-        Card toCard = cardRepository.findById(request.getToCardId())
-                .orElseThrow(() -> new ResourceNotFoundException("To card not found with id: " + request.getToCardId()));
-
-        // Проверка, что обе карты принадлежат текущему пользователю
-        if (!fromCard.getOwner().getId().equals(currentUser.getId()) || 
-            !toCard.getOwner().getId().equals(currentUser.getId())) {
-            throw new ForbiddenException("You can only transfer between your own cards");
+        CurrentUser currentUser = currentUserProvider.get();
+        velocityGuard.check(currentUser.getId(), request.getFromCardId(), request.getAmount());
+        TransferGroupCommitPipeline pipeline = groupCommitPipeline.getIfAvailable();
+        if (pipeline != null) {
+            return pipeline.transfer(currentUser.getId(), request);
         }
+        return transfer(currentUser, request, response -> { });
+    }
 
-        // Проверка, что карты не одинаковые
-        if (fromCard.getId().equals(toCard.getId())) {
-            throw new BadRequestException("Cannot transfer to the same card");
-        }
+    /**
+     * Выполняет перевод и вызывает {@code onCompleted} в той же транзакции
+     * (при включенном журнале балансов - после записи перевода в журнал).
+     * Исключение из {@code onCompleted} откатывает перевод.
+     *
+     * @param request данные перевода (fromCardId, toCardId, amount)
+     * @param onCompleted действие с результатом перевода до фиксации транзакции
+     * @return результат перевода с информацией о транзакции
+     */
+    public TransferResponse transferBetweenOwnCards(TransferRequest request, Consumer<TransferResponse> onCompleted) {
+        CurrentUser currentUser = currentUserProvider.get();
+        velocityGuard.check(currentUser.getId(), request.getFromCardId(), request.getAmount());
+        return transfer(currentUser, request, onCompleted);
+    }
 
-        // Проверка статуса карт
-        if (fromCard.getStatus() != Card.CardStatus.ACTIVE) {
-            throw new BadRequestException("From card is not active");
+    private TransferResponse transfer(CurrentUser currentUser, TransferRequest request,
+                                      Consumer<TransferResponse> onCompleted) {
+        LedgerEngine ledger = ledgerEngine.getIfAvailable();
+        if (ledger != null) {
+            return ledger.transfer(currentUser.getId(), request, onCompleted);
         }
+        Money amount = TransferRules.amountOf(request.getAmount());
 
-        if (toCard.getStatus() != Card.CardStatus.ACTIVE) {
-            throw new BadRequestException("To card is not active");
+        for (int attempt = 1; ; attempt++) {
+            AtomicReference<TransferLimitService.Reservation> reservation =
+                    new AtomicReference<>(TransferLimitService.Reservation.NONE);
+            try {
+                return transactionTemplate.execute(status -> {
+                    TransferResponse response = fastPathEnabled
+                            ? executeConditionalTransfer(request, amount, currentUser)
+                            : executeTransfer(request, amount, currentUser);
+                    // Лимиты резервируются после проверки бизнес-правил, чтобы отказ по чужой
+                    // или неактивной карте не расходовал ее лимит даже временно
+                    reservation.set(transferLimitService.reserve(request.getFromCardId(), amount));
+                    outboxWriter.appendTransfers(List.of(new OutboxWriter.TransferCompleted(response.getId(),
+                            response.getFromCardId(), response.getToCardId(), response.getAmount(),
+                            response.getTransactionDate())));
+                    onCompleted.accept(response);
+                    return response;
+                });
+            } catch (ConcurrencyFailureException ex) {
+                reservation.get().release();
+                if (attempt >= maxAttempts) {
+                    contentionMonitor.recordRetryExhausted();
+                    throw ex;
+                }
+                contentionMonitor.recordRetry(request.getFromCardId(), request.getToCardId());
+                backoff(attempt, ex);
+            } catch (RuntimeException ex) {
+                // Перевод не зафиксирован: резерв лимитов возвращается
+                reservation.get().release();
+                throw ex;
+            }
         }
+    }
 
-        // Проверка срока действия
-        if (fromCard.isExpired()) {
-            throw new BadRequestException("From card has expired");
-        }
+    private TransferResponse executeTransfer(TransferRequest request, Money amount, CurrentUser currentUser) {
+        Long fromCardId = request.getFromCardId();
+        Long toCardId = request.getToCardId();
 
-        if (toCard.isExpired()) {
-            throw new BadRequestException("To card has expired");
+        // Блокировки берутся всегда в одном порядке - по возрастанию ID
+        Card fromCard;
+        Card toCard;
+        if (fromCardId.equals(toCardId)) {
+            fromCard = lockCard(fromCardId, "From card not found with id: ");
+            toCard = fromCard;
+        } else if (fromCardId < toCardId) {
+            fromCard = lockCard(fromCardId, "From card not found with id: ");
+            toCard = lockCard(toCardId, "To card not found with id: ");
+        } else {
+            toCard = lockCard(toCardId, "To card not found with id: ");
+            fromCard = lockCard(fromCardId, "From card not found with id: ");
         }
 
-        // Проверка баланса
-        if (fromCard.getBalance().compareTo(request.getAmount()) < 0) {
-            throw new BadRequestException("Insufficient funds");
-        }
+        TransferRules.validate(fromCard, toCard, amount, currentUser.getId());
 
         // Выполнение перевода
-        fromCard.setBalance(fromCard.getBalance().subtract(request.getAmount()));
-        toCard.setBalance(toCard.getBalance().add(request.getAmount()));
+        fromCard.setBalance(fromCard.getBalance().minus(amount));
+        toCard.setBalance(toCard.getBalance().plus(amount));
 
         cardRepository.save(fromCard);
         cardRepository.save(toCard);
@@ -130,25 +229,141 @@ public class TransferService {
         CardTransaction transaction = new CardTransaction();
         transaction.setFromCard(fromCard);
         transaction.setToCard(toCard);
-        transaction.setAmount(request.getAmount());
+        transaction.setAmount(amount);
+        transaction.setTransactionDate(LocalDateTime.now());
+
+        CardTransaction savedTransaction = transactionRepository.save(transaction);
+
+        return buildResponse(savedTransaction,
+                fromCard.getId(), cardNumberMasker.maskedNumberOf(fromCard),
+                toCard.getId(), cardNumberMasker.maskedNumberOf(toCard));
+    }
+
+    /**
+     * Перевод условными UPDATE без предварительного чтения карт: все проверки бизнес-правил
+     * выполняются в WHERE, а строки блокируются самими UPDATE в порядке возрастания ID.
+     * Причина отказа выясняется только если одно из обновлений не затронуло строку.
+     */
+    private TransferResponse executeConditionalTransfer(TransferRequest request, Money amount, CurrentUser currentUser) {
+        Long fromCardId = request.getFromCardId();
+        Long toCardId = request.getToCardId();
+
+        if (fromCardId.equals(toCardId)) {
+            throw rejectionFor(request, currentUser);
+        }
+
+        // Срок действия проверяется по часам приложения, как и при выяснении причины отказа
+        LocalDate today = LocalDate.now();
+        CardBalanceUpdate debited;
+        CardBalanceUpdate credited;
+        if (fromCardId < toCardId) {
+            debited = debit(request, amount, today, currentUser);
+            credited = credit(request, amount, today, currentUser);
+        } else {
+            credited = credit(request, amount, today, currentUser);
+            debited = debit(request, amount, today, currentUser);
+        }
+
+        // Ссылки вместо загрузки карт: для INSERT нужны только их ID
+        CardTransaction transaction = new CardTransaction();
+        transaction.setFromCard(cardRepository.getReferenceById(fromCardId));
+        transaction.setToCard(cardRepository.getReferenceById(toCardId));
+        transaction.setAmount(amount);
         transaction.setTransactionDate(LocalDateTime.now());
 
         CardTransaction savedTransaction = transactionRepository.save(transaction);
 
-        // Формирование ответа
+        return buildResponse(savedTransaction,
+                fromCardId, cardNumberMasker.maskedNumberOf(debited.getMaskedCardNumber(), debited.getEncryptedCardNumber()),
+                toCardId, cardNumberMasker.maskedNumberOf(credited.getMaskedCardNumber(), credited.getEncryptedCardNumber()));
+    }
+
+    private CardBalanceUpdate debit(TransferRequest request, Money amount, LocalDate today, CurrentUser currentUser) {
+        long started = System.nanoTime();
+        CardBalanceUpdate debited = cardRepository
+                .debitIfAllowed(request.getFromCardId(), currentUser.getId(), amount.toBigDecimal(), today)
+                .orElseThrow(() -> rejectionFor(request, currentUser));
+        contentionMonitor.recordLockWait(request.getFromCardId(), System.nanoTime() - started);
+        return debited;
+    }
+
+    private CardBalanceUpdate credit(TransferRequest request, Money amount, LocalDate today, CurrentUser currentUser) {
+        long started = System.nanoTime();
+        CardBalanceUpdate credited = cardRepository
+                .creditIfAllowed(request.getToCardId(), currentUser.getId(), amount.toBigDecimal(), today)
+                .orElseThrow(() -> rejectionFor(request, currentUser));
+        contentionMonitor.recordLockWait(request.getToCardId(), System.nanoTime() - started);
+        return credited;
+    }
+
+    /**
+     * Выясняет, почему условное обновление не затронуло строку, и возвращает соответствующее исключение.
+     * Если все проверки проходят, состояние карты изменилось конкурентно - перевод будет повторен.
+     */
+    private RuntimeException rejectionFor(TransferRequest request, CurrentUser currentUser) {
+        Card fromCard = cardRepository.findById(request.getFromCardId())
+                .orElseThrow(() -> new ResourceNotFoundException("From card not found with id: " + request.getFromCardId()));
+        Card toCard = cardRepository.findById(request.getToCardId())
+                .orElseThrow(() -> new ResourceNotFoundException("To card not found with id: " + request.getToCardId()));
+
+        TransferRules.validate(fromCard, toCard, TransferRules.amountOf(request.getAmount()), currentUser.getId());
+
+        return new ConcurrencyFailureException("Card state changed during transfer");
+    }
+
+    private TransferResponse buildResponse(CardTransaction savedTransaction,
+                                           Long fromCardId, String fromCardMaskedNumber,
+                                           Long toCardId, String toCardMaskedNumber) {
         TransferResponse response = new TransferResponse();
         response.setId(savedTransaction.getId());
-        response.setFromCardId(fromCard.getId());
-        response.setFromCardMaskedNumber(cardNumberMasker.maskCardNumber(
-                cardNumberEncryptor.decrypt(fromCard.getEncryptedCardNumber())));
-        response.setToCardId(toCard.getId());
-        response.setToCardMaskedNumber(cardNumberMasker.maskCardNumber(
-                cardNumberEncryptor.decrypt(toCard.getEncryptedCardNumber())));
-        response.setAmount(request.getAmount());
+        response.setFromCardId(fromCardId);
+        response.setFromCardMaskedNumber(fromCardMaskedNumber);
+        response.setToCardId(toCardId);
+        response.setToCardMaskedNumber(toCardMaskedNumber);
+        response.setAmount(savedTransaction.getAmount().toBigDecimal());
         response.setTransactionDate(savedTransaction.getTransactionDate());
         response.setMessage("Transfer completed successfully");
 
         return response;
     }
-}
 
+    /**
+     * Блокирует строку карты и учитывает время ожидания блокировки.
+     */
+    private Card lockCard(Long cardId, String notFoundMessage) {
+        long started = System.nanoTime();
+        Card card = cardRepository.findByIdForUpdate(cardId)
+                .orElseThrow(() -> new ResourceNotFoundException(notFoundMessage + cardId));
+        contentionMonitor.recordLockWait(cardId, System.nanoTime() - started);
+        return card;
+    }
+
+    /**
+     * Экспоненциальная задержка со случайным разбросом, чтобы повторы конкурирующих
+     * переводов не сталкивались снова в тот же момент.
+     */
+    private void backoff(int attempt, ConcurrencyFailureException cause) {
+        backoff(backoffMs, attempt, cause);
+    }
+
+    /**
+     * Экспоненциальная задержка со случайной добавкой перед повтором после дедлока или ошибки
+     * сериализации; общая для всех путей, повторяющих переводы.
+     *
+     * @param backoffMs базовая задержка в миллисекундах
+     * @param attempt номер неудавшейся попытки (с 1)
+     * @param cause ошибка, выбрасываемая при прерывании ожидания
+     */
+    static void backoff(long backoffMs, int attempt, ConcurrencyFailureException cause) {
+        if (backoffMs <= 0) {
+            return;
+        }
+        long delay = backoffMs << Math.min(attempt - 1, 10);
+        try {
+            Thread.sleep(delay + ThreadLocalRandom.current().nextLong(delay + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+}
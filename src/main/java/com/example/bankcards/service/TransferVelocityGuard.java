@@ -0,0 +1,200 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.util.LruCache;
+import com.example.bankcards.util.SlidingWindowCounter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Предварительная проверка скорости переводов с карты, выполняемая до обращения к базе данных.
+ *
+ * <p>Правила:
+ * <ul>
+ *   <li>rate - не более {@code max-transfers} попыток перевода за {@code window};</li>
+ *   <li>spike - сумма перевода не больше {@code spike-factor} экспоненциального скользящего
+ *       среднего сумм предыдущих переводов (после {@code spike-min-transfers} переводов).</li>
+ * </ul>
+ * Отклоненные попытки тоже учитываются в правиле rate, чтобы перебор не обходил его.
+ *
+ * <p>Состояние хранится в памяти по паре (пользователь, карта-источник). Владелец карты читается
+ * из базы один раз при первом обращении пары; чужая или несуществующая карта запоминается как
+ * отклоненная запись, и повторы с ней обслуживаются без запроса к базе (такой перевод все равно
+ * будет отклонен). Чтобы перебор случайных ID не превращался в запрос к базе на каждый перевод,
+ * новые пары пользователя тоже ограничены - не больше {@code max-transfers} за {@code window}.
+ *
+ * <p>Таблица разбита на {@value #STRIPES} независимых LRU-сегментов общей емкостью
+ * {@code max-tracked-cards}: проверки разных карт не ждут друг друга, а при заполнении сегмента
+ * вытесняется давно не использованная пара, и проверка не пропускается. Счетчик попыток
+ * неблокирующий; средняя сумма и число переводов карты меняются вместе под монитором карты.
+ *
+ * @author system
+ */
+@Component
+public class TransferVelocityGuard {
+
+    private static final int WINDOW_BUCKETS = 10;
+    private static final int STRIPES = 16;
+
+    private final boolean enabled;
+    private final int maxTransfers;
+    private final long bucketMillis;
+    private final double spikeFactor;
+    private final int spikeMinTransfers;
+    private final double ewmaAlpha;
+    private final CardRepository cardRepository;
+    private final Counter rateRejections;
+    private final Counter spikeRejections;
+    private final Counter lookupRejections;
+    private final List<LruCache<VelocityKey, CardVelocity>> cards = new ArrayList<>(STRIPES);
+    private final List<LruCache<Long, SlidingWindowCounter>> lookups = new ArrayList<>(STRIPES);
+
+    /**
+     * Конструктор с внедрением зависимостей и регистрацией метрик.
+     *
+     * @param meterRegistry реестр метрик
+     * @param cardRepository репозиторий карт для проверки владельца новой карты
+     * @param enabled включена ли проверка
+     * @param maxTransfers максимальное число попыток перевода за окно
+     * @param window длительность окна правила rate
+     * @param spikeFactor во сколько раз сумма может превышать среднюю
+     * @param spikeMinTransfers сколько переводов нужно для расчета средней
+     * @param ewmaAlpha вес нового перевода в скользящей средней
+     * @param maxTrackedCards максимальное число отслеживаемых пар (пользователь, карта)
+     */
+    public TransferVelocityGuard(MeterRegistry meterRegistry,
+                                 CardRepository cardRepository,
+                                 @Value("${transfer.velocity.enabled:true}") boolean enabled,
+                                 @Value("${transfer.velocity.max-transfers:20}") int maxTransfers,
+                                 @Value("${transfer.velocity.window:60s}") Duration window,
+                                 @Value("${transfer.velocity.spike-factor:10}") double spikeFactor,
+                                 @Value("${transfer.velocity.spike-min-transfers:5}") int spikeMinTransfers,
+                                 @Value("${transfer.velocity.ewma-alpha:0.2}") double ewmaAlpha,
+                                 @Value("${transfer.velocity.max-tracked-cards:100000}") int maxTrackedCards) {
+        this.enabled = enabled;
+        this.maxTransfers = maxTransfers;
+        this.bucketMillis = Math.max(1, window.toMillis() / WINDOW_BUCKETS);
+        this.spikeFactor = spikeFactor;
+        this.spikeMinTransfers = spikeMinTransfers;
+        this.ewmaAlpha = ewmaAlpha;
+        this.cardRepository = cardRepository;
+        int stripeSize = Math.max(1, (maxTrackedCards + STRIPES - 1) / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            cards.add(new LruCache<>(stripeSize));
+            lookups.add(new LruCache<>(stripeSize));
+        }
+
+        this.rateRejections = Counter.builder("bankcards.transfer.velocity.rejected")
+                .description("Transfers rejected by velocity rules before reaching the database")
+                .tag("rule", "rate")
+                .register(meterRegistry);
+        this.spikeRejections = Counter.builder("bankcards.transfer.velocity.rejected")
+                .description("Transfers rejected by velocity rules before reaching the database")
+                .tag("rule", "spike")
+                .register(meterRegistry);
+        this.lookupRejections = Counter.builder("bankcards.transfer.velocity.rejected")
+                .description("Transfers rejected by velocity rules before reaching the database")
+                .tag("rule", "new-cards")
+                .register(meterRegistry);
+        Gauge.builder("bankcards.transfer.velocity.tracked", this, TransferVelocityGuard::trackedCards)
+                .description("User and card pairs currently tracked by velocity rules")
+                .register(meterRegistry);
+    }
+
+    private record VelocityKey(Long userId, Long cardId) {
+    }
+
+    /**
+     * Состояние пары (пользователь, карта). Для чужой или несуществующей карты {@code owned = false}:
+     * запись только запоминает результат проверки владельца.
+     */
+    private static final class CardVelocity {
+        final boolean owned;
+        final SlidingWindowCounter attempts;
+        double ewma;
+        long transfers;
+
+        CardVelocity(boolean owned, long bucketMillis) {
+            this.owned = owned;
+            this.attempts = owned ? new SlidingWindowCounter(WINDOW_BUCKETS, bucketMillis) : null;
+        }
+    }
+
+    /**
+     * Проверяет перевод по правилам скорости.
+     *
+     * @param userId ID пользователя, выполняющего перевод
+     * @param cardId ID карты-источника
+     * @param amount сумма перевода
+     * @throws BadRequestException если перевод нарушает одно из правил
+     */
+    public void check(Long userId, Long cardId, BigDecimal amount) {
+        check(userId, cardId, amount, System.currentTimeMillis());
+    }
+
+    void check(Long userId, Long cardId, BigDecimal amount, long nowMillis) {
+        if (!enabled || cardId == null) {
+            return;
+        }
+        CardVelocity velocity = velocityOf(new VelocityKey(userId, cardId), nowMillis);
+        if (!velocity.owned) {
+            return;
+        }
+
+        velocity.attempts.add(nowMillis, 1);
+        if (velocity.attempts.sum(nowMillis) > maxTransfers) {
+            rateRejections.increment();
+            throw new BadRequestException("Too many transfers from this card, try again later");
+        }
+
+        double value = amount.doubleValue();
+        synchronized (velocity) {
+            if (velocity.transfers >= spikeMinTransfers && value > velocity.ewma * spikeFactor) {
+                spikeRejections.increment();
+                throw new BadRequestException("Transfer amount is unusually high for this card");
+            }
+            velocity.ewma = velocity.transfers == 0 ? value : ewmaAlpha * value + (1 - ewmaAlpha) * velocity.ewma;
+            velocity.transfers++;
+        }
+    }
+
+    int trackedCards() {
+        int size = 0;
+        for (LruCache<VelocityKey, CardVelocity> stripe : cards) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    /**
+     * Возвращает состояние пары, при первом обращении проверяя владельца карты в базе.
+     * Запрос выполняется вне монитора сегмента и не чаще {@code max-transfers} раз за окно на пользователя.
+     */
+    private CardVelocity velocityOf(VelocityKey key, long nowMillis) {
+        LruCache<VelocityKey, CardVelocity> stripe = cards.get(Math.floorMod(key.hashCode(), STRIPES));
+        CardVelocity velocity = stripe.get(key);
+        if (velocity != null) {
+            return velocity;
+        }
+
+        SlidingWindowCounter userLookups = lookups.get(Math.floorMod(key.userId().hashCode(), STRIPES))
+                .computeIfAbsent(key.userId(), id -> new SlidingWindowCounter(WINDOW_BUCKETS, bucketMillis));
+        userLookups.add(nowMillis, 1);
+        if (userLookups.sum(nowMillis) > maxTransfers) {
+            lookupRejections.increment();
+            throw new BadRequestException("Too many transfers from new cards, try again later");
+        }
+
+        boolean owned = cardRepository.findOwnerIdById(key.cardId()).filter(key.userId()::equals).isPresent();
+        return stripe.computeIfAbsent(key, k -> new CardVelocity(owned, bucketMillis));
+    }
+}
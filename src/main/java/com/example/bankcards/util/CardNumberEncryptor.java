@@ -7,12 +7,19 @@ import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * Утилита для шифрования и расшифровки номеров банковских карт.
  * Использует AES шифрование для защиты чувствительных данных.
  * 
+ * <p>Инициализированные экземпляры {@link Cipher} переиспользуются в пределах потока:
+ * поиск провайдера и расчет раундовых ключей выполняются один раз на поток, а не на каждый вызов.
+ * 
  * @author system
  */
 @Component
@@ -21,6 +28,8 @@ public class CardNumberEncryptor {
     private static final String KEY_ALGORITHM = "AES";
     
     private final SecretKey secretKey;
+    private final ThreadLocal<CipherEngine> encryptEngines;
+    private final ThreadLocal<CipherEngine> decryptEngines;
 
     /**
      * Конструктор с инициализацией ключа шифрования.
@@ -39,6 +48,8 @@ public class CardNumberEncryptor {
         } else {
             this.secretKey = new SecretKeySpec(keyBytes, 0, 32, KEY_ALGORITHM);
         }
+        this.encryptEngines = ThreadLocal.withInitial(() -> new CipherEngine(Cipher.ENCRYPT_MODE));
+        this.decryptEngines = ThreadLocal.withInitial(() -> new CipherEngine(Cipher.DECRYPT_MODE));
     }
 
     /**
@@ -50,11 +61,10 @@ public class CardNumberEncryptor {
      */
     public String encrypt(String cardNumber) {
         try {
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            cipher.init(Cipher.ENCRYPT_MODE, secretKey);
-            byte[] encryptedBytes = cipher.doFinal(cardNumber.getBytes(StandardCharsets.UTF_8));
+            byte[] encryptedBytes = encryptEngines.get().cipher.doFinal(cardNumber.getBytes(StandardCharsets.UTF_8));
             return Base64.getEncoder().encodeToString(encryptedBytes);
         } catch (Exception e) {
+            encryptEngines.remove();
             throw new RuntimeException("Error encrypting card number", e);
         }
     }
@@ -67,14 +77,70 @@ public class CardNumberEncryptor {
      * @throws RuntimeException при ошибке расшифровки
      */
     public String decrypt(String encryptedCardNumber) {
+        CipherEngine engine = decryptEngines.get();
         try {
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            cipher.init(Cipher.DECRYPT_MODE, secretKey);
-            byte[] decryptedBytes = cipher.doFinal(Base64.getDecoder().decode(encryptedCardNumber));
-            return new String(decryptedBytes, StandardCharsets.UTF_8);
+            return engine.decrypt(encryptedCardNumber);
         } catch (Exception e) {
+            decryptEngines.remove();
             throw new RuntimeException("Error decrypting card number", e);
         }
     }
-}
 
+    /**
+     * Расшифровывает набор номеров карт одним экземпляром шифра.
+     * Предназначен для списочных операций, где расшифровывается много номеров подряд.
+     *
+     * @param encryptedCardNumbers зашифрованные номера карт (Base64)
+     * @return номера карт в открытом виде в порядке итерации исходной коллекции
+     * @throws RuntimeException при ошибке расшифровки любого из номеров
+     */
+    public List<String> decryptAll(Collection<String> encryptedCardNumbers) {
+        CipherEngine engine = decryptEngines.get();
+        List<String> result = new ArrayList<>(encryptedCardNumbers.size());
+        try {
+            for (String encryptedCardNumber : encryptedCardNumbers) {
+                result.add(engine.decrypt(encryptedCardNumber));
+            }
+            return result;
+        } catch (Exception e) {
+            decryptEngines.remove();
+            throw new RuntimeException("Error decrypting card number", e);
+        }
+    }
+
+    /**
+     * Инициализированный шифр и рабочие буферы одного потока.
+     * Буферы растут по мере необходимости и переиспользуются между вызовами.
+     */
+    private final class CipherEngine {
+        private final Cipher cipher;
+        private byte[] input = new byte[64];
+        private byte[] output = new byte[64];
+
+        private CipherEngine(int mode) {
+            try {
+                this.cipher = Cipher.getInstance(ALGORITHM);
+                this.cipher.init(mode, secretKey);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Error initializing card number cipher", e);
+            }
+        }
+
+        private String decrypt(String encrypted) throws GeneralSecurityException {
+            // Base64 декодируется сразу в рабочий буфер, без промежуточного массива
+            byte[] base64 = encrypted.getBytes(StandardCharsets.ISO_8859_1);
+            int maxDecoded = base64.length / 4 * 3 + 3;
+            if (input.length < maxDecoded) {
+                input = new byte[maxDecoded];
+            }
+            int length = Base64.getDecoder().decode(base64, input);
+
+            int maxOutput = cipher.getOutputSize(length);
+            if (output.length < maxOutput) {
+                output = new byte[maxOutput];
+            }
+            int decrypted = cipher.doFinal(input, 0, length, output, 0);
+            return new String(output, 0, decrypted, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.bankcards.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.HexFormat;
+
+/**
+ * Утилита для вычисления "слепого индекса" номера карты.
+ * Детерминированный HMAC-SHA256 от номера позволяет искать карту и проверять уникальность
+ * одним индексным запросом, не раскрывая сам номер и не расшифровывая строки таблицы.
+ * 
+ * @author system
+ */
+@Component
+public class CardNumberHasher {
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec secretKey;
+    private final ThreadLocal<Mac> macs;
+
+    /**
+     * Конструктор с инициализацией ключа HMAC.
+     * Если отдельный ключ не задан, используется JWT secret.
+     *
+     * @param secret секретный ключ из конфигурации
+     */
+    public CardNumberHasher(@Value("${card.blind-index-secret:${jwt.secret:mySecretKeyForJWTTokenGeneration12345678901234567890}}") String secret) {
+        this.secretKey = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.macs = ThreadLocal.withInitial(this::createMac);
+    }
+
+    /**
+     * Вычисляет слепой индекс номера карты.
+     * Перед хешированием из номера удаляются все нецифровые символы.
+     *
+     * @param cardNumber номер карты в открытом виде
+     * @return HMAC-SHA256 номера в виде hex-строки (64 символа)
+     */
+    public String hash(String cardNumber) {
+        String digitsOnly = cardNumber.replaceAll("[^0-9]", "");
+        Mac mac = macs.get();
+        byte[] digest = mac.doFinal(digitsOnly.getBytes(StandardCharsets.US_ASCII));
+        return HexFormat.of().formatHex(digest);
+    }
+
+    private Mac createMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(secretKey);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Error initializing card number hasher", e);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.bankcards.util;
 
+import com.example.bankcards.entity.Card;
 import org.springframework.stereotype.Component;
 
 /**
@@ -10,6 +11,42 @@ import org.springframework.stereotype.Component;
  */
 @Component
 public class CardNumberMasker {
+
+    private final CardNumberEncryptor cardNumberEncryptor;
+
+    /**
+     * Конструктор с внедрением зависимостей.
+     *
+     * @param cardNumberEncryptor утилита для расшифровки номеров карт без сохраненной маски
+     */
+    public CardNumberMasker(CardNumberEncryptor cardNumberEncryptor) {
+        this.cardNumberEncryptor = cardNumberEncryptor;
+    }
+
+    /**
+     * Возвращает маскированный номер карты, сохраненный при ее создании.
+     * Расшифровка выполняется только для карт, которые еще не обработаны CardBackfillService.
+     *
+     * @param card карта
+     * @return замаскированный номер карты
+     */
+    public String maskedNumberOf(Card card) {
+        return maskedNumberOf(card.getMaskedCardNumber(), card.getEncryptedCardNumber());
+    }
+
+    /**
+     * Возвращает сохраненный маскированный номер, а при его отсутствии - маску расшифрованного номера.
+     *
+     * @param maskedCardNumber сохраненный маскированный номер (может быть null)
+     * @param encryptedCardNumber зашифрованный номер карты
+     * @return замаскированный номер карты
+     */
+    public String maskedNumberOf(String maskedCardNumber, String encryptedCardNumber) {
+        if (maskedCardNumber != null) {
+            return maskedCardNumber;
+        }
+        return maskCardNumber(cardNumberEncryptor.decrypt(encryptedCardNumber));
+    }
     
     /**
      * Маскирует номер карты, показывая только последние 4 цифры.
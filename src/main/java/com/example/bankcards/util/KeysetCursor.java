@@ -0,0 +1,79 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Непрозрачный курсор для keyset (seek) пагинации.
+ * Хранит имя ключа сортировки, значение ключа у последней выданной записи и ее ID.
+ * Клиент получает курсор в виде Base64url-строки и передает его обратно без изменений.
+ * 
+ * @author system
+ */
+public final class KeysetCursor {
+    private static final char SEPARATOR = '|';
+
+    private final String sortKey;
+    private final String value;
+    private final long id;
+
+    /**
+     * Создает курсор.
+     *
+     * @param sortKey имя ключа сортировки
+     * @param value значение ключа сортировки у последней записи (в строковом виде)
+     * @param id ID последней записи
+     */
+    public KeysetCursor(String sortKey, String value, long id) {
+        this.sortKey = sortKey;
+        this.value = value;
+        this.id = id;
+    }
+
+    public String getSortKey() {
+        return sortKey;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Кодирует курсор в непрозрачную строку.
+     *
+     * @return курсор в формате Base64url
+     */
+    public String encode() {
+        String raw = sortKey + SEPARATOR + id + SEPARATOR + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Декодирует курсор, полученный от клиента.
+     *
+     * @param encoded курсор в формате Base64url
+     * @return декодированный курсор
+     * @throws BadRequestException если курсор поврежден
+     */
+    public static KeysetCursor decode(String encoded) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+            int first = raw.indexOf(SEPARATOR);
+            int second = raw.indexOf(SEPARATOR, first + 1);
+            if (first < 0 || second < 0) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            return new KeysetCursor(raw.substring(0, first),
+                    raw.substring(second + 1),
+                    Long.parseLong(raw.substring(first + 1, second)));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+}
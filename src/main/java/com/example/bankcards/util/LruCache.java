@@ -0,0 +1,120 @@
+package com.example.bankcards.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Ограниченный потокобезопасный кэш с вытеснением давно не использованных записей (LRU).
+ *
+ * <p>Записи хранятся в {@link LinkedHashMap} в порядке доступа: чтение переносит запись в конец,
+ * а вставка сверх емкости удаляет одну самую старую запись. Все операции выполняются за O(1)
+ * под монитором кэша, поэтому переполнение не требует обхода записей.
+ *
+ * @param <K> тип ключа
+ * @param <V> тип значения
+ * @author system
+ */
+public final class LruCache<K, V> {
+
+    private final LinkedHashMap<K, V> entries;
+
+    /**
+     * Создает пустой кэш.
+     *
+     * @param maxSize максимальное число записей
+     */
+    public LruCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Возвращает значение по ключу и отмечает запись как недавно использованную.
+     *
+     * @param key ключ
+     * @return значение или null, если записи нет
+     */
+    public synchronized V get(K key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Сохраняет значение; при переполнении вытесняется самая давно использованная запись.
+     *
+     * @param key ключ
+     * @param value значение
+     */
+    public synchronized void put(K key, V value) {
+        entries.put(key, value);
+    }
+
+    /**
+     * Возвращает значение по ключу, создавая его при отсутствии.
+     * При переполнении вытесняется самая давно использованная запись.
+     *
+     * @param key ключ
+     * @param factory создание значения (выполняется под монитором кэша, должно быть быстрым)
+     * @return существующее или созданное значение
+     */
+    public synchronized V computeIfAbsent(K key, Function<? super K, ? extends V> factory) {
+        return entries.computeIfAbsent(key, factory);
+    }
+
+    /**
+     * Удаляет запись.
+     *
+     * @param key ключ
+     */
+    public synchronized void remove(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Удаляет запись, только если она все еще связана с указанным значением.
+     *
+     * @param key ключ
+     * @param value ожидаемое значение
+     */
+    public synchronized void remove(K key, V value) {
+        entries.remove(key, value);
+    }
+
+    /**
+     * Удаляет записи, значения которых удовлетворяют условию. Обход выполняется под монитором
+     * кэша за O(n), поэтому метод предназначен для периодической очистки вне горячего пути.
+     *
+     * @param filter условие удаления
+     * @return число удаленных записей
+     */
+    public synchronized int removeIf(Predicate<? super V> filter) {
+        int before = entries.size();
+        entries.values().removeIf(filter);
+        return before - entries.size();
+    }
+
+    /**
+     * Возвращает копию записей, не меняя порядок доступа. Копирование выполняется под монитором
+     * кэша за O(n), поэтому метод предназначен для редких чтений (отчеты, диагностика).
+     *
+     * @return записи от самой давно использованной к самой недавней
+     */
+    public synchronized Map<K, V> snapshot() {
+        return new LinkedHashMap<>(entries);
+    }
+
+    /**
+     * @return текущее число записей
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+}
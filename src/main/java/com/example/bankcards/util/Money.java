@@ -0,0 +1,85 @@
+package com.example.bankcards.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Денежная сумма в минимальных единицах валюты (копейках), хранящаяся в long.
+ *
+ * <p>Используется для вычислений в пути перевода вместо {@link BigDecimal}: сравнение и сложение
+ * не создают объектов, а переполнение обнаруживается ({@link ArithmeticException}).
+ * Масштаб фиксирован - 2 знака после запятой, как у колонок NUMERIC(19,2).
+ * Диапазон ограничен long: ±92 233 720 368 547 758.07.
+ *
+ * @param minorUnits сумма в копейках
+ * @author system
+ */
+public record Money(long minorUnits) implements Comparable<Money> {
+
+    /**
+     * Количество знаков после запятой.
+     */
+    public static final int SCALE = 2;
+
+    public static final Money ZERO = new Money(0);
+
+    /**
+     * Создает сумму из копеек.
+     *
+     * @param minorUnits сумма в копейках
+     * @return сумма
+     */
+    public static Money ofMinor(long minorUnits) {
+        return minorUnits == 0 ? ZERO : new Money(minorUnits);
+    }
+
+    /**
+     * Создает сумму из десятичного значения без округления.
+     *
+     * @param amount сумма с не более чем двумя знаками после запятой
+     * @return сумма
+     * @throws ArithmeticException если у суммы больше двух знаков после запятой или она вне диапазона long
+     */
+    public static Money of(BigDecimal amount) {
+        return ofMinor(amount.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact());
+    }
+
+    /**
+     * Возвращает десятичное значение с масштабом 2.
+     *
+     * @return сумма в виде BigDecimal
+     */
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    public Money plus(Money other) {
+        return ofMinor(Math.addExact(minorUnits, other.minorUnits));
+    }
+
+    public Money minus(Money other) {
+        return ofMinor(Math.subtractExact(minorUnits, other.minorUnits));
+    }
+
+    public Money negate() {
+        return ofMinor(Math.negateExact(minorUnits));
+    }
+
+    public boolean isLessThan(Money other) {
+        return minorUnits < other.minorUnits;
+    }
+
+    public int signum() {
+        return Long.signum(minorUnits);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
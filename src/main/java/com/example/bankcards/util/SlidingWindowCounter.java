@@ -0,0 +1,132 @@
+package com.example.bankcards.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Неблокирующий счетчик в скользящем окне из фиксированного числа корзин.
+ *
+ * <p>Окно длиной {@code buckets * bucketMillis} разбито на корзины; каждая корзина хранится
+ * в одном long: старшие 24 бита - номер интервала (эпоха), младшие 40 бит - накопленное значение.
+ * Корзина с устаревшей эпохой обнуляется при первой записи в новом интервале, поэтому
+ * обновление - это один CAS без блокировок и без отдельной очистки.
+ * Точность окна - одна корзина: учитываются текущий неполный интервал и buckets - 1 предыдущих.
+ * Значение корзины ограничено 2^40 - 1 и при переполнении насыщается.
+ *
+ * @author system
+ */
+public final class SlidingWindowCounter {
+    private static final int VALUE_BITS = 40;
+    private static final long VALUE_MASK = (1L << VALUE_BITS) - 1;
+    private static final long EPOCH_MASK = (1L << (Long.SIZE - VALUE_BITS)) - 1;
+    private static final long HALF_EPOCH_RANGE = (EPOCH_MASK + 1) >>> 1;
+
+    private final AtomicLongArray slots;
+    private final long bucketMillis;
+
+    /**
+     * Создает счетчик.
+     *
+     * @param buckets количество корзин в окне
+     * @param bucketMillis длительность одной корзины в миллисекундах
+     */
+    public SlidingWindowCounter(int buckets, long bucketMillis) {
+        if (buckets <= 0 || bucketMillis <= 0) {
+            throw new IllegalArgumentException("buckets and bucketMillis must be positive");
+        }
+        this.slots = new AtomicLongArray(buckets);
+        this.bucketMillis = bucketMillis;
+    }
+
+    /**
+     * Возвращает эпоху корзины, в которую попадает момент времени.
+     *
+     * @param timeMillis момент времени в миллисекундах
+     * @return эпоха корзины
+     */
+    public long epochOf(long timeMillis) {
+        return Math.floorDiv(timeMillis, bucketMillis) & EPOCH_MASK;
+    }
+
+    /**
+     * Добавляет значение в корзину момента timeMillis.
+     * Если корзина уже занята более новым интервалом (момент старше окна), значение не учитывается.
+     *
+     * @param timeMillis момент события в миллисекундах
+     * @param delta неотрицательное значение
+     * @return эпоха корзины, в которую добавлено значение (для {@link #subtract})
+     */
+    public long add(long timeMillis, long delta) {
+        long epoch = epochOf(timeMillis);
+        int index = indexOf(epoch);
+        while (true) {
+            long current = slots.get(index);
+            long currentEpoch = current >>> VALUE_BITS;
+            long value;
+            if (currentEpoch == epoch) {
+                value = Math.min(VALUE_MASK, (current & VALUE_MASK) + delta);
+            } else if ((current & VALUE_MASK) == 0 || isOlder(currentEpoch, epoch)) {
+                // Пустую корзину можно занять независимо от ее эпохи
+                value = Math.min(VALUE_MASK, delta);
+            } else {
+                return epoch;
+            }
+            if (slots.compareAndSet(index, current, pack(epoch, value))) {
+                return epoch;
+            }
+        }
+    }
+
+    /**
+     * Вычитает ранее добавленное значение. Если корзина уже перешла к другому интервалу,
+     * вычитать нечего: добавленное значение выпало из окна вместе с ней.
+     *
+     * @param epoch эпоха, возвращенная {@link #add}
+     * @param delta ранее добавленное значение
+     */
+    public void subtract(long epoch, long delta) {
+        int index = indexOf(epoch);
+        while (true) {
+            long current = slots.get(index);
+            if ((current >>> VALUE_BITS) != epoch) {
+                return;
+            }
+            long value = Math.max(0, (current & VALUE_MASK) - delta);
+            if (slots.compareAndSet(index, current, pack(epoch, value))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Сумма значений в окне, заканчивающемся моментом nowMillis.
+     *
+     * @param nowMillis текущий момент в миллисекундах
+     * @return сумма значений корзин окна
+     */
+    public long sum(long nowMillis) {
+        long epoch = epochOf(nowMillis);
+        int buckets = slots.length();
+        long sum = 0;
+        for (int i = 0; i < buckets; i++) {
+            long slot = slots.get(i);
+            long age = (epoch - (slot >>> VALUE_BITS)) & EPOCH_MASK;
+            if (age < buckets) {
+                sum += slot & VALUE_MASK;
+            }
+        }
+        return sum;
+    }
+
+    private int indexOf(long epoch) {
+        return (int) (epoch % slots.length());
+    }
+
+    private static boolean isOlder(long slotEpoch, long epoch) {
+        long age = (epoch - slotEpoch) & EPOCH_MASK;
+        return age != 0 && age < HALF_EPOCH_RANGE;
+    }
+
+    private static long pack(long epoch, long value) {
+        return (epoch << VALUE_BITS) | value;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.bankcards.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Неблокирующий token bucket в форме GCRA (generic cell rate algorithm).
+ *
+ * <p>Вместо количества токенов и времени пополнения хранится одно значение - теоретическое
+ * время прибытия следующего запроса (TAT). Каждый запрос сдвигает TAT на интервал одного
+ * токена; запрос допускается, если TAT опережает текущее время не более чем на емкость
+ * корзины. Пополнение происходит неявно с течением времени, а захват токена - это один CAS
+ * без блокировок и без фоновых задач.
+ *
+ * @author system
+ */
+public final class TokenBucket {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final AtomicLong theoreticalArrival;
+
+    /**
+     * Создает заполненную корзину.
+     *
+     * @param capacity емкость корзины (сколько запросов допускается подряд)
+     * @param intervalNanos интервал пополнения одного токена в наносекундах
+     * @param nowNanos текущее время в наносекундах
+     */
+    public TokenBucket(long capacity, long intervalNanos, long nowNanos) {
+        if (capacity <= 0 || intervalNanos <= 0) {
+            throw new IllegalArgumentException("capacity and intervalNanos must be positive");
+        }
+        this.intervalNanos = intervalNanos;
+        this.burstNanos = Math.multiplyExact(capacity, intervalNanos);
+        this.theoreticalArrival = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Пытается взять один токен.
+     *
+     * @param nowNanos текущее время в наносекундах
+     * @return 0, если токен взят, иначе через сколько наносекунд появится следующий токен
+     */
+    public long tryAcquire(long nowNanos) {
+        while (true) {
+            long tat = theoreticalArrival.get();
+            long next = Math.max(tat - nowNanos, 0) + nowNanos + intervalNanos;
+            long wait = next - nowNanos - burstNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (theoreticalArrival.compareAndSet(tat, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Заполнена ли корзина полностью (запросов не было дольше времени ее пополнения).
+     *
+     * @param nowNanos текущее время в наносекундах
+     * @return true, если корзина полная
+     */
+    public boolean isFull(long nowNanos) {
+        return theoreticalArrival.get() - nowNanos <= 0;
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.bankcards.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JwtPrincipalResolverTest {
+
+    @Mock
+    private UserDetailsService userDetailsService;
+
+    private Claims claims(Long userId, String roles) {
+        return Jwts.claims()
+                .subject("testuser")
+                .add(JwtTokenProvider.USER_ID_CLAIM, userId)
+                .add(JwtTokenProvider.ROLES_CLAIM, roles)
+                .build();
+    }
+
+    private UserPrincipal dbUser(String... roles) {
+        Set<GrantedAuthority> authorities = new HashSet<>();
+        for (String role : roles) {
+            authorities.add(new SimpleGrantedAuthority(role));
+        }
+        return new UserPrincipal(1L, "testuser", "hash", authorities);
+    }
+
+    @Test
+    void testResolve_ChecksDatabaseOncePerInterval() {
+        JwtPrincipalResolver resolver = new JwtPrincipalResolver(userDetailsService, true, Duration.ofMinutes(5));
+        when(userDetailsService.loadUserByUsername("testuser")).thenReturn(dbUser("ROLE_USER"));
+
+        UserDetails first = resolver.resolve(claims(1L, "ROLE_USER"));
+        UserDetails second = resolver.resolve(claims(1L, "ROLE_USER"));
+
+        assertEquals(1L, ((UserPrincipal) first).getId());
+        assertEquals("testuser", second.getUsername());
+        assertNull(second.getPassword());
+        verify(userDetailsService, times(1)).loadUserByUsername("testuser");
+    }
+
+    @Test
+    void testResolve_RejectsRevokedRoles() {
+        JwtPrincipalResolver resolver = new JwtPrincipalResolver(userDetailsService, true, Duration.ofMinutes(5));
+        when(userDetailsService.loadUserByUsername("testuser")).thenReturn(dbUser("ROLE_USER"));
+
+        assertNull(resolver.resolve(claims(1L, "ROLE_ADMIN,ROLE_USER")));
+    }
+
+    @Test
+    void testResolve_ZeroIntervalAlwaysChecksDatabase() {
+        JwtPrincipalResolver resolver = new JwtPrincipalResolver(userDetailsService, true, Duration.ZERO);
+        when(userDetailsService.loadUserByUsername("testuser")).thenReturn(dbUser("ROLE_USER"));
+
+        resolver.resolve(claims(1L, "ROLE_USER"));
+        resolver.resolve(claims(1L, "ROLE_USER"));
+
+        verify(userDetailsService, times(2)).loadUserByUsername("testuser");
+    }
+
+    @Test
+    void testResolve_TokenWithoutUserIdUsesDatabase() {
+        JwtPrincipalResolver resolver = new JwtPrincipalResolver(userDetailsService, true, Duration.ofMinutes(5));
+        UserPrincipal user = dbUser("ROLE_USER");
+        when(userDetailsService.loadUserByUsername("testuser")).thenReturn(user);
+
+        assertSame(user, resolver.resolve(claims(null, "ROLE_USER")));
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.bankcards.security;
+
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtTokenProviderTest {
+
+    private JwtTokenProvider tokenProvider;
+
+    @BeforeEach
+    void setUp() {
+        tokenProvider = createProvider(60_000);
+    }
+
+    private JwtTokenProvider createProvider(long expiration) {
+        return createProvider(expiration, 100);
+    }
+
+    private JwtTokenProvider createProvider(long expiration, int cacheSize) {
+        JwtTokenProvider provider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(provider, "jwtSecret", "mySecretKeyForJWTTokenGeneration12345678901234567890");
+        ReflectionTestUtils.setField(provider, "jwtExpiration", expiration);
+        ReflectionTestUtils.setField(provider, "verifiedCacheMaxSize", cacheSize);
+        provider.init();
+        return provider;
+    }
+
+    private String tokenFor(JwtTokenProvider provider) {
+        return tokenFor(provider, 7L);
+    }
+
+    private String tokenFor(JwtTokenProvider provider, Long userId) {
+        Set<GrantedAuthority> authorities = Set.of(new SimpleGrantedAuthority("ROLE_USER"));
+        UserPrincipal principal = new UserPrincipal(userId, "testuser", null, authorities);
+        return provider.generateToken(new UsernamePasswordAuthenticationToken(principal, null, authorities));
+    }
+
+    @Test
+    void testVerifyToken_ReturnsClaims() {
+        Claims claims = tokenProvider.verifyToken(tokenFor(tokenProvider));
+
+        assertNotNull(claims);
+        assertEquals("testuser", claims.getSubject());
+        assertEquals(7L, claims.get(JwtTokenProvider.USER_ID_CLAIM, Long.class));
+        assertEquals("ROLE_USER", claims.get(JwtTokenProvider.ROLES_CLAIM, String.class));
+    }
+
+    @Test
+    void testVerifyToken_RepeatedTokenServedFromCache() {
+        String token = tokenFor(tokenProvider);
+
+        assertSame(tokenProvider.verifyToken(token), tokenProvider.verifyToken(token));
+    }
+
+    @Test
+    void testVerifyToken_TamperedToken() {
+        String token = tokenFor(tokenProvider);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        assertNull(tokenProvider.verifyToken(tampered));
+        assertFalse(tokenProvider.validateToken("not-a-jwt"));
+    }
+
+    @Test
+    void testVerifyToken_ExpiredToken() {
+        JwtTokenProvider expiredProvider = createProvider(-1_000);
+
+        assertNull(expiredProvider.verifyToken(tokenFor(expiredProvider)));
+    }
+
+    @Test
+    void testEvictExpired_RemovesOnlyExpiredTokens() {
+        long now = System.currentTimeMillis();
+        tokenProvider.verifyToken(tokenFor(tokenProvider));
+
+        assertEquals(0, tokenProvider.evictExpired(now));
+        assertEquals(1, tokenProvider.evictExpired(now + 120_000));
+        assertEquals(0, tokenProvider.evictExpired(now + 120_000));
+    }
+
+    @Test
+    void testVerifyToken_FullCacheEvictsLeastRecentlyUsed() {
+        JwtTokenProvider provider = createProvider(60_000, 2);
+        String first = tokenFor(provider, 1L);
+        String second = tokenFor(provider, 2L);
+        String third = tokenFor(provider, 3L);
+
+        Claims firstClaims = provider.verifyToken(first);
+        provider.verifyToken(second);
+        provider.verifyToken(first);
+        Claims thirdClaims = provider.verifyToken(third);
+
+        // Недавно использованный токен остался в кэше, вытеснен второй
+        assertSame(firstClaims, provider.verifyToken(first));
+        assertSame(thirdClaims, provider.verifyToken(third));
+        assertNotNull(provider.verifyToken(second));
+    }
+}
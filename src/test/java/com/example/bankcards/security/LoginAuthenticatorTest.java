@@ -0,0 +1,98 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LoginAuthenticatorTest {
+
+    @Mock
+    private AuthenticationManager authenticationManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private LoginAuthenticator loginAuthenticator;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        loginAuthenticator = new LoginAuthenticator(authenticationManager, meterRegistry, 1, 1, Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        loginAuthenticator.shutdown();
+    }
+
+    @Test
+    void testAuthenticate_Success() {
+        // Arrange
+        Authentication token = new UsernamePasswordAuthenticationToken("testuser", "password");
+        Authentication authenticated = new UsernamePasswordAuthenticationToken("testuser", null, List.of());
+        when(authenticationManager.authenticate(token)).thenReturn(authenticated);
+
+        // Act
+        Authentication result = loginAuthenticator.authenticate(token);
+
+        // Assert
+        assertSame(authenticated, result);
+        assertEquals(1, meterRegistry.timer("bankcards.auth.login", "outcome", "success").count());
+    }
+
+    @Test
+    void testAuthenticate_BadCredentials_Propagated() {
+        // Arrange
+        when(authenticationManager.authenticate(any())).thenThrow(new BadCredentialsException("Bad credentials"));
+
+        // Act & Assert
+        assertThrows(BadCredentialsException.class, () -> loginAuthenticator.authenticate(
+                new UsernamePasswordAuthenticationToken("testuser", "wrong")));
+        assertEquals(1, meterRegistry.timer("bankcards.auth.login", "outcome", "failure").count());
+    }
+
+    @Test
+    void testAuthenticate_PoolSaturated_Rejected() throws Exception {
+        // Arrange: один поток занят, одно место в очереди занято
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(authenticationManager.authenticate(any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return invocation.getArgument(0);
+        });
+        Authentication token = new UsernamePasswordAuthenticationToken("testuser", "password");
+        CompletableFuture<Authentication> running = CompletableFuture.supplyAsync(() -> loginAuthenticator.authenticate(token));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Authentication> queued = CompletableFuture.supplyAsync(() -> loginAuthenticator.authenticate(token));
+        while (meterRegistry.get("bankcards.auth.login.queue").gauge().value() < 1) {
+            Thread.onSpinWait();
+        }
+
+        // Act & Assert
+        assertThrows(ServiceUnavailableException.class, () -> loginAuthenticator.authenticate(token));
+        assertEquals(1.0, meterRegistry.counter("bankcards.auth.login.rejected").count());
+
+        release.countDown();
+        assertSame(token, running.get(5, TimeUnit.SECONDS));
+        assertSame(token, queued.get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.bankcards.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        filter = new RateLimitFilter(objectMapper, meterRegistry, true, 60, 2, 600, 100, 10, 1000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testTransfers_RejectedAfterBurstWithRetryAfter() throws Exception {
+        // Arrange
+        authenticate(1L, "ROLE_USER");
+
+        // Act
+        int first = perform("POST", "/api/cards/transfer").getStatus();
+        int second = perform("POST", "/api/cards/transfer").getStatus();
+        MockHttpServletResponse third = perform("POST", "/api/cards/transfer");
+
+        // Assert
+        assertEquals(200, first);
+        assertEquals(200, second);
+        assertEquals(429, third.getStatus());
+        assertEquals("1", third.getHeader("Retry-After"));
+        assertEquals(1.0, meterRegistry.counter("bankcards.ratelimit.rejected", "endpoint", "transfer").count());
+        // Остальные эндпоинты ограничиваются отдельной корзиной
+        assertEquals(200, perform("GET", "/api/cards").getStatus());
+    }
+
+    @Test
+    void testAdmin_LimitsMultiplied() throws Exception {
+        // Arrange
+        authenticate(2L, "ROLE_ADMIN");
+
+        // Act & Assert
+        for (int i = 0; i < 20; i++) {
+            assertEquals(200, perform("POST", "/api/cards/transfer").getStatus());
+        }
+        assertEquals(429, perform("POST", "/api/cards/transfer").getStatus());
+    }
+
+    @Test
+    void testAnonymousAndAuthRequests_NotLimited() throws Exception {
+        // Act & Assert
+        for (int i = 0; i < 5; i++) {
+            assertEquals(200, perform("POST", "/api/cards/transfer").getStatus());
+            assertEquals(200, perform("POST", "/api/auth/login").getStatus());
+        }
+        assertEquals(0, filter.trackedBuckets());
+    }
+
+    @Test
+    void testFullTable_NewUserStillLimitedAndTableBounded() throws Exception {
+        // Arrange: по одной корзине на сегмент
+        filter = new RateLimitFilter(new ObjectMapper().registerModule(new JavaTimeModule()), meterRegistry,
+                true, 60, 2, 600, 100, 10, 16);
+        for (long userId = 1; userId <= 100; userId++) {
+            authenticate(userId, "ROLE_USER");
+            perform("POST", "/api/cards/transfer");
+        }
+
+        // Act
+        authenticate(1000L, "ROLE_USER");
+        int first = perform("POST", "/api/cards/transfer").getStatus();
+        int second = perform("POST", "/api/cards/transfer").getStatus();
+        int third = perform("POST", "/api/cards/transfer").getStatus();
+
+        // Assert: новая корзина вытеснила давно не использованную, ограничение не обходится
+        assertEquals(200, first);
+        assertEquals(200, second);
+        assertEquals(429, third);
+        assertTrue(filter.trackedBuckets() <= 16);
+    }
+
+    private void authenticate(Long userId, String role) {
+        Set<GrantedAuthority> authorities = Set.of(new SimpleGrantedAuthority(role));
+        UserPrincipal principal = new UserPrincipal(userId, "user" + userId, null, authorities);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, authorities));
+    }
+
+    private MockHttpServletResponse perform(String method, String path) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
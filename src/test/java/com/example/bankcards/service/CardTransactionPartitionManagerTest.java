@@ -0,0 +1,59 @@
+package com.example.bankcards.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CardTransactionPartitionManagerTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testMaintainPartitions_CreatesFuturePartitionsAndDetachesOldOnes() {
+        // Arrange
+        CardTransactionPartitionManager manager = new CardTransactionPartitionManager(jdbcTemplate, true, 2, 12);
+        YearMonth now = YearMonth.now();
+        String old = CardTransactionPartitionManager.partitionName(now.minusMonths(13));
+        String kept = CardTransactionPartitionManager.partitionName(now.minusMonths(12));
+        when(jdbcTemplate.queryForObject(contains("pg_partitioned_table"), eq(Integer.class))).thenReturn(1);
+        when(jdbcTemplate.queryForList(contains("pg_inherits"), eq(String.class)))
+                .thenReturn(List.of(old, kept, "card_transactions_default"));
+
+        // Act
+        manager.maintainPartitions();
+
+        // Assert
+        for (int i = 0; i <= 2; i++) {
+            verify(jdbcTemplate).execute(contains(
+                    "CREATE TABLE IF NOT EXISTS " + CardTransactionPartitionManager.partitionName(now.plusMonths(i))));
+        }
+        verify(jdbcTemplate).execute("ALTER TABLE card_transactions DETACH PARTITION " + old);
+        verify(jdbcTemplate, never()).execute("ALTER TABLE card_transactions DETACH PARTITION " + kept);
+    }
+
+    @Test
+    void testMaintainPartitions_SkipsWhenTableIsNotPartitioned() {
+        // Arrange
+        CardTransactionPartitionManager manager = new CardTransactionPartitionManager(jdbcTemplate, true, 3, 0);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class))).thenReturn(0);
+
+        // Act
+        manager.maintainPartitions();
+
+        // Assert
+        verify(jdbcTemplate, never()).execute(startsWith("CREATE TABLE"));
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardBalanceResponse;
+import com.example.bankcards.dto.CardTransactionResponse;
+import com.example.bankcards.dto.CursorPageResponse;
+import com.example.bankcards.entity.CardBalanceSnapshot;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.exception.ForbiddenException;
+import com.example.bankcards.repository.CardBalanceSnapshotRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardTransactionRepository;
+import com.example.bankcards.security.CurrentUser;
+import com.example.bankcards.security.CurrentUserProvider;
+import com.example.bankcards.util.KeysetCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CardTransactionServiceTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private CardTransactionRepository transactionRepository;
+
+    @Mock
+    private CardBalanceSnapshotRepository snapshotRepository;
+
+    @Mock
+    private CurrentUserProvider currentUserProvider;
+
+    @InjectMocks
+    private CardTransactionService cardTransactionService;
+
+    @BeforeEach
+    void setUp() {
+        when(currentUserProvider.get()).thenReturn(
+                new CurrentUser(1L, "testuser", CurrentUser.maskOf(Role.RoleName.ROLE_USER)));
+    }
+
+    @Test
+    void testGetTransactionsForCard_MergesBothSidesNewestFirst() {
+        // Arrange
+        when(cardRepository.findOwnerIdById(5L)).thenReturn(Optional.of(1L));
+        when(transactionRepository.findByCardAfter(eq(5L), eq(CardTransactionResponse.Direction.OUTGOING),
+                isNull(), isNull(), isNull(), isNull(), eq(3)))
+                .thenReturn(List.of(
+                        transaction(40L, T0.plusMinutes(4), CardTransactionResponse.Direction.OUTGOING),
+                        transaction(10L, T0.plusMinutes(1), CardTransactionResponse.Direction.OUTGOING)));
+        when(transactionRepository.findByCardAfter(eq(5L), eq(CardTransactionResponse.Direction.INCOMING),
+                isNull(), isNull(), isNull(), isNull(), eq(3)))
+                .thenReturn(List.of(
+                        transaction(30L, T0.plusMinutes(3), CardTransactionResponse.Direction.INCOMING),
+                        transaction(20L, T0.plusMinutes(2), CardTransactionResponse.Direction.INCOMING)));
+
+        // Act
+        CursorPageResponse<CardTransactionResponse> page =
+                cardTransactionService.getTransactionsForCard(5L, null, null, null, 2);
+
+        // Assert
+        assertEquals(List.of(40L, 30L), page.getContent().stream().map(CardTransactionResponse::getId).toList());
+        assertTrue(page.isHasNext());
+        KeysetCursor cursor = KeysetCursor.decode(page.getNextCursor());
+        assertEquals(30L, cursor.getId());
+        assertEquals(T0.plusMinutes(3).toString(), cursor.getValue());
+    }
+
+    @Test
+    void testGetTransactionsForCard_PassesCursorToBothSides() {
+        // Arrange
+        when(cardRepository.findOwnerIdById(5L)).thenReturn(Optional.of(1L));
+        String after = new KeysetCursor("transactionDate", T0.toString(), 30L).encode();
+
+        // Act
+        CursorPageResponse<CardTransactionResponse> page =
+                cardTransactionService.getTransactionsForCard(5L, null, null, after, 10);
+
+        // Assert
+        assertFalse(page.isHasNext());
+        verify(transactionRepository).findByCardAfter(5L, CardTransactionResponse.Direction.OUTGOING,
+                null, null, T0, 30L, 11);
+        verify(transactionRepository).findByCardAfter(5L, CardTransactionResponse.Direction.INCOMING,
+                null, null, T0, 30L, 11);
+    }
+
+    @Test
+    void testGetTransactionsForCard_ForeignCard() {
+        // Arrange
+        when(cardRepository.findOwnerIdById(5L)).thenReturn(Optional.of(2L));
+
+        // Act & Assert
+        assertThrows(ForbiddenException.class,
+                () -> cardTransactionService.getTransactionsForCard(5L, null, null, null, 10));
+        verify(transactionRepository, never()).findByCardAfter(any(), any(), any(), any(), any(), any(), anyInt());
+    }
+
+    private static CardTransactionResponse transaction(Long id, LocalDateTime date,
+                                                       CardTransactionResponse.Direction direction) {
+        return new CardTransactionResponse(id, 5L, 6L, new BigDecimal("10.00"), date, direction);
+    }
+
+    @Test
+    void testGetBalanceAt_AppliesDeltaAfterNearestSnapshot() {
+        // Arrange
+        LocalDateTime at = T0.plusHours(6);
+        when(cardRepository.findOwnerIdById(5L)).thenReturn(Optional.of(1L));
+        when(snapshotRepository.findFirstByCardIdAndSnapshotAtLessThanEqualOrderBySnapshotAtDesc(5L, at))
+                .thenReturn(Optional.of(new CardBalanceSnapshot(1L, 5L, T0, new BigDecimal("100.00"))));
+        when(transactionRepository.sumIncoming(5L, T0, at)).thenReturn(new BigDecimal("30.00"));
+        when(transactionRepository.sumOutgoing(5L, T0, at)).thenReturn(new BigDecimal("45.50"));
+
+        // Act
+        CardBalanceResponse response = cardTransactionService.getBalanceAt(5L, at);
+
+        // Assert
+        assertEquals(new BigDecimal("84.50"), response.getBalance());
+        assertEquals(T0, response.getSnapshotAt());
+        verify(snapshotRepository, never()).findFirstByCardIdAndSnapshotAtGreaterThanOrderBySnapshotAtAsc(any(), any());
+        verify(cardRepository, never()).findById(any());
+    }
+
+    @Test
+    void testGetBalanceAt_RollsBackFromLaterSnapshot() {
+        // Arrange
+        LocalDateTime at = T0.minusHours(6);
+        when(cardRepository.findOwnerIdById(5L)).thenReturn(Optional.of(1L));
+        when(snapshotRepository.findFirstByCardIdAndSnapshotAtLessThanEqualOrderBySnapshotAtDesc(5L, at))
+                .thenReturn(Optional.empty());
+        when(snapshotRepository.findFirstByCardIdAndSnapshotAtGreaterThanOrderBySnapshotAtAsc(5L, at))
+                .thenReturn(Optional.of(new CardBalanceSnapshot(1L, 5L, T0, new BigDecimal("100.00"))));
+        when(transactionRepository.sumIncoming(5L, at, T0)).thenReturn(new BigDecimal("30.00"));
+        when(transactionRepository.sumOutgoing(5L, at, T0)).thenReturn(new BigDecimal("10.00"));
+
+        // Act
+        CardBalanceResponse response = cardTransactionService.getBalanceAt(5L, at);
+
+        // Assert
+        assertEquals(new BigDecimal("80.00"), response.getBalance());
+        assertEquals(T0, response.getSnapshotAt());
+    }
+}
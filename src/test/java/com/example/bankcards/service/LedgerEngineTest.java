@@ -0,0 +1,106 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.util.CardNumberMasker;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LedgerEngineTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private CardNumberMasker cardNumberMasker;
+
+    @Mock
+    private OutboxWriter outboxWriter;
+
+    @Mock
+    private TransferLimitService transferLimitService;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testStart_ReplaysUnflushedJournalEntriesAfterRestart() throws Exception {
+        // Arrange: журнал остался после аварийной остановки, в базу сброшена только первая запись
+        try (LedgerJournal journal = new LedgerJournal(tempDir.resolve("shard-0.journal"), 16, false)) {
+            journal.append(new LedgerJournal.Entry(11L, 1L, 2L, 1_000L, 1L));
+            journal.append(new LedgerJournal.Entry(12L, 2L, 1L, 250L, 2L));
+            journal.append(new LedgerJournal.Entry(13L, 1L, 2L, 500L, 3L));
+            LedgerJournal.Entry cancelled = new LedgerJournal.Entry(14L, 1L, 2L, 700L, 4L);
+            journal.append(cancelled);
+            journal.append(cancelled.cancellation());
+        }
+        when(jdbcTemplate.queryForList(contains("ledger_checkpoints"), eq(Long.class), eq(0)))
+                .thenReturn(List.of(11L));
+        LedgerEngine engine = newEngine(false);
+
+        // Act
+        engine.start();
+        engine.stop();
+
+        // Assert: повторно записаны только неподтвержденные и не отмененные переводы
+        ArgumentCaptor<List<Object[]>> inserts = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO card_transactions"), inserts.capture());
+        assertEquals(List.of(12L, 13L), inserts.getValue().stream().map(row -> row[0]).toList());
+        verify(jdbcTemplate).update(startsWith("INSERT INTO ledger_checkpoints"), eq(0), eq(13L), any());
+
+        // После записи контрольной точки повторный старт ничего не переигрывает
+        clearInvocations(jdbcTemplate);
+        when(jdbcTemplate.queryForList(contains("ledger_checkpoints"), eq(Long.class), eq(0)))
+                .thenReturn(List.of(13L));
+        engine = newEngine(false);
+        engine.start();
+        engine.stop();
+        verify(jdbcTemplate, never()).batchUpdate(startsWith("INSERT INTO card_transactions"), anyList());
+    }
+
+    @Test
+    void testConstructor_RefusesToStartWithGroupCommit() {
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> newEngine(true));
+    }
+
+    @Test
+    void testExecute_AllOrNothingBatchOfSeveralUsersRejected() throws Exception {
+        // Arrange
+        LedgerEngine engine = newEngine(false);
+        engine.start();
+        List<TransferBatchExecutor.Item> items = List.of(
+                new TransferBatchExecutor.Item(1L, new TransferRequest(1L, 2L, BigDecimal.ONE)),
+                new TransferBatchExecutor.Item(2L, new TransferRequest(3L, 4L, BigDecimal.ONE)));
+
+        // Act & Assert
+        try {
+            assertThrows(IllegalArgumentException.class, () -> engine.execute(items, true));
+        } finally {
+            engine.stop();
+        }
+    }
+
+    private LedgerEngine newEngine(boolean groupCommitEnabled) {
+        return new LedgerEngine(jdbcTemplate, transactionManager, cardNumberMasker, outboxWriter, transferLimitService,
+                1, tempDir.toString(), 16, false, 500, 60_000, 100, 10, groupCommitEnabled);
+    }
+}
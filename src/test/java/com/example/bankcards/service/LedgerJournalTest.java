@@ -0,0 +1,61 @@
+package com.example.bankcards.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LedgerJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testReadAfter_SkipsEntriesUpToCheckpoint() throws Exception {
+        Path file = tempDir.resolve("shard-0.journal");
+        try (LedgerJournal journal = new LedgerJournal(file, 16, false)) {
+            journal.append(new LedgerJournal.Entry(10L, 1L, 2L, 15000L, 1_000L));
+            journal.append(new LedgerJournal.Entry(11L, 2L, 1L, 500L, 2_000L));
+            journal.append(new LedgerJournal.Entry(12L, 1L, 3L, 1L, 3_000L));
+        }
+
+        // Повторное открытие файла - как при перезапуске приложения
+        try (LedgerJournal journal = new LedgerJournal(file, 16, false)) {
+            List<LedgerJournal.Entry> entries = journal.readAfter(10L);
+
+            assertEquals(2, entries.size());
+            assertEquals(new LedgerJournal.Entry(11L, 2L, 1L, 500L, 2_000L), entries.get(0));
+            assertEquals(12L, entries.get(1).transactionId());
+        }
+    }
+
+    @Test
+    void testReset_OldEntriesAreCutOffByCheckpoint() throws Exception {
+        Path file = tempDir.resolve("shard-1.journal");
+        try (LedgerJournal journal = new LedgerJournal(file, 16, false)) {
+            journal.append(new LedgerJournal.Entry(1L, 1L, 2L, 100L, 1_000L));
+            journal.append(new LedgerJournal.Entry(2L, 1L, 2L, 100L, 1_000L));
+            // Записи 1-2 сброшены в базу, контрольная точка = 2
+            journal.reset();
+            journal.append(new LedgerJournal.Entry(3L, 2L, 1L, 700L, 5_000L));
+
+            List<LedgerJournal.Entry> entries = journal.readAfter(2L);
+
+            assertEquals(List.of(new LedgerJournal.Entry(3L, 2L, 1L, 700L, 5_000L)), entries);
+        }
+    }
+
+    @Test
+    void testAppend_FailsWhenFull() throws Exception {
+        try (LedgerJournal journal = new LedgerJournal(tempDir.resolve("shard-2.journal"), 1, false)) {
+            journal.append(new LedgerJournal.Entry(1L, 1L, 2L, 100L, 1_000L));
+
+            assertFalse(journal.hasCapacity());
+            assertThrows(IllegalStateException.class,
+                    () -> journal.append(new LedgerJournal.Entry(2L, 1L, 2L, 100L, 1_000L)));
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.dto.TransferResponse;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.exception.ForbiddenException;
+import com.example.bankcards.util.Money;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LedgerShardTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private LedgerFlusher flusher;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransferLimitService transferLimitService;
+
+    @Mock
+    private TransferLimitService.Reservation reservation;
+
+    private LedgerJournal journal;
+    private LedgerShard shard;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        journal = new LedgerJournal(tempDir.resolve("shard-0.journal"), 16, false);
+        lenient().when(flusher.allocateTransactionIds(anyInt()))
+                .thenReturn(LongStream.rangeClosed(100, 109).boxed().toList());
+        lenient().when(transferLimitService.reserve(anyLong(), any(Money.class))).thenReturn(reservation);
+        shard = newShard(100);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        shard.shutdown();
+        journal.close();
+    }
+
+    @Test
+    void testSubmit_AppliesTransferAndValidatesInMemory() {
+        // Arrange
+        stubCard(1L, 1L, "100.00", Card.CardStatus.ACTIVE);
+        stubCard(2L, 1L, "10.00", Card.CardStatus.ACTIVE);
+        stubCard(3L, 2L, "10.00", Card.CardStatus.ACTIVE);
+
+        // Act
+        TransferResponse response = transfer(1L, 2L, "30.00");
+
+        // Assert: второй перевод проверяется по балансу в памяти, чужая карта отклоняется
+        assertEquals(100L, response.getId());
+        assertEquals("**** 1", response.getFromCardMaskedNumber());
+        assertEquals("Insufficient funds", assertRejected(BadRequestException.class, 1L, 2L, "70.01").getMessage());
+        assertRejected(ForbiddenException.class, 1L, 3L, "1.00");
+        assertEquals(101L, transfer(1L, 2L, "70.00").getId());
+        verify(jdbcTemplate, times(1)).query(anyString(), any(RowMapper.class), eq(1L));
+        assertEquals(2, journal.readAfter(0L).size());
+    }
+
+    @Test
+    void testSubmit_OnCompletedRunsAfterJournalAndFailureCancelsTransfer() {
+        // Arrange
+        stubCard(1L, 1L, "100.00", Card.CardStatus.ACTIVE);
+        stubCard(2L, 1L, "10.00", Card.CardStatus.ACTIVE);
+        List<Integer> journaledBeforeCallback = new ArrayList<>();
+
+        // Act
+        CompletionException ex = assertThrows(CompletionException.class, () -> shard.submit(1L,
+                request(1L, 2L, "100.00"), response -> {
+                    journaledBeforeCallback.add(journal.readAfter(0L).size());
+                    throw new IllegalStateException("duplicate key");
+                }).join());
+
+        // Assert: перевод записан в журнал до вызова, затем отменен; резерв снят, баланс не изменился
+        assertEquals("duplicate key", ex.getCause().getMessage());
+        assertEquals(List.of(1), journaledBeforeCallback);
+        List<LedgerJournal.Entry> journaled = journal.readAfter(0L);
+        assertEquals(journaled.get(0).cancellation(), journaled.get(1));
+        verify(reservation).release();
+        assertEquals(101L, transfer(1L, 2L, "100.00").getId());
+    }
+
+    @Test
+    void testSubmit_RejectsTransferOverLimit() {
+        // Arrange
+        stubCard(1L, 1L, "100.00", Card.CardStatus.ACTIVE);
+        stubCard(2L, 1L, "10.00", Card.CardStatus.ACTIVE);
+        when(transferLimitService.reserve(1L, Money.of(new BigDecimal("60.00"))))
+                .thenThrow(new BadRequestException("Daily transfer limit exceeded"));
+
+        // Act & Assert
+        assertEquals("Daily transfer limit exceeded",
+                assertRejected(BadRequestException.class, 1L, 2L, "60.00").getMessage());
+        assertTrue(journal.readAfter(0L).isEmpty());
+        assertEquals(100L, transfer(1L, 2L, "50.00").getId());
+        verify(reservation, never()).release();
+    }
+
+    @Test
+    void testEvict_RereadsCardWithUnflushedTransfers() {
+        // Arrange
+        stubCard(1L, 1L, "100.00", Card.CardStatus.ACTIVE);
+        stubCard(2L, 1L, "10.00", Card.CardStatus.ACTIVE);
+        transfer(1L, 2L, "30.00");
+
+        // Act: в базе баланс еще 100.00, перевод на 30.00 не сброшен
+        shard.evict(1L);
+
+        // Assert
+        assertEquals("Insufficient funds", assertRejected(BadRequestException.class, 1L, 2L, "70.01").getMessage());
+        verify(jdbcTemplate, times(2)).query(anyString(), any(RowMapper.class), eq(1L));
+
+        // Карта заблокирована в базе: после события изменения шард видит новый статус
+        stubCard(1L, 1L, "100.00", Card.CardStatus.BLOCKED);
+        shard.evict(1L);
+        assertEquals("From card is not active",
+                assertRejected(BadRequestException.class, 1L, 2L, "1.00").getMessage());
+    }
+
+    @Test
+    void testSubmit_FullCacheEvictsOnlyLeastRecentlyUsedCard() throws Exception {
+        // Arrange
+        shard.shutdown();
+        shard = newShard(100, 2);
+        stubCard(1L, 1L, "100.00", Card.CardStatus.ACTIVE);
+        stubCard(2L, 1L, "10.00", Card.CardStatus.ACTIVE);
+        stubCard(3L, 1L, "10.00", Card.CardStatus.ACTIVE);
+        transfer(1L, 2L, "1.00");
+
+        // Act: карта 3 вытесняет давно не использованную карту 2
+        transfer(1L, 3L, "1.00");
+        transfer(1L, 2L, "1.00");
+
+        // Assert
+        verify(jdbcTemplate, times(1)).query(anyString(), any(RowMapper.class), eq(1L));
+        verify(jdbcTemplate, times(2)).query(anyString(), any(RowMapper.class), eq(2L));
+    }
+
+    @Test
+    void testSubmit_FlushesWhenBatchIsFull() throws Exception {
+        // Arrange
+        shard.shutdown();
+        shard = newShard(2);
+        stubCard(1L, 1L, "100.00", Card.CardStatus.ACTIVE);
+        stubCard(2L, 1L, "10.00", Card.CardStatus.ACTIVE);
+        List<LedgerJournal.Entry> flushed = new ArrayList<>();
+        doAnswer(invocation -> flushed.addAll(invocation.getArgument(1)))
+                .when(flusher).flush(eq(0), anyList());
+
+        // Act
+        transfer(1L, 2L, "10.00");
+        transfer(2L, 1L, "5.00");
+
+        // Assert
+        assertEquals(2, flushed.size());
+        assertEquals(new LedgerJournal.Entry(101L, 2L, 1L, 500L, flushed.get(1).timestampMillis()), flushed.get(1));
+        assertTrue(journal.hasCapacity(16));
+    }
+
+    @Test
+    void testSubmitBatch_AllOrNothingRestoresBalances() {
+        // Arrange
+        stubCard(1L, 1L, "100.00", Card.CardStatus.ACTIVE);
+        stubCard(2L, 1L, "10.00", Card.CardStatus.ACTIVE);
+        List<TransferBatchExecutor.Item> items = List.of(
+                new TransferBatchExecutor.Item(1L, request(1L, 2L, "80.00")),
+                new TransferBatchExecutor.Item(1L, request(1L, 2L, "30.00")));
+
+        // Act
+        List<TransferBatchExecutor.Outcome> outcomes = shard.submitBatch(items, true).join();
+
+        // Assert
+        assertFalse(outcomes.get(0).isSuccess());
+        assertEquals("Insufficient funds", outcomes.get(1).error().getMessage());
+        verify(reservation).release();
+        assertTrue(journal.readAfter(0L).isEmpty());
+        assertEquals(101L, transfer(1L, 2L, "100.00").getId());
+    }
+
+    private LedgerShard newShard(int flushBatchSize) {
+        return newShard(flushBatchSize, 100);
+    }
+
+    private LedgerShard newShard(int flushBatchSize, int maxCards) {
+        return new LedgerShard(0, journal, flusher, transferLimitService, jdbcTemplate, card -> "**** " + card.getId(),
+                flushBatchSize, 60_000, maxCards, 10);
+    }
+
+    private TransferResponse transfer(Long from, Long to, String amount) {
+        return shard.submit(1L, request(from, to, amount), response -> { }).join();
+    }
+
+    private RuntimeException assertRejected(Class<? extends RuntimeException> type, Long from, Long to, String amount) {
+        CompletionException ex = assertThrows(CompletionException.class, () -> transfer(from, to, amount));
+        return assertInstanceOf(type, ex.getCause());
+    }
+
+    private static TransferRequest request(Long from, Long to, String amount) {
+        return new TransferRequest(from, to, new BigDecimal(amount));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubCard(Long id, Long ownerId, String balance, Card.CardStatus status) {
+        lenient().when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(id))).thenAnswer(invocation -> {
+            User owner = new User();
+            owner.setId(ownerId);
+            Card card = new Card();
+            card.setId(id);
+            card.setOwner(owner);
+            card.setStatus(status);
+            card.setExpiryDate(LocalDate.now().plusYears(1));
+            card.setBalance(Money.of(new BigDecimal(balance)));
+            return List.of(card);
+        });
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.bankcards.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private OutboxSink sink;
+
+    private SimpleMeterRegistry meterRegistry;
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        relay = new OutboxRelay(jdbcTemplate, transactionManager, sink, meterRegistry, true, 2, 10, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void testRelay_PublishesAndDeletesUntilShortBatch() {
+        // Arrange
+        OutboxMessage first = message(1L);
+        OutboxMessage second = message(2L);
+        OutboxMessage third = message(3L);
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(Timestamp.class), any(Timestamp.class), eq(2)))
+                .thenReturn(List.of(second, first), List.of(third));
+
+        // Act
+        relay.relay();
+
+        // Assert: порция передается приемнику в порядке ID
+        verify(sink).publish(List.of(first, second));
+        verify(sink).publish(List.of(third));
+        verify(jdbcTemplate, times(2)).batchUpdate(contains("DELETE FROM outbox_events"), anyList());
+        assertEquals(3.0, meterRegistry.counter("bankcards.outbox.published").count());
+    }
+
+    @Test
+    void testRelay_SinkFailure_ReleasesClaimAndCountsEvents() {
+        // Arrange
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(Timestamp.class), any(Timestamp.class), eq(2)))
+                .thenReturn(List.of(message(1L), message(2L)));
+        doThrow(new IllegalStateException("sink unavailable")).when(sink).publish(anyList());
+
+        // Act
+        relay.relay();
+
+        // Assert: приемник вызван без открытой транзакции, события не удалены, захват снят
+        InOrder inOrder = inOrder(sink, transactionManager);
+        inOrder.verify(sink).publish(anyList());
+        inOrder.verify(transactionManager).getTransaction(any());
+        verify(transactionManager, times(1)).getTransaction(any());
+        verify(jdbcTemplate, never()).batchUpdate(contains("DELETE FROM outbox_events"), anyList());
+        verify(jdbcTemplate).batchUpdate(contains("claimed_until = NULL"), anyList());
+        assertEquals(2.0, meterRegistry.counter("bankcards.outbox.failures").count());
+        assertEquals(0.0, meterRegistry.counter("bankcards.outbox.published").count());
+    }
+
+    private static OutboxMessage message(long id) {
+        return new OutboxMessage(id, OutboxWriter.CARD_DELETED, id, "{\"cardId\":" + id + "}",
+                LocalDateTime.now().minusSeconds(1));
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.ScheduledTransfer;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScheduledTransferSchedulerTest {
+
+    private static final LocalDateTime SCHEDULED = LocalDateTime.of(2024, 1, 1, 9, 0);
+
+    @Test
+    void testNextRunAfter_Once_Deactivates() {
+        // Act & Assert
+        assertNull(ScheduledTransferScheduler.nextRunAfter(
+                ScheduledTransfer.Recurrence.ONCE, SCHEDULED, SCHEDULED, SCHEDULED.plusMinutes(1)));
+    }
+
+    @Test
+    void testNextRunAfter_Monthly_NextPeriod() {
+        // Act
+        LocalDateTime next = ScheduledTransferScheduler.nextRunAfter(
+                ScheduledTransfer.Recurrence.MONTHLY, SCHEDULED, SCHEDULED, SCHEDULED.plusMinutes(1));
+
+        // Assert
+        assertEquals(LocalDateTime.of(2024, 2, 1, 9, 0), next);
+    }
+
+    @Test
+    void testNextRunAfter_MonthlyKeepsAnchorDayAfterShortMonth() {
+        // Arrange: перевод 31-го числа, февральское выполнение пришлось на 29-е
+        LocalDateTime start = LocalDateTime.of(2024, 1, 31, 9, 0);
+        LocalDateTime february = LocalDateTime.of(2024, 2, 29, 9, 0);
+
+        // Act
+        LocalDateTime afterJanuary = ScheduledTransferScheduler.nextRunAfter(
+                ScheduledTransfer.Recurrence.MONTHLY, start, start, start.plusMinutes(1));
+        LocalDateTime afterFebruary = ScheduledTransferScheduler.nextRunAfter(
+                ScheduledTransfer.Recurrence.MONTHLY, start, february, february.plusMinutes(1));
+        LocalDateTime afterMarch = ScheduledTransferScheduler.nextRunAfter(
+                ScheduledTransfer.Recurrence.MONTHLY, start, afterFebruary, afterFebruary.plusMinutes(1));
+
+        // Assert
+        assertEquals(february, afterJanuary);
+        assertEquals(LocalDateTime.of(2024, 3, 31, 9, 0), afterFebruary);
+        assertEquals(LocalDateTime.of(2024, 4, 30, 9, 0), afterMarch);
+    }
+
+    @Test
+    void testNextRunAfter_SkipsMissedRuns() {
+        // Act
+        LocalDateTime next = ScheduledTransferScheduler.nextRunAfter(
+                ScheduledTransfer.Recurrence.DAILY, SCHEDULED, SCHEDULED, SCHEDULED.plusDays(3).plusHours(1));
+
+        // Assert
+        assertEquals(LocalDateTime.of(2024, 1, 5, 9, 0), next);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.ScheduledTransferRequest;
+import com.example.bankcards.dto.ScheduledTransferResponse;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.ScheduledTransfer;
+import com.example.bankcards.exception.ForbiddenException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.ScheduledTransferRepository;
+import com.example.bankcards.security.CurrentUser;
+import com.example.bankcards.security.CurrentUserProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ScheduledTransferServiceTest {
+
+    @Mock
+    private ScheduledTransferRepository scheduledTransferRepository;
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private CurrentUserProvider currentUserProvider;
+
+    @InjectMocks
+    private ScheduledTransferService scheduledTransferService;
+
+    @BeforeEach
+    void setUp() {
+        when(currentUserProvider.get()).thenReturn(
+                new CurrentUser(1L, "testuser", CurrentUser.maskOf(Role.RoleName.ROLE_USER)));
+    }
+
+    @Test
+    void testCreateScheduledTransfer_OwnCards_Saved() {
+        // Arrange
+        when(cardRepository.findOwnerIdById(10L)).thenReturn(Optional.of(1L));
+        when(cardRepository.findOwnerIdById(20L)).thenReturn(Optional.of(1L));
+        when(scheduledTransferRepository.save(any(ScheduledTransfer.class))).thenAnswer(invocation -> {
+            ScheduledTransfer transfer = invocation.getArgument(0);
+            transfer.setId(5L);
+            return transfer;
+        });
+
+        // Act
+        ScheduledTransferResponse response = scheduledTransferService.createScheduledTransfer(request(10L, 20L));
+
+        // Assert
+        assertEquals(5L, response.getId());
+        assertTrue(response.isActive());
+        assertEquals(ScheduledTransfer.Recurrence.MONTHLY, response.getRecurrence());
+    }
+
+    @Test
+    void testCreateScheduledTransfer_ForeignCard_Forbidden() {
+        // Arrange
+        when(cardRepository.findOwnerIdById(10L)).thenReturn(Optional.of(1L));
+        when(cardRepository.findOwnerIdById(30L)).thenReturn(Optional.of(2L));
+
+        // Act & Assert
+        assertThrows(ForbiddenException.class,
+                () -> scheduledTransferService.createScheduledTransfer(request(10L, 30L)));
+        verify(scheduledTransferRepository, never()).save(any());
+    }
+
+    @Test
+    void testDeleteScheduledTransfer_OtherUser_Forbidden() {
+        // Arrange
+        ScheduledTransfer transfer = new ScheduledTransfer();
+        transfer.setId(5L);
+        transfer.setUserId(2L);
+        when(scheduledTransferRepository.findById(5L)).thenReturn(Optional.of(transfer));
+
+        // Act & Assert
+        assertThrows(ForbiddenException.class, () -> scheduledTransferService.deleteScheduledTransfer(5L));
+        verify(scheduledTransferRepository, never()).delete(any());
+    }
+
+    private static ScheduledTransferRequest request(Long from, Long to) {
+        return new ScheduledTransferRequest(from, to, new BigDecimal("25.00"),
+                ScheduledTransfer.Recurrence.MONTHLY, LocalDateTime.of(2024, 2, 1, 9, 0), null);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.bankcards.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatementFileWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testWriter_WritesOneLinePerCardWithRunningBalance() throws Exception {
+        // Arrange
+        Path file = tempDir.resolve("cards-0-10.ndjson.gz");
+        LocalDateTime date = LocalDateTime.of(2024, 1, 15, 10, 0);
+
+        // Act
+        StatementFileWriter writer = new StatementFileWriter(objectMapper.getFactory(), file, YearMonth.of(2024, 1));
+        try (writer) {
+            writer.beginCard(1L, "**** **** **** 1111", new BigDecimal("100.00"), null);
+            writer.transaction(7L, date, 2L, new BigDecimal("-30.00"));
+            writer.transaction(8L, date.plusDays(1), 3L, new BigDecimal("5.50"));
+            writer.beginCard(2L, "**** **** **** 2222", new BigDecimal("10.00"), date);
+        }
+
+        // Assert
+        List<String> lines = readLines(file);
+        assertEquals(2, lines.size());
+        assertEquals(2, writer.cards());
+
+        JsonNode first = objectMapper.readTree(lines.get(0));
+        assertEquals(1L, first.get("cardId").asLong());
+        assertEquals("2024-01", first.get("month").asText());
+        assertFalse(first.has("issuedAt"));
+        assertEquals(2, first.get("transactions").size());
+        assertAmount("70.00", first.get("transactions").get(0).get("balance"));
+        assertAmount("75.50", first.get("closingBalance"));
+
+        JsonNode second = objectMapper.readTree(lines.get(1));
+        assertEquals("2024-01-15T10:00", second.get("issuedAt").asText());
+        assertEquals(0, second.get("transactions").size());
+        assertAmount("10.00", second.get("closingBalance"));
+    }
+
+    @Test
+    void testWriter_NoCards_EmptyFile() throws Exception {
+        // Arrange
+        Path file = tempDir.resolve("cards-10-20.ndjson.gz");
+
+        // Act
+        new StatementFileWriter(objectMapper.getFactory(), file, YearMonth.of(2024, 1)).close();
+
+        // Assert
+        assertTrue(readLines(file).isEmpty());
+    }
+
+    private static void assertAmount(String expected, JsonNode actual) {
+        assertEquals(0, new BigDecimal(expected).compareTo(actual.decimalValue()));
+    }
+
+    private static List<String> readLines(Path file) throws Exception {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            return reader.lines().filter(line -> !line.isEmpty()).toList();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.bankcards.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.YearMonth;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StatementGeneratorTest {
+
+    private static final YearMonth MONTH = YearMonth.of(2024, 1);
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ObjectProvider<LedgerEngine> ledgerEngineProvider;
+
+    @Mock
+    private LedgerEngine ledgerEngine;
+
+    private StatementGenerator generator;
+
+    @BeforeEach
+    void setUp() {
+        generator = new StatementGenerator(dataSource, jdbcTemplate, transactionManager, new ObjectMapper(),
+                ledgerEngineProvider, true, tempDir.toString(), 10_000, 1, 100);
+    }
+
+    @Test
+    void testGenerate_RecordsRangeSizeAndFlushesLedgerFirst() throws Exception {
+        // Arrange
+        when(ledgerEngineProvider.getIfAvailable()).thenReturn(ledgerEngine);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class)))
+                .thenThrow(new DataAccessResourceFailureException("database is down"));
+
+        // Act
+        assertThrows(DataAccessResourceFailureException.class, () -> generator.generate(MONTH));
+
+        // Assert
+        assertEquals("10000", Files.readString(tempDir.resolve("2024-01").resolve("_RANGE_SIZE")));
+        verify(ledgerEngine).flush();
+    }
+
+    @Test
+    void testGenerate_RefusesToResumeWithDifferentRangeSize() throws Exception {
+        // Arrange: каталог начат с другим размером диапазона
+        Path monthDir = Files.createDirectories(tempDir.resolve("2024-01"));
+        Files.writeString(monthDir.resolve("_RANGE_SIZE"), "500");
+
+        // Act
+        IllegalStateException ex = assertThrows(IllegalStateException.class, () -> generator.generate(MONTH));
+
+        // Assert
+        assertTrue(ex.getMessage().contains("range size 500"));
+        verifyNoInteractions(jdbcTemplate, ledgerEngineProvider);
+    }
+
+    @Test
+    void testGenerate_RefusesToResumeRangesWithoutMarker() throws Exception {
+        // Arrange
+        Path monthDir = Files.createDirectories(tempDir.resolve("2024-01"));
+        Files.createFile(monthDir.resolve("cards-0-500.ndjson.gz"));
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> generator.generate(MONTH));
+        assertFalse(Files.exists(monthDir.resolve("_RANGE_SIZE")));
+    }
+}
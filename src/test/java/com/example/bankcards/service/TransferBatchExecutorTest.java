@@ -0,0 +1,132 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.util.CardNumberEncryptor;
+import com.example.bankcards.util.CardNumberMasker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransferBatchExecutorTest {
+
+    @Mock
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Mock
+    private JdbcOperations jdbcOperations;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private CardNumberEncryptor cardNumberEncryptor;
+
+    @Mock
+    private TransferLimitService transferLimitService;
+
+    @Mock
+    private OutboxWriter outboxWriter;
+
+    private TransferBatchExecutor batchExecutor;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        batchExecutor = new TransferBatchExecutor(jdbcTemplate, transactionManager, new CardNumberMasker(cardNumberEncryptor),
+                transferLimitService, outboxWriter);
+        lenient().when(transferLimitService.reserve(any(), any())).thenReturn(TransferLimitService.Reservation.NONE);
+
+        ResultSet card1 = cardRow(1L, "100.00", "**** **** **** 1111");
+        ResultSet card2 = cardRow(2L, "50.00", "**** **** **** 2222");
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(2);
+            handler.processRow(card1);
+            handler.processRow(card2);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), anyMap(), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testExecute_BestEffortUsesRunningBalances() {
+        // Arrange: второй перевод не проходит, третий использует средства, зачисленные первым
+        when(jdbcTemplate.getJdbcOperations()).thenReturn(jdbcOperations);
+        when(jdbcOperations.queryForList(anyString(), eq(Long.class), eq(2))).thenReturn(List.of(100L, 101L));
+
+        List<TransferBatchExecutor.Item> items = List.of(
+                item(1L, 2L, "80.00"),
+                item(1L, 2L, "30.00"),
+                item(2L, 1L, "120.00"));
+
+        // Act
+        List<TransferBatchExecutor.Outcome> outcomes = batchExecutor.execute(items, false);
+
+        // Assert
+        assertTrue(outcomes.get(0).isSuccess());
+        assertEquals(100L, outcomes.get(0).response().getId());
+        assertFalse(outcomes.get(1).isSuccess());
+        assertEquals("Insufficient funds", outcomes.get(1).error().getMessage());
+        assertTrue(outcomes.get(2).isSuccess());
+        assertEquals(101L, outcomes.get(2).response().getId());
+
+        ArgumentCaptor<List<Object[]>> balances = ArgumentCaptor.forClass(List.class);
+        verify(jdbcOperations).batchUpdate(startsWith("UPDATE cards"), balances.capture());
+        assertEquals(new BigDecimal("140.00"), balances.getValue().get(0)[0]);
+        assertEquals(new BigDecimal("10.00"), balances.getValue().get(1)[0]);
+        verify(jdbcOperations).batchUpdate(startsWith("INSERT INTO card_transactions"), anyList());
+        verifyNoInteractions(cardNumberEncryptor);
+    }
+
+    @Test
+    void testExecute_AllOrNothingWritesNothingOnFailure() {
+        // Arrange
+        List<TransferBatchExecutor.Item> items = List.of(
+                item(1L, 2L, "80.00"),
+                item(1L, 3L, "10.00"));
+
+        // Act
+        List<TransferBatchExecutor.Outcome> outcomes = batchExecutor.execute(items, true);
+
+        // Assert
+        assertEquals(2, outcomes.size());
+        assertFalse(outcomes.get(0).isSuccess());
+        assertInstanceOf(BadRequestException.class, outcomes.get(0).error());
+        assertEquals("To card not found with id: 3", outcomes.get(1).error().getMessage());
+        verify(jdbcTemplate, never()).getJdbcOperations();
+    }
+
+    private static TransferBatchExecutor.Item item(Long from, Long to, String amount) {
+        return new TransferBatchExecutor.Item(1L, new TransferRequest(from, to, new BigDecimal(amount)));
+    }
+
+    private static ResultSet cardRow(Long id, String balance, String maskedNumber) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("id")).thenReturn(id);
+        when(rs.getLong("owner_id")).thenReturn(1L);
+        when(rs.getString("status")).thenReturn("ACTIVE");
+        when(rs.getObject("expiry_date", LocalDate.class)).thenReturn(LocalDate.now().plusYears(1));
+        when(rs.getBigDecimal("balance")).thenReturn(new BigDecimal(balance));
+        when(rs.getString("masked_card_number")).thenReturn(maskedNumber);
+        when(rs.getString("encrypted_card_number")).thenReturn("encrypted_" + id);
+        return rs;
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.dto.TransferResponse;
+import com.example.bankcards.exception.BadRequestException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransferGroupCommitPipelineTest {
+
+    @Mock
+    private TransferBatchExecutor batchExecutor;
+
+    private SimpleMeterRegistry meterRegistry;
+    private TransferGroupCommitPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        pipeline = new TransferGroupCommitPipeline(batchExecutor, meterRegistry, 10, 200, 100, 5_000, 3, 0);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        pipeline.stop();
+    }
+
+    @Test
+    void testTransfer_EachCallerGetsItsOwnOutcome() throws Exception {
+        // Arrange: каждому переводу - свой результат, нечетные отклоняются
+        when(batchExecutor.execute(anyList(), eq(false))).thenAnswer(invocation -> {
+            List<TransferBatchExecutor.Item> items = invocation.getArgument(0);
+            List<TransferBatchExecutor.Outcome> outcomes = new ArrayList<>();
+            for (TransferBatchExecutor.Item item : items) {
+                long from = item.request().getFromCardId();
+                outcomes.add(from % 2 == 0
+                        ? new TransferBatchExecutor.Outcome(response(from), null)
+                        : new TransferBatchExecutor.Outcome(null, new BadRequestException("Insufficient funds")));
+            }
+            return outcomes;
+        });
+
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        try {
+            // Act
+            List<Future<TransferResponse>> results = new ArrayList<>();
+            for (long from = 1; from <= 4; from++) {
+                TransferRequest request = new TransferRequest(from, 100L, new BigDecimal("1.00"));
+                results.add(callers.submit(() -> pipeline.transfer(1L, request)));
+            }
+
+            // Assert
+            assertEquals(2L, results.get(1).get().getFromCardId());
+            assertEquals(4L, results.get(3).get().getFromCardId());
+            Exception rejected = assertThrows(Exception.class, () -> results.get(0).get());
+            assertInstanceOf(BadRequestException.class, rejected.getCause());
+            assertEquals(4.0, meterRegistry.summary("bankcards.transfer.group_commit.batch_size").totalAmount());
+            assertEquals(4L, meterRegistry.timer("bankcards.transfer.group_commit.queue_delay").count());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void testTransfer_GroupAbortedByDatabaseIsRetried() {
+        // Arrange
+        TransferRequest request = new TransferRequest(2L, 100L, new BigDecimal("1.00"));
+        when(batchExecutor.execute(anyList(), eq(false)))
+                .thenThrow(new CannotAcquireLockException("deadlock detected"))
+                .thenReturn(List.of(new TransferBatchExecutor.Outcome(response(2L), null)));
+
+        // Act
+        TransferResponse result = pipeline.transfer(1L, request);
+
+        // Assert
+        assertEquals(2L, result.getFromCardId());
+        verify(batchExecutor, times(2)).execute(anyList(), eq(false));
+    }
+
+    @Test
+    void testTransfer_RetriesExhaustedFailsTheGroup() {
+        // Arrange
+        TransferRequest request = new TransferRequest(2L, 100L, new BigDecimal("1.00"));
+        when(batchExecutor.execute(anyList(), eq(false)))
+                .thenThrow(new CannotAcquireLockException("deadlock detected"));
+
+        // Act & Assert
+        assertThrows(CannotAcquireLockException.class, () -> pipeline.transfer(1L, request));
+        verify(batchExecutor, times(3)).execute(anyList(), eq(false));
+    }
+
+    @Test
+    void testTransfer_AfterStopExecutesDirectly() throws Exception {
+        // Arrange
+        pipeline.stop();
+        TransferRequest request = new TransferRequest(2L, 100L, new BigDecimal("1.00"));
+        when(batchExecutor.execute(anyList(), eq(false)))
+                .thenReturn(List.of(new TransferBatchExecutor.Outcome(response(2L), null)));
+
+        // Act
+        TransferResponse result = pipeline.transfer(1L, request);
+
+        // Assert
+        assertEquals(2L, result.getFromCardId());
+        assertEquals(0L, meterRegistry.timer("bankcards.transfer.group_commit.queue_delay").count());
+    }
+
+    private static TransferResponse response(Long fromCardId) {
+        TransferResponse response = new TransferResponse();
+        response.setFromCardId(fromCardId);
+        return response;
+    }
+}
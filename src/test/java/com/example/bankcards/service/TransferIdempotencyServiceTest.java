@@ -0,0 +1,154 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.dto.TransferResponse;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.TransferIdempotencyKey;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.repository.TransferIdempotencyKeyRepository;
+import com.example.bankcards.security.CurrentUser;
+import com.example.bankcards.security.CurrentUserProvider;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransferIdempotencyServiceTest {
+
+    @Mock
+    private TransferService transferService;
+
+    @Mock
+    private TransferIdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Mock
+    private CurrentUserProvider currentUserProvider;
+
+    private ObjectMapper objectMapper;
+    private TransferIdempotencyService idempotencyService;
+    private TransferRequest request;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper().findAndRegisterModules();
+        idempotencyService = new TransferIdempotencyService(transferService, idempotencyKeyRepository,
+                currentUserProvider, objectMapper, Duration.ofHours(24), 100);
+
+        request = new TransferRequest(1L, 2L, new BigDecimal("200.00"));
+
+        when(currentUserProvider.get()).thenReturn(
+                new CurrentUser(1L, "testuser", CurrentUser.maskOf(Role.RoleName.ROLE_USER)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testTransfer_ReplayIsServedFromCache() {
+        // Arrange
+        TransferResponse response = response(10L);
+        when(idempotencyKeyRepository.findByUserIdAndIdempotencyKey(1L, "key-1")).thenReturn(Optional.empty());
+        when(transferService.transferBetweenOwnCards(eq(request), any(Consumer.class))).thenAnswer(invocation -> {
+            ((Consumer<TransferResponse>) invocation.getArgument(1)).accept(response);
+            return response;
+        });
+
+        // Act
+        TransferResponse first = idempotencyService.transfer("key-1", request);
+        TransferResponse replay = idempotencyService.transfer("key-1", new TransferRequest(1L, 2L, new BigDecimal("200")));
+
+        // Assert
+        assertEquals(10L, first.getId());
+        assertSame(first, replay);
+        verify(transferService, times(1)).transferBetweenOwnCards(any(), any(Consumer.class));
+        verify(idempotencyKeyRepository, times(1)).save(any(TransferIdempotencyKey.class));
+        verify(idempotencyKeyRepository, times(1)).findByUserIdAndIdempotencyKey(1L, "key-1");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testTransfer_ExpiredCacheEntryIsNotReplayed() {
+        // Arrange: ответ устаревает сразу после сохранения
+        idempotencyService = new TransferIdempotencyService(transferService, idempotencyKeyRepository,
+                currentUserProvider, objectMapper, Duration.ZERO, 100);
+        when(idempotencyKeyRepository.findByUserIdAndIdempotencyKey(1L, "key-1")).thenReturn(Optional.empty());
+        when(transferService.transferBetweenOwnCards(eq(request), any(Consumer.class)))
+                .thenReturn(response(10L), response(11L));
+
+        // Act
+        idempotencyService.transfer("key-1", request);
+        TransferResponse second = idempotencyService.transfer("key-1", request);
+
+        // Assert: устаревшая запись кэша отброшена при чтении, ключ проверен по базе
+        assertEquals(11L, second.getId());
+        verify(idempotencyKeyRepository, times(2)).findByUserIdAndIdempotencyKey(1L, "key-1");
+    }
+
+    @Test
+    void testTransfer_ReturnsResponseStoredInDatabase() throws Exception {
+        // Arrange
+        TransferIdempotencyKey record = storedRecord("key-2", request);
+        when(idempotencyKeyRepository.findByUserIdAndIdempotencyKey(1L, "key-2")).thenReturn(Optional.of(record));
+
+        // Act
+        TransferResponse replay = idempotencyService.transfer("key-2", request);
+
+        // Assert
+        assertEquals(20L, replay.getId());
+        verifyNoInteractions(transferService);
+    }
+
+    @Test
+    void testTransfer_KeyReusedWithDifferentRequest() throws Exception {
+        // Arrange
+        TransferIdempotencyKey record = storedRecord("key-3", request);
+        when(idempotencyKeyRepository.findByUserIdAndIdempotencyKey(1L, "key-3")).thenReturn(Optional.of(record));
+
+        // Act & Assert
+        assertThrows(BadRequestException.class, () -> idempotencyService.transfer("key-3",
+                new TransferRequest(1L, 2L, new BigDecimal("300.00"))));
+        verifyNoInteractions(transferService);
+    }
+
+    private TransferIdempotencyKey storedRecord(String key, TransferRequest storedRequest) throws Exception {
+        String canonical = storedRequest.getFromCardId() + "|" + storedRequest.getToCardId() + "|"
+                + storedRequest.getAmount().stripTrailingZeros().toPlainString();
+        String requestHash = HexFormat.of().formatHex(
+                MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8)));
+
+        TransferIdempotencyKey record = new TransferIdempotencyKey();
+        record.setUserId(1L);
+        record.setIdempotencyKey(key);
+        record.setRequestHash(requestHash);
+        record.setResponse(objectMapper.writeValueAsString(response(20L)));
+        record.setCreatedAt(LocalDateTime.now());
+        record.setExpiresAt(LocalDateTime.now().plusHours(1));
+        return record;
+    }
+
+    private static TransferResponse response(Long id) {
+        TransferResponse response = new TransferResponse();
+        response.setId(id);
+        response.setFromCardId(1L);
+        response.setToCardId(2L);
+        response.setAmount(new BigDecimal("200.00"));
+        response.setTransactionDate(LocalDateTime.now());
+        response.setMessage("Transfer completed successfully");
+        return response;
+    }
+}
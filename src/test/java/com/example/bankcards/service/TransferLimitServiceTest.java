@@ -0,0 +1,156 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardLimitRequest;
+import com.example.bankcards.dto.CardLimitResponse;
+import com.example.bankcards.entity.CardLimit;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.repository.CardLimitRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.util.Money;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransferLimitServiceTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Mock
+    private CardLimitRepository limitRepository;
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private TransferLimitService transferLimitService;
+
+    @BeforeEach
+    void setUp() {
+        transferLimitService = new TransferLimitService(limitRepository, cardRepository, jdbcTemplate);
+    }
+
+    @Test
+    void testReserve_CardWithoutLimits_ReturnsNone() {
+        // Act
+        TransferLimitService.Reservation reservation = transferLimitService.reserve(1L, Money.of(new BigDecimal("1000000.00")), NOW);
+
+        // Assert
+        assertSame(TransferLimitService.Reservation.NONE, reservation);
+    }
+
+    @Test
+    void testReserve_DailyLimitExceeded_ThrowsAndKeepsUsage() {
+        // Arrange
+        loadLimits(new CardLimit(1L, new BigDecimal("100.00"), null, null, LocalDateTime.now()));
+        transferLimitService.reserve(1L, Money.of(new BigDecimal("60.00")), NOW);
+
+        // Act & Assert
+        BadRequestException ex = assertThrows(BadRequestException.class,
+                () -> transferLimitService.reserve(1L, Money.of(new BigDecimal("40.01")), NOW));
+        assertEquals("Daily transfer limit exceeded", ex.getMessage());
+        transferLimitService.reserve(1L, Money.of(new BigDecimal("40.00")), NOW);
+    }
+
+    @Test
+    void testReserve_ReleasedReservationFreesLimit() {
+        // Arrange
+        loadLimits(new CardLimit(1L, null, null, 1, LocalDateTime.now()));
+        TransferLimitService.Reservation reservation = transferLimitService.reserve(1L, Money.ofMinor(100), NOW);
+
+        // Act
+        reservation.release();
+
+        // Assert
+        assertDoesNotThrow(() -> transferLimitService.reserve(1L, Money.ofMinor(100), NOW));
+        BadRequestException ex = assertThrows(BadRequestException.class,
+                () -> transferLimitService.reserve(1L, Money.ofMinor(100), NOW));
+        assertEquals("Hourly transfer count limit exceeded", ex.getMessage());
+    }
+
+    @Test
+    void testSetLimits_AllEmpty_RemovesLimits() {
+        // Arrange
+        when(cardRepository.existsById(1L)).thenReturn(true);
+        when(limitRepository.existsById(1L)).thenReturn(true);
+
+        // Act
+        CardLimitResponse response = transferLimitService.setLimits(1L, new CardLimitRequest(null, null, null));
+
+        // Assert
+        assertNull(response.getDailyAmount());
+        verify(limitRepository).deleteById(1L);
+        verify(limitRepository, never()).save(any());
+    }
+
+    @Test
+    void testSetLimits_NewCard_RestoresUsageFromHistory() {
+        // Arrange
+        when(cardRepository.existsById(1L)).thenReturn(true);
+        when(limitRepository.findById(1L)).thenReturn(Optional.empty());
+
+        // Act
+        transferLimitService.setLimits(1L, new CardLimitRequest(new BigDecimal("100.00"), null, null));
+
+        // Assert: история читается для ответа и повторно при публикации окон
+        verify(limitRepository).save(any(CardLimit.class));
+        verify(jdbcTemplate, times(2)).query(anyString(), any(RowCallbackHandler.class), eq(1L), any());
+    }
+
+    @Test
+    void testSetLimits_InMemoryChangesAppliedOnlyAfterCommit() {
+        // Arrange
+        when(cardRepository.existsById(1L)).thenReturn(true);
+        when(limitRepository.findById(1L)).thenReturn(Optional.empty());
+        when(limitRepository.existsById(1L)).thenReturn(true);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // Act
+            transferLimitService.setLimits(1L, new CardLimitRequest(null, null, 1));
+
+            // Assert: до фиксации лимит в памяти не действует
+            transferLimitService.reserve(1L, Money.ofMinor(100), NOW).release();
+            commit();
+            transferLimitService.reserve(1L, Money.ofMinor(100), NOW);
+            assertThrows(BadRequestException.class, () -> transferLimitService.reserve(1L, Money.ofMinor(100), NOW));
+
+            // Удаление тоже применяется только после фиксации
+            transferLimitService.removeLimits(1L);
+            assertThrows(BadRequestException.class, () -> transferLimitService.reserve(1L, Money.ofMinor(100), NOW));
+            commit();
+            assertSame(TransferLimitService.Reservation.NONE, transferLimitService.reserve(1L, Money.ofMinor(100), NOW));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static void commit() {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.initSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+    }
+
+    private void loadLimits(CardLimit limit) {
+        when(limitRepository.findAll()).thenReturn(List.of(limit));
+        transferLimitService.loadUsage();
+    }
+}
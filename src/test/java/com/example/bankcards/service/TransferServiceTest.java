@@ -2,26 +2,34 @@ package com.example.bankcards.service;
 
 import com.example.bankcards.dto.TransferRequest;
 import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.BadRequestException;
 import com.example.bankcards.exception.ForbiddenException;
 import com.example.bankcards.exception.ResourceNotFoundException;
+import com.example.bankcards.repository.CardBalanceUpdate;
+import com.example.bankcards.repository.CardLimitRepository;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.CardTransactionRepository;
-import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.CurrentUser;
+import com.example.bankcards.security.CurrentUserProvider;
 import com.example.bankcards.util.CardNumberEncryptor;
 import com.example.bankcards.util.CardNumberMasker;
+import com.example.bankcards.util.Money;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContext;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.Optional;
 
@@ -39,22 +47,36 @@ class TransferServiceTest {
     private CardTransactionRepository transactionRepository;
 
     @Mock
-    private UserRepository userRepository;
+    private CurrentUserProvider currentUserProvider;
 
     @Mock
     private CardNumberEncryptor cardNumberEncryptor;
 
     @Mock
-    private CardNumberMasker cardNumberMasker;
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private CardLimitRepository cardLimitRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private OutboxWriter outboxWriter;
 
     @Mock
-    private SecurityContext securityContext;
+    private ObjectProvider<LedgerEngine> ledgerEngine;
 
     @Mock
-    private Authentication authentication;
+    private ObjectProvider<TransferGroupCommitPipeline> groupCommitPipeline;
 
-    @InjectMocks
+    @Mock
+    private TransferGroupCommitPipeline pipeline;
+
+    private SimpleMeterRegistry meterRegistry;
+    private TransferLimitService transferLimitService;
     private TransferService transferService;
+    private CardNumberMasker cardNumberMasker;
 
     private User user;
     private Card fromCard;
@@ -62,6 +84,13 @@ class TransferServiceTest {
 
     @BeforeEach
     void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cardNumberMasker = new CardNumberMasker(cardNumberEncryptor);
+        transferLimitService = new TransferLimitService(cardLimitRepository, cardRepository, jdbcTemplate);
+        transferService = new TransferService(cardRepository, transactionRepository, currentUserProvider,
+                cardNumberMasker, transactionManager,
+                new TransferContentionMonitor(meterRegistry), transferLimitService, velocityGuard(), outboxWriter, ledgerEngine, groupCommitPipeline, 3, 0, false);
+
         user = new User();
         user.setId(1L);
         user.setUsername("testuser");
@@ -70,21 +99,22 @@ class TransferServiceTest {
         fromCard.setId(1L);
         fromCard.setOwner(user);
         fromCard.setStatus(Card.CardStatus.ACTIVE);
-        fromCard.setBalance(new BigDecimal("1000.00"));
+        fromCard.setBalance(Money.of(new BigDecimal("1000.00")));
         fromCard.setExpiryDate(LocalDate.now().plusYears(2));
         fromCard.setEncryptedCardNumber("encrypted_from");
+        fromCard.setMaskedCardNumber("**** **** **** 3456");
 
         toCard = new Card();
         toCard.setId(2L);
         toCard.setOwner(user);
         toCard.setStatus(Card.CardStatus.ACTIVE);
-        toCard.setBalance(new BigDecimal("500.00"));
+        toCard.setBalance(Money.of(new BigDecimal("500.00")));
         toCard.setExpiryDate(LocalDate.now().plusYears(2));
         toCard.setEncryptedCardNumber("encrypted_to");
+        toCard.setMaskedCardNumber("**** **** **** 7654");
 
-        SecurityContextHolder.setContext(securityContext);
-        when(securityContext.getAuthentication()).thenReturn(authentication);
-        when(authentication.getName()).thenReturn("testuser");
+        when(currentUserProvider.get()).thenReturn(
+                new CurrentUser(1L, "testuser", CurrentUser.maskOf(Role.RoleName.ROLE_USER)));
     }
 
     @Test
@@ -95,15 +125,10 @@ class TransferServiceTest {
         request.setToCardId(2L);
         request.setAmount(new BigDecimal("200.00"));
 
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
-        when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findById(2L)).thenReturn(Optional.of(toCard));
+        when(cardRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(toCard));
         when(cardRepository.save(any(Card.class))).thenAnswer(invocation -> invocation.getArgument(0));
         when(transactionRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
-        when(cardNumberEncryptor.decrypt("encrypted_from")).thenReturn("1234567890123456");
-        when(cardNumberEncryptor.decrypt("encrypted_to")).thenReturn("9876543210987654");
-        when(cardNumberMasker.maskCardNumber("1234567890123456")).thenReturn("**** **** **** 3456");
-        when(cardNumberMasker.maskCardNumber("9876543210987654")).thenReturn("**** **** **** 7654");
 
         // Act
         var result = transferService.transferBetweenOwnCards(request);
@@ -113,10 +138,13 @@ class TransferServiceTest {
         assertEquals(new BigDecimal("200.00"), result.getAmount());
         assertEquals(1L, result.getFromCardId());
         assertEquals(2L, result.getToCardId());
-        assertEquals(new BigDecimal("800.00"), fromCard.getBalance());
-        assertEquals(new BigDecimal("700.00"), toCard.getBalance());
+        assertEquals("**** **** **** 3456", result.getFromCardMaskedNumber());
+        assertEquals("**** **** **** 7654", result.getToCardMaskedNumber());
+        assertEquals(Money.of(new BigDecimal("800.00")), fromCard.getBalance());
+        assertEquals(Money.of(new BigDecimal("700.00")), toCard.getBalance());
         verify(cardRepository, times(2)).save(any(Card.class));
         verify(transactionRepository, times(1)).save(any());
+        verifyNoInteractions(cardNumberEncryptor);
     }
 
     @Test
@@ -127,9 +155,8 @@ class TransferServiceTest {
         request.setToCardId(2L);
         request.setAmount(new BigDecimal("2000.00"));
 
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
-        when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findById(2L)).thenReturn(Optional.of(toCard));
+        when(cardRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(toCard));
 
         // Act & Assert
         assertThrows(BadRequestException.class, () -> transferService.transferBetweenOwnCards(request));
@@ -144,8 +171,7 @@ class TransferServiceTest {
         request.setToCardId(1L);
         request.setAmount(new BigDecimal("100.00"));
 
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
-        when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(fromCard));
 
         // Act & Assert
         assertThrows(BadRequestException.class, () -> transferService.transferBetweenOwnCards(request));
@@ -159,8 +185,8 @@ class TransferServiceTest {
         request.setToCardId(2L);
         request.setAmount(new BigDecimal("100.00"));
 
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
-        when(cardRepository.findById(999L)).thenReturn(Optional.empty());
+        when(cardRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(toCard));
+        when(cardRepository.findByIdForUpdate(999L)).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(ResourceNotFoundException.class, () -> transferService.transferBetweenOwnCards(request));
@@ -175,12 +201,173 @@ class TransferServiceTest {
         request.setToCardId(2L);
         request.setAmount(new BigDecimal("100.00"));
 
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+        when(cardRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(toCard));
+
+        // Act & Assert
+        assertThrows(BadRequestException.class, () -> transferService.transferBetweenOwnCards(request));
+    }
+
+    @Test
+    void testTransferBetweenOwnCards_LocksCardsInAscendingIdOrder() {
+        // Arrange: перевод с карты с большим ID на карту с меньшим
+        TransferRequest request = new TransferRequest();
+        request.setFromCardId(2L);
+        request.setToCardId(1L);
+        request.setAmount(new BigDecimal("100.00"));
+
+        when(cardRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(toCard));
+        when(cardRepository.save(any(Card.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(transactionRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        transferService.transferBetweenOwnCards(request);
+
+        // Assert
+        InOrder inOrder = inOrder(cardRepository);
+        inOrder.verify(cardRepository).findByIdForUpdate(1L);
+        inOrder.verify(cardRepository).findByIdForUpdate(2L);
+        assertEquals(Money.of(new BigDecimal("400.00")), toCard.getBalance());
+        assertEquals(Money.of(new BigDecimal("1100.00")), fromCard.getBalance());
+    }
+
+    @Test
+    void testTransferBetweenOwnCards_RetriesOnLockFailure() {
+        // Arrange
+        TransferRequest request = new TransferRequest();
+        request.setFromCardId(1L);
+        request.setToCardId(2L);
+        request.setAmount(new BigDecimal("200.00"));
+
+        when(cardRepository.findByIdForUpdate(1L))
+                .thenThrow(new CannotAcquireLockException("deadlock detected"))
+                .thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(toCard));
+        when(cardRepository.save(any(Card.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(transactionRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        var result = transferService.transferBetweenOwnCards(request);
+
+        // Assert
+        assertNotNull(result);
+        assertEquals(Money.of(new BigDecimal("800.00")), fromCard.getBalance());
+        assertEquals(1.0, meterRegistry.counter("bankcards.transfer.retries").count());
+        verify(transactionRepository, times(1)).save(any());
+    }
+
+    @Test
+    void testTransferBetweenOwnCards_GivesUpAfterMaxAttempts() {
+        // Arrange
+        TransferRequest request = new TransferRequest();
+        request.setFromCardId(1L);
+        request.setToCardId(2L);
+        request.setAmount(new BigDecimal("200.00"));
+
+        when(cardRepository.findByIdForUpdate(1L)).thenThrow(new CannotAcquireLockException("lock timeout"));
+
+        // Act & Assert
+        assertThrows(CannotAcquireLockException.class, () -> transferService.transferBetweenOwnCards(request));
+        verify(cardRepository, times(3)).findByIdForUpdate(1L);
+        assertEquals(1.0, meterRegistry.counter("bankcards.transfer.retries.exhausted").count());
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    void testConditionalTransfer_Success() {
+        // Arrange
+        TransferService fastPathService = fastPathService();
+        TransferRequest request = new TransferRequest();
+        request.setFromCardId(1L);
+        request.setToCardId(2L);
+        request.setAmount(new BigDecimal("200"));
+
+        // Сумма передается в запросы нормализованной до копеек
+        when(cardRepository.debitIfAllowed(1L, 1L, new BigDecimal("200.00"), LocalDate.now()))
+                .thenReturn(Optional.of(balanceUpdate(1L, "**** **** **** 3456")));
+        when(cardRepository.creditIfAllowed(2L, 1L, new BigDecimal("200.00"), LocalDate.now()))
+                .thenReturn(Optional.of(balanceUpdate(2L, "**** **** **** 7654")));
+        when(cardRepository.getReferenceById(1L)).thenReturn(fromCard);
+        when(cardRepository.getReferenceById(2L)).thenReturn(toCard);
+        when(transactionRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        var result = fastPathService.transferBetweenOwnCards(request);
+
+        // Assert
+        assertEquals(new BigDecimal("200.00"), result.getAmount());
+        assertEquals("**** **** **** 3456", result.getFromCardMaskedNumber());
+        assertEquals("**** **** **** 7654", result.getToCardMaskedNumber());
+        verify(cardRepository, never()).findById(any());
+        verify(cardRepository, never()).save(any(Card.class));
+        verify(transactionRepository, times(1)).save(any());
+    }
+
+    @Test
+    void testConditionalTransfer_ResolvesRejectionReason() {
+        // Arrange
+        TransferService fastPathService = fastPathService();
+        TransferRequest request = new TransferRequest();
+        request.setFromCardId(1L);
+        request.setToCardId(2L);
+        request.setAmount(new BigDecimal("2000.00"));
+
+        when(cardRepository.debitIfAllowed(1L, 1L, new BigDecimal("2000.00"), LocalDate.now())).thenReturn(Optional.empty());
         when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
         when(cardRepository.findById(2L)).thenReturn(Optional.of(toCard));
 
         // Act & Assert
-        assertThrows(BadRequestException.class, () -> transferService.transferBetweenOwnCards(request));
+        BadRequestException ex = assertThrows(BadRequestException.class,
+                () -> fastPathService.transferBetweenOwnCards(request));
+        assertEquals("Insufficient funds", ex.getMessage());
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    void testTransferBetweenOwnCards_GroupCommitPassesVelocityGuard() {
+        // Arrange
+        TransferRequest request = new TransferRequest(1L, 2L, new BigDecimal("10.00"));
+        when(groupCommitPipeline.getIfAvailable()).thenReturn(pipeline);
+        when(cardRepository.findOwnerIdById(1L)).thenReturn(Optional.of(1L));
+        for (int i = 0; i < 20; i++) {
+            transferService.transferBetweenOwnCards(request);
+        }
+
+        // Act & Assert: групповая фиксация не обходит проверку скорости
+        BadRequestException ex = assertThrows(BadRequestException.class,
+                () -> transferService.transferBetweenOwnCards(request));
+        assertEquals("Too many transfers from this card, try again later", ex.getMessage());
+        verify(pipeline, times(20)).transfer(1L, request);
     }
-}
 
+    private TransferService fastPathService() {
+        return new TransferService(cardRepository, transactionRepository, currentUserProvider,
+                cardNumberMasker, transactionManager,
+                new TransferContentionMonitor(meterRegistry), transferLimitService, velocityGuard(), outboxWriter, ledgerEngine, groupCommitPipeline, 3, 0, true);
+    }
+
+    private TransferVelocityGuard velocityGuard() {
+        return new TransferVelocityGuard(meterRegistry, cardRepository, true, 20, Duration.ofMinutes(1), 10, 5, 0.2,
+                1000);
+    }
+
+    private static CardBalanceUpdate balanceUpdate(Long id, String maskedCardNumber) {
+        return new CardBalanceUpdate() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getMaskedCardNumber() {
+                return maskedCardNumber;
+            }
+
+            @Override
+            public String getEncryptedCardNumber() {
+                return null;
+            }
+        };
+    }
+}
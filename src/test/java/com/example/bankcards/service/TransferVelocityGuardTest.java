@@ -0,0 +1,128 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.repository.CardRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransferVelocityGuardTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Mock
+    private CardRepository cardRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private TransferVelocityGuard velocityGuard;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        velocityGuard = newGuard(100);
+        // Карты 10-999 принадлежат пользователю 1, остальных карт нет
+        lenient().when(cardRepository.findOwnerIdById(anyLong())).thenAnswer(invocation -> {
+            long cardId = invocation.getArgument(0);
+            return cardId >= 10 && cardId < 1000 ? Optional.of(1L) : Optional.empty();
+        });
+    }
+
+    @Test
+    void testCheck_RateExceeded_RejectsUntilWindowPasses() {
+        // Arrange
+        for (int i = 0; i < 3; i++) {
+            velocityGuard.check(1L, 10L, BigDecimal.TEN, NOW);
+        }
+
+        // Act & Assert
+        assertThrows(BadRequestException.class, () -> velocityGuard.check(1L, 10L, BigDecimal.TEN, NOW));
+        assertDoesNotThrow(() -> velocityGuard.check(1L, 10L, BigDecimal.TEN, NOW + 11_000));
+        assertEquals(1.0, rejections("rate"));
+        verify(cardRepository, times(1)).findOwnerIdById(10L);
+    }
+
+    @Test
+    void testCheck_ForeignCardIsCachedAndDoesNotUseOwnersWindow() {
+        // Arrange
+        velocityGuard.check(1L, 10L, BigDecimal.TEN, NOW);
+        for (int i = 0; i < 10; i++) {
+            velocityGuard.check(2L, 10L, BigDecimal.TEN, NOW);
+        }
+
+        // Act & Assert: чужая карта проверена в базе один раз и не расходует окно владельца
+        assertDoesNotThrow(() -> velocityGuard.check(1L, 10L, BigDecimal.TEN, NOW));
+        assertDoesNotThrow(() -> velocityGuard.check(1L, 10L, BigDecimal.TEN, NOW));
+        assertEquals(0.0, rejections("rate"));
+        verify(cardRepository, times(2)).findOwnerIdById(10L);
+    }
+
+    @Test
+    void testCheck_UnknownCardsLimitDatabaseLookups() {
+        // Arrange
+        for (long cardId = 5000; cardId < 5003; cardId++) {
+            velocityGuard.check(1L, cardId, BigDecimal.TEN, NOW);
+        }
+
+        // Act & Assert: перебор новых ID отклоняется без запроса к базе
+        assertThrows(BadRequestException.class, () -> velocityGuard.check(1L, 5003L, BigDecimal.TEN, NOW));
+        assertThrows(BadRequestException.class, () -> velocityGuard.check(1L, 5004L, BigDecimal.TEN, NOW));
+        velocityGuard.check(1L, 5000L, BigDecimal.TEN, NOW);
+        assertEquals(2.0, rejections("new-cards"));
+        verify(cardRepository, times(3)).findOwnerIdById(anyLong());
+        assertDoesNotThrow(() -> velocityGuard.check(1L, 5003L, BigDecimal.TEN, NOW + 11_000));
+    }
+
+    @Test
+    void testCheck_SpikeAgainstAverage_Rejected() {
+        // Arrange
+        for (int i = 0; i < 3; i++) {
+            velocityGuard.check(1L, 10L, BigDecimal.TEN, NOW + i * 5_000L);
+        }
+
+        // Act & Assert
+        assertThrows(BadRequestException.class,
+                () -> velocityGuard.check(1L, 10L, new BigDecimal("51"), NOW + 20_000));
+        assertDoesNotThrow(() -> velocityGuard.check(1L, 10L, new BigDecimal("50"), NOW + 40_000));
+        assertEquals(1.0, rejections("spike"));
+    }
+
+    @Test
+    void testCheck_FullTableEvictsInsteadOfSkippingCheck() {
+        // Arrange: по одной паре на сегмент
+        velocityGuard = newGuard(16);
+        long now = NOW;
+        for (long cardId = 10; cardId < 110; cardId++) {
+            now += 11_000;
+            velocityGuard.check(1L, cardId, BigDecimal.TEN, now);
+        }
+
+        // Act & Assert: таблица не растет, а новая карта проверяется
+        assertTrue(velocityGuard.trackedCards() <= 16);
+        for (int i = 0; i < 2; i++) {
+            velocityGuard.check(1L, 109L, BigDecimal.TEN, now);
+        }
+        long last = now;
+        assertThrows(BadRequestException.class, () -> velocityGuard.check(1L, 109L, BigDecimal.TEN, last));
+    }
+
+    private TransferVelocityGuard newGuard(int maxTrackedCards) {
+        return new TransferVelocityGuard(meterRegistry, cardRepository, true, 3, Duration.ofSeconds(10),
+                5, 3, 0.5, maxTrackedCards);
+    }
+
+    private double rejections(String rule) {
+        return meterRegistry.get("bankcards.transfer.velocity.rejected").tag("rule", rule).counter().count();
+    }
+}
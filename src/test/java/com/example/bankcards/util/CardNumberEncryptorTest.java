@@ -0,0 +1,92 @@
+package com.example.bankcards.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CardNumberEncryptorTest {
+
+    private static final String SECRET = "mySecretKeyForJWTTokenGeneration12345678901234567890";
+
+    private CardNumberEncryptor cardNumberEncryptor;
+
+    @BeforeEach
+    void setUp() {
+        cardNumberEncryptor = new CardNumberEncryptor(SECRET);
+    }
+
+    @Test
+    void testEncryptDecrypt_RoundTrip() {
+        String encrypted = cardNumberEncryptor.encrypt("1234567890123456");
+
+        assertNotEquals("1234567890123456", encrypted);
+        assertEquals("1234567890123456", cardNumberEncryptor.decrypt(encrypted));
+    }
+
+    @Test
+    void testDecrypt_CompatibleWithStoredFormat() throws Exception {
+        // Номер, зашифрованный напрямую через Cipher, как это делала прежняя реализация
+        Cipher cipher = Cipher.getInstance("AES/ECB/PKCS5Padding");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), 0, 32, "AES"));
+        String stored = Base64.getEncoder().encodeToString(
+                cipher.doFinal("9876543210987654".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(stored, cardNumberEncryptor.encrypt("9876543210987654"));
+        assertEquals("9876543210987654", cardNumberEncryptor.decrypt(stored));
+    }
+
+    @Test
+    void testDecryptAll_PreservesOrder() {
+        List<String> encrypted = List.of(
+                cardNumberEncryptor.encrypt("1111222233334444"),
+                cardNumberEncryptor.encrypt("5555666677778888"),
+                cardNumberEncryptor.encrypt("1111222233334444"));
+
+        assertEquals(List.of("1111222233334444", "5555666677778888", "1111222233334444"),
+                cardNumberEncryptor.decryptAll(encrypted));
+    }
+
+    @Test
+    void testDecrypt_InvalidInputDoesNotBreakEngine() {
+        assertThrows(RuntimeException.class, () -> cardNumberEncryptor.decrypt("bm90IGVuY3J5cHRlZA=="));
+
+        String encrypted = cardNumberEncryptor.encrypt("1234567890123456");
+        assertEquals("1234567890123456", cardNumberEncryptor.decrypt(encrypted));
+    }
+
+    @Test
+    void testDecrypt_ConcurrentThreads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                String cardNumber = "123456789012345" + t;
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        String encrypted = cardNumberEncryptor.encrypt(cardNumber);
+                        if (!cardNumber.equals(cardNumberEncryptor.decrypt(encrypted))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.bankcards.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CardNumberHasherTest {
+
+    private CardNumberHasher cardNumberHasher;
+
+    @BeforeEach
+    void setUp() {
+        cardNumberHasher = new CardNumberHasher("testSecretKeyForBlindIndex1234567890");
+    }
+
+    @Test
+    void testHash_Deterministic() {
+        String first = cardNumberHasher.hash("1234567890123456");
+        String second = cardNumberHasher.hash("1234567890123456");
+
+        assertEquals(first, second);
+        assertEquals(64, first.length());
+    }
+
+    @Test
+    void testHash_IgnoresFormatting() {
+        assertEquals(cardNumberHasher.hash("1234567890123456"),
+                cardNumberHasher.hash("1234 5678 9012 3456"));
+    }
+
+    @Test
+    void testHash_DifferentNumbers() {
+        assertNotEquals(cardNumberHasher.hash("1234567890123456"),
+                cardNumberHasher.hash("1234567890123457"));
+    }
+
+    @Test
+    void testHash_DependsOnKey() {
+        CardNumberHasher otherHasher = new CardNumberHasher("anotherSecretKeyForBlindIndex12345");
+
+        assertNotEquals(cardNumberHasher.hash("1234567890123456"),
+                otherHasher.hash("1234567890123456"));
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.bankcards.util;
 
+import com.example.bankcards.entity.Card;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -7,11 +8,15 @@ import static org.junit.jupiter.api.Assertions.*;
 
 class CardNumberMaskerTest {
 
+    private static final String SECRET = "mySecretKeyForJWTTokenGeneration12345678901234567890";
+
+    private CardNumberEncryptor cardNumberEncryptor;
     private CardNumberMasker cardNumberMasker;
 
     @BeforeEach
     void setUp() {
-        cardNumberMasker = new CardNumberMasker();
+        cardNumberEncryptor = new CardNumberEncryptor(SECRET);
+        cardNumberMasker = new CardNumberMasker(cardNumberEncryptor);
     }
 
     @Test
@@ -53,5 +58,21 @@ class CardNumberMaskerTest {
         // Для 14-значного номера последние 4 цифры - это "1234"
         assertTrue(masked.contains("1234") || masked.endsWith("1234"));
     }
-}
 
+    @Test
+    void testMaskedNumberOf_PrefersStoredMask() {
+        Card card = new Card();
+        card.setMaskedCardNumber("**** **** **** 9999");
+        card.setEncryptedCardNumber("not-a-valid-ciphertext");
+
+        assertEquals("**** **** **** 9999", cardNumberMasker.maskedNumberOf(card));
+    }
+
+    @Test
+    void testMaskedNumberOf_DecryptsWhenMaskMissing() {
+        Card card = new Card();
+        card.setEncryptedCardNumber(cardNumberEncryptor.encrypt("1234567890123456"));
+
+        assertEquals("**** **** **** 3456", cardNumberMasker.maskedNumberOf(card));
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.exception.BadRequestException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetCursorTest {
+
+    @Test
+    void testEncodeDecode_RoundTrip() {
+        KeysetCursor cursor = new KeysetCursor("cardholderName", "John | Doe", 42L);
+
+        KeysetCursor decoded = KeysetCursor.decode(cursor.encode());
+
+        assertEquals("cardholderName", decoded.getSortKey());
+        assertEquals("John | Doe", decoded.getValue());
+        assertEquals(42L, decoded.getId());
+    }
+
+    @Test
+    void testEncode_UrlSafe() {
+        String encoded = new KeysetCursor("expiryDate", "2030-01-31", 7L).encode();
+
+        assertTrue(encoded.matches("[A-Za-z0-9_-]+"));
+    }
+
+    @Test
+    void testDecode_Invalid() {
+        assertThrows(BadRequestException.class, () -> KeysetCursor.decode("not a cursor!"));
+        assertThrows(BadRequestException.class, () -> KeysetCursor.decode("aWQ"));
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.bankcards.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LruCacheTest {
+
+    @Test
+    void testPut_EvictsLeastRecentlyUsedWhenFull() {
+        // Arrange
+        LruCache<String, Integer> cache = new LruCache<>(2);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.get("a");
+
+        // Act
+        cache.put("c", 3);
+
+        // Assert
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(3, cache.get("c"));
+    }
+
+    @Test
+    void testComputeIfAbsent_ReturnsExistingAndBoundsSize() {
+        // Arrange
+        LruCache<String, Integer> cache = new LruCache<>(1);
+
+        // Act
+        Integer first = cache.computeIfAbsent("a", key -> 1);
+        Integer again = cache.computeIfAbsent("a", key -> 2);
+        cache.computeIfAbsent("b", key -> 3);
+
+        // Assert
+        assertEquals(1, first);
+        assertEquals(1, again);
+        assertEquals(1, cache.size());
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    void testSnapshot_CopiesWithoutChangingAccessOrder() {
+        // Arrange
+        LruCache<String, Integer> cache = new LruCache<>(2);
+        cache.put("a", 1);
+        cache.put("b", 2);
+
+        // Act
+        Map<String, Integer> snapshot = cache.snapshot();
+        cache.put("c", 3);
+
+        // Assert: снимок не отметил "a" как использованную, и она вытеснена первой
+        assertEquals(List.of("a", "b"), List.copyOf(snapshot.keySet()));
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    void testRemoveIf_RemovesMatchingValues() {
+        // Arrange
+        LruCache<String, Integer> cache = new LruCache<>(4);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.put("c", 3);
+
+        // Act
+        int removed = cache.removeIf(value -> value % 2 == 1);
+
+        // Assert
+        assertEquals(2, removed);
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.get("b"));
+    }
+
+    @Test
+    void testRemove_OnlyMatchingValue() {
+        // Arrange
+        LruCache<String, Integer> cache = new LruCache<>(4);
+        cache.put("a", 1);
+
+        // Act & Assert
+        cache.remove("a", 2);
+        assertEquals(1, cache.get("a"));
+        cache.remove("a", 1);
+        assertNull(cache.get("a"));
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.bankcards.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    @Test
+    void testOf_NormalizesScale() {
+        // Act
+        Money money = Money.of(new BigDecimal("12.5"));
+
+        // Assert
+        assertEquals(1250, money.minorUnits());
+        assertEquals(new BigDecimal("12.50"), money.toBigDecimal());
+        assertEquals(money, Money.of(new BigDecimal("12.500")));
+    }
+
+    @Test
+    void testOf_RejectsFractionOfKopeck() {
+        // Act & Assert
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("0.001")));
+    }
+
+    @Test
+    void testArithmetic_MatchesBigDecimal() {
+        // Arrange
+        BigDecimal balance = new BigDecimal("1000.00");
+        BigDecimal amount = new BigDecimal("0.07");
+
+        // Act
+        Money result = Money.of(balance).minus(Money.of(amount)).plus(Money.ofMinor(1));
+
+        // Assert
+        assertEquals(balance.subtract(amount).add(new BigDecimal("0.01")), result.toBigDecimal());
+        assertTrue(Money.of(amount).isLessThan(Money.of(balance)));
+    }
+
+    @Test
+    void testPlus_OverflowThrows() {
+        // Act & Assert
+        assertThrows(ArithmeticException.class, () -> Money.ofMinor(Long.MAX_VALUE).plus(Money.ofMinor(1)));
+    }
+
+    @Test
+    void testConverter_RoundTrip() {
+        // Arrange
+        MoneyConverter converter = new MoneyConverter();
+
+        // Act
+        BigDecimal column = converter.convertToDatabaseColumn(Money.ofMinor(-4250));
+
+        // Assert
+        assertEquals(new BigDecimal("-42.50"), column);
+        assertEquals(Money.ofMinor(-4250), converter.convertToEntityAttribute(column));
+        assertNull(converter.convertToEntityAttribute(null));
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.bankcards.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlidingWindowCounterTest {
+
+    private static final long BUCKET = 1000L;
+    private static final long T0 = 1_700_000_000_000L;
+
+    @Test
+    void testSum_CountsOnlyBucketsInsideWindow() {
+        // Arrange
+        SlidingWindowCounter counter = new SlidingWindowCounter(3, BUCKET);
+        counter.add(T0, 5);
+        counter.add(T0 + BUCKET, 7);
+        counter.add(T0 + 2 * BUCKET, 11);
+
+        // Act & Assert
+        assertEquals(23, counter.sum(T0 + 2 * BUCKET));
+        assertEquals(18, counter.sum(T0 + 3 * BUCKET));
+        assertEquals(0, counter.sum(T0 + 10 * BUCKET));
+    }
+
+    @Test
+    void testAdd_ReusesExpiredBucket() {
+        // Arrange
+        SlidingWindowCounter counter = new SlidingWindowCounter(3, BUCKET);
+        counter.add(T0, 5);
+
+        // Act
+        counter.add(T0 + 3 * BUCKET, 2);
+
+        // Assert
+        assertEquals(2, counter.sum(T0 + 3 * BUCKET));
+    }
+
+    @Test
+    void testAdd_IgnoresValueOlderThanBucketOwner() {
+        // Arrange
+        SlidingWindowCounter counter = new SlidingWindowCounter(3, BUCKET);
+        counter.add(T0 + 3 * BUCKET, 2);
+
+        // Act
+        counter.add(T0, 5);
+
+        // Assert
+        assertEquals(2, counter.sum(T0 + 3 * BUCKET));
+    }
+
+    @Test
+    void testSubtract_SkipsRotatedBucket() {
+        // Arrange
+        SlidingWindowCounter counter = new SlidingWindowCounter(3, BUCKET);
+        long epoch = counter.add(T0, 5);
+        counter.add(T0 + 3 * BUCKET, 2);
+
+        // Act
+        counter.subtract(epoch, 5);
+
+        // Assert
+        assertEquals(2, counter.sum(T0 + 3 * BUCKET));
+    }
+
+    @Test
+    void testSubtract_RemovesReservedValue() {
+        // Arrange
+        SlidingWindowCounter counter = new SlidingWindowCounter(3, BUCKET);
+        counter.add(T0, 5);
+        long epoch = counter.add(T0, 4);
+
+        // Act
+        counter.subtract(epoch, 4);
+
+        // Assert
+        assertEquals(5, counter.sum(T0));
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.bankcards.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void testTryAcquire_AllowsBurstThenRejects() {
+        // Arrange
+        TokenBucket bucket = new TokenBucket(3, SECOND, 0);
+
+        // Act & Assert
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(SECOND, bucket.tryAcquire(0));
+    }
+
+    @Test
+    void testTryAcquire_RefillsOverTime() {
+        // Arrange
+        TokenBucket bucket = new TokenBucket(2, SECOND, 0);
+        bucket.tryAcquire(0);
+        bucket.tryAcquire(0);
+
+        // Act & Assert
+        assertEquals(SECOND / 2, bucket.tryAcquire(SECOND / 2));
+        assertEquals(0, bucket.tryAcquire(SECOND));
+        assertFalse(bucket.isFull(SECOND));
+        assertTrue(bucket.isFull(3 * SECOND));
+    }
+
+    @Test
+    void testTryAcquire_ConcurrentCallersNeverExceedCapacity() {
+        // Arrange
+        TokenBucket bucket = new TokenBucket(100, SECOND, 0);
+        AtomicInteger acquired = new AtomicInteger();
+
+        // Act
+        IntStream.range(0, 1000).parallel().forEach(i -> {
+            if (bucket.tryAcquire(0) == 0) {
+                acquired.incrementAndGet();
+            }
+        });
+
+        // Assert
+        assertEquals(100, acquired.get());
+    }
+}